@@ -4,10 +4,12 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.entity.LegacyOrderItem;
 import margo.grid.store.app.entity.Order;
 import margo.grid.store.app.entity.OrderStatus;
 import margo.grid.store.app.entity.User;
 import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.repository.LegacyOrderItemRepository;
 import margo.grid.store.app.repository.OrderRepository;
 import margo.grid.store.app.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
@@ -19,6 +21,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
@@ -27,6 +31,7 @@ public class BootStrap implements CommandLineRunner {
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final OrderRepository orderRepository;
+    private final LegacyOrderItemRepository legacyOrderItemRepository;
 
     @Override
     @Transactional
@@ -36,6 +41,7 @@ public class BootStrap implements CommandLineRunner {
             if (userRepository.count() == 0) addUsers();
             if (itemRepository.count() == 0) addItems();
             if (orderRepository.count() == 0) addOrders();
+            else backfillOrderLines();
             log.info("Bootstrap data loaded successfully!");
         }
         catch (IOException e){
@@ -85,6 +91,31 @@ public class BootStrap implements CommandLineRunner {
     }
 
 
+    /**
+     * Gives orders placed before order lines existed one line per item they were linked to, at the
+     * item's current price, which is the total the API showed for them until then.
+     */
+    public void backfillOrderLines() {
+        Map<UUID, List<UUID>> itemIdsByOrder = legacyOrderItemRepository.findWithoutOrderLines().stream()
+                .collect(Collectors.groupingBy(LegacyOrderItem::getOrderId,
+                        Collectors.mapping(LegacyOrderItem::getItemId, Collectors.toList())));
+        if (itemIdsByOrder.isEmpty()) return;
+
+        Set<UUID> itemIds = itemIdsByOrder.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+        Map<UUID, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<Order> orders = orderRepository.findAllById(itemIdsByOrder.keySet());
+        for (Order order : orders) {
+            order.setTotal(BigDecimal.ZERO);
+            for (UUID itemId : itemIdsByOrder.get(order.getId())) {
+                Item item = items.get(itemId);
+                if (item != null) order.addLine(item, 1);
+            }
+        }
+        orderRepository.saveAll(orders);
+        log.info("Backfilled lines and totals of {} orders", orders.size());
+    }
+
     public void addOrders() {
         List<User> users = userRepository.findAll();
         List<Item> items = itemRepository.findAll();
@@ -102,7 +133,6 @@ public class BootStrap implements CommandLineRunner {
             Order order = Order.builder()
                     .status(statuses[random.nextInt(statuses.length)])
                     .user(randomUser)
-                    .items(new HashSet<>())
                     .build();
             int itemCount = random.nextInt(5) + 1;
             Set<Integer> usedItemIndices = new HashSet<>();
@@ -115,7 +145,7 @@ public class BootStrap implements CommandLineRunner {
 
                 usedItemIndices.add(itemIndex);
                 Item randomItem = items.get(itemIndex);
-                order.addItem(randomItem);
+                order.addLine(randomItem, random.nextInt(3) + 1);
             }
 
             randomUser.addOrder(order);
@@ -0,0 +1,29 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "cart")
+@PropertySource("classpath:cart.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class CartSettings {
+    @NotNull
+    private StoreType store = StoreType.MEMORY;
+
+    @NotNull @Min(1)
+    private Integer summaryCacheSize = 10_000;
+
+    public enum StoreType {
+        MEMORY,
+        DATABASE
+    }
+}
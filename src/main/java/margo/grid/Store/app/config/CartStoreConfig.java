@@ -0,0 +1,20 @@
+package margo.grid.store.app.config;
+
+import margo.grid.store.app.repository.CartItemRepository;
+import margo.grid.store.app.repository.CartStore;
+import margo.grid.store.app.repository.impl.DatabaseCartStore;
+import margo.grid.store.app.repository.impl.InMemoryCartStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CartStoreConfig {
+
+    @Bean
+    public CartStore cartStore(CartSettings cartSettings, CartItemRepository cartItemRepository) {
+        return switch (cartSettings.getStore()) {
+            case MEMORY -> new InMemoryCartStore();
+            case DATABASE -> new DatabaseCartStore(cartItemRepository);
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "checkout")
+@PropertySource("classpath:checkout.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class CheckoutSettings {
+    @NotNull @Min(1) @Max(10000000)
+    private Integer idempotencyKeyCacheSize = 100000;
+
+    @NotNull
+    private Duration idempotencyKeyTtl = Duration.ofHours(24);
+
+    @NotNull @Min(1) @Max(1024)
+    private Integer maxIdempotencyKeyLength = 255;
+}
@@ -0,0 +1,33 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "inventory")
+@PropertySource("classpath:inventory.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class InventorySettings {
+    @NotNull
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    @NotNull @Min(1) @Max(10000)
+    private Integer idleFlushesBeforeEviction = 60;
+
+    @NotNull
+    private Duration reservationTtl = Duration.ofMinutes(30);
+
+    @NotNull
+    private Duration reaperInterval = Duration.ofSeconds(10);
+}
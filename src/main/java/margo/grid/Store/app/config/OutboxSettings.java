@@ -0,0 +1,45 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "outbox")
+@PropertySource("classpath:outbox.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class OutboxSettings {
+    @NotNull @Min(1) @Max(64)
+    private Integer workers = 2;
+
+    @NotNull @Min(1) @Max(1000)
+    private Integer queuedBatches = 4;
+
+    @NotNull @Min(1) @Max(1000)
+    private Integer batchSize = 100;
+
+    @NotNull @Min(1) @Max(100)
+    private Integer maxAttempts = 5;
+
+    @NotNull
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    @NotNull
+    private Duration claimTimeout = Duration.ofMinutes(5);
+
+    @NotNull
+    private Duration retention = Duration.ofDays(7);
+
+    @NotNull
+    private Duration purgeInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,30 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "pagination")
+@PropertySource("classpath:pagination.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class PaginationSettings {
+    @NotNull
+    private Duration countRefreshInterval = Duration.ofSeconds(30);
+
+    @NotNull @Min(1) @Max(1000000)
+    private Integer countCacheSize = 10000;
+
+    @NotNull @Min(1) @Max(100000)
+    private Integer countRefreshBatchSize = 200;
+}
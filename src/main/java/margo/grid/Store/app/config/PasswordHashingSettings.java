@@ -0,0 +1,43 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "password-hashing")
+@PropertySource("classpath:password-hashing.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class PasswordHashingSettings {
+    /** Hashing threads, {@code 0} for one per available processor. */
+    @NotNull @Min(0) @Max(256)
+    private Integer threads = 0;
+
+    @NotNull @Min(0) @Max(10000)
+    private Integer queueCapacity = 64;
+
+    @NotNull
+    private Duration targetHashTime = Duration.ofMillis(50);
+
+    @NotNull @Min(1024) @Max(1048576)
+    private Integer argon2MemoryKib = 19456;
+
+    @NotNull @Min(1) @Max(16)
+    private Integer argon2Parallelism = 1;
+
+    @NotNull @Min(1) @Max(100)
+    private Integer argon2MinIterations = 2;
+
+    @NotNull @Min(1) @Max(100)
+    private Integer argon2MaxIterations = 10;
+}
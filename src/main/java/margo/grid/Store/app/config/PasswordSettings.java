@@ -10,6 +10,8 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "password")
 @PropertySource("classpath:password.properties")
 @Validated
@@ -43,4 +45,11 @@ public class PasswordSettings {
     private Integer maxSequenceLength;
 
     private String[] commonPasswords = new String[0];
+
+    private String commonPasswordsFile = "";
+
+    private String breachedPasswordsFile = "";
+
+    @NotNull
+    private Duration commonPasswordsCheckInterval = Duration.ofMinutes(1);
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ public class PathConstants {
     public static final String ORDERS_PATH = "/orders";
     public static final String CART_PATH = "/cart";
     public static final String CART_ITEMS_PATH = "/cart-items";
+    public static final String CANCELLATIONS_PATH = "/cancellations";
 
     public static final String LOGIN_PATH = "/login";
     public static final String REGISTER_PATH = "/register";
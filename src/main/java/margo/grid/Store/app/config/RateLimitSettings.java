@@ -1,16 +1,23 @@
 package margo.grid.store.app.config;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "rate-limit")
 @PropertySource("classpath:rate-limit.properties")
@@ -19,16 +26,76 @@ import java.time.Duration;
 @Getter
 @Setter
 public class RateLimitSettings {
-    @NotNull @Min(1) @Max(1000)
-    private Integer maxRequests;
+    @NotNull @Min(16) @Max(67108864)
+    private Integer maxClients = 65536;
+
+    private boolean enabled = true;
 
     @NotNull
-    private Duration refillPeriod;
+    private StoreType store = StoreType.MEMORY;
 
     @NotNull
-    private Duration cleanupInterval;
+    private Duration leaseDuration = Duration.ofSeconds(1);
 
-    private boolean enabled = true;
+    @NotNull
+    private Duration purgeInterval = Duration.ofMinutes(10);
+
+    /**
+     * Longest the database store waits for a connection or a bucket before limiting on the node alone.
+     */
+    @NotNull
+    private Duration databaseTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Connections the database store keeps apart from the application's pool to take leases over.
+     */
+    @NotNull @Min(1) @Max(64)
+    private Integer databasePoolSize = 4;
+
+    /**
+     * How long the database store limits on the node alone, without trying the database, after a
+     * lease request failed.
+     */
+    @NotNull
+    private Duration fallbackDuration = Duration.ofSeconds(5);
+
+    /**
+     * Policies by name. A request is limited by the policy of the most specific matching path.
+     */
+    @Valid
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    public enum StoreType {
+        MEMORY,
+        DATABASE
+    }
+
+    @Getter
+    @Setter
+    public static class Policy {
+        /**
+         * {@link org.springframework.web.util.pattern.PathPattern}s relative to the context path.
+         */
+        @NotEmpty
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Limited methods, all of them when empty.
+         */
+        private List<HttpMethod> methods = new ArrayList<>();
+
+        @NotNull @Min(1) @Max(65535)
+        private Integer maxRequests;
+
+        @NotNull
+        private Duration refillPeriod;
 
-    private String[] excludedPaths = {"/register", "/forgot-password"};
+        /**
+         * Tokens a node takes from the shared bucket at once with the database store. When unset, what
+         * the policy refills during {@code rate-limit.lease-duration}, at most a tenth of
+         * {@code max-requests} and at least one.
+         */
+        @Min(1) @Max(65535)
+        private Integer leaseTokens;
+    }
 }
@@ -0,0 +1,30 @@
+package margo.grid.store.app.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import margo.grid.store.app.repository.RateLimitBucketRepository;
+import margo.grid.store.app.repository.RateLimitStore;
+import margo.grid.store.app.repository.impl.DatabaseRateLimitStore;
+import margo.grid.store.app.repository.impl.InMemoryRateLimitStore;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RateLimitStoreConfig {
+
+    @Bean
+    public RateLimitStore rateLimitStore(RateLimitSettings rateLimitSettings,
+                                         RateLimitBucketRepository rateLimitBucketRepository,
+                                         DataSourceProperties dataSourceProperties,
+                                         MeterRegistry meterRegistry) {
+        return switch (rateLimitSettings.getStore()) {
+            case MEMORY -> {
+                InMemoryRateLimitStore store = new InMemoryRateLimitStore(rateLimitSettings);
+                store.bindTo(meterRegistry);
+                yield store;
+            }
+            case DATABASE -> new DatabaseRateLimitStore(rateLimitBucketRepository, dataSourceProperties,
+                    rateLimitSettings, meterRegistry);
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "retry")
+@PropertySource("classpath:retry.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class RetrySettings {
+    @NotNull @Min(1) @Max(20)
+    private Integer maxAttempts = 5;
+
+    @NotNull
+    private Duration initialBackoff = Duration.ofMillis(5);
+
+    @NotNull
+    private Duration maxBackoff = Duration.ofMillis(100);
+}
@@ -1,6 +1,9 @@
 package margo.grid.store.app.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import margo.grid.store.app.filter.RateLimitFilter;
+import margo.grid.store.app.utils.BoundedPasswordEncoder;
+import margo.grid.store.app.utils.PasswordEncoderFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -10,7 +13,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
@@ -50,8 +52,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingSettings settings, MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(PasswordEncoderFactory.create(settings), settings, meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,27 @@
+package margo.grid.store.app.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "user-cache")
+@PropertySource("classpath:user-cache.properties")
+@Component
+@Validated
+@Getter
+@Setter
+public class UserCacheSettings {
+    @NotNull @Min(1) @Max(10000000)
+    private Integer size = 10000;
+
+    @NotNull
+    private Duration ttl = Duration.ofMinutes(10);
+}
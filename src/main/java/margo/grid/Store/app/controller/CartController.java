@@ -5,7 +5,9 @@ import lombok.RequiredArgsConstructor;
 import margo.grid.store.app.dto.CartDto;
 import margo.grid.store.app.dto.ItemToCartRequestDto;
 import margo.grid.store.app.service.CartService;
+import margo.grid.store.app.utils.MyUserDetails;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import java.util.UUID;
 
@@ -18,25 +20,28 @@ public class CartController {
     private final CartService cartService;
 
     @PostMapping
-    public ResponseEntity<UUID> addItemToCart(@Valid @RequestBody ItemToCartRequestDto dto){
-       cartService.addItem(dto);
+    public ResponseEntity<UUID> addItemToCart(@Valid @RequestBody ItemToCartRequestDto dto,
+                                              @AuthenticationPrincipal MyUserDetails user){
+       cartService.addItem(dto, user);
        return ResponseEntity.ok().build();
     }
 
     @PutMapping
-    public ResponseEntity<Void> modifyItemInCart(@Valid @RequestBody ItemToCartRequestDto dto){
-        cartService.modifyItem(dto);
+    public ResponseEntity<Void> modifyItemInCart(@Valid @RequestBody ItemToCartRequestDto dto,
+                                                 @AuthenticationPrincipal MyUserDetails user){
+        cartService.modifyItem(dto, user);
         return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<UUID> deleteItemFromCart(@PathVariable UUID id){
-        cartService.removeItem(id);
+    public ResponseEntity<UUID> deleteItemFromCart(@PathVariable UUID id,
+                                                   @AuthenticationPrincipal MyUserDetails user){
+        cartService.removeItem(id, user);
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping
-    public ResponseEntity<CartDto> getAllItemsInCart(){
-        return ResponseEntity.ok().body(cartService.getCart());
+    public ResponseEntity<CartDto> getAllItemsInCart(@AuthenticationPrincipal MyUserDetails user){
+        return ResponseEntity.ok().body(cartService.getCart(user));
     }
 }
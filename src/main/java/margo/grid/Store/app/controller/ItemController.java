@@ -3,13 +3,17 @@ package margo.grid.store.app.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import margo.grid.store.app.service.ItemService;
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.ItemResponseDto;
 import margo.grid.store.app.dto.PageResponseDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.sql.Timestamp;
 import java.util.UUID;
 
 import static margo.grid.store.app.config.PathConstants.ITEMS_PATH;
@@ -19,16 +23,39 @@ import static margo.grid.store.app.config.PathConstants.ITEMS_PATH;
 @RequiredArgsConstructor
 public class ItemController {
 
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     private final ItemService itemService;
 
     @GetMapping
-    public ResponseEntity<PageResponseDto<ItemResponseDto>> getALlStoreItems(@Valid @PageableDefault(sort = "title") Pageable pageable){
+    public ResponseEntity<PageResponseDto<ItemResponseDto>> getALlStoreItems(@Valid @PageableDefault(sort = "title") Pageable pageable,
+                                                                             @RequestParam(required = false) String after,
+                                                                             @RequestParam(defaultValue = "true") boolean count){
+        if (after != null) {
+            CursorPage<ItemResponseDto> items = itemService.getItemsAfter(after, pageable.getPageSize());
+            return ResponseEntity.ok().body(PageResponseDto.from(items));
+        }
+        if (!count) {
+            Slice<ItemResponseDto> items = itemService.getItemSlice(pageable);
+            return ResponseEntity.ok().body(PageResponseDto.from(items, itemService.estimateItemCount()));
+        }
+        // read before the page, so a change that lands in between can only make the tag older than the content
+        long catalogVersion = itemService.getCatalogVersion();
         Page<ItemResponseDto> items = itemService.getItems(pageable);
-        return ResponseEntity.ok().body(PageResponseDto.from(items));
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag("W/\"" + Long.toHexString(catalogVersion) + "\"")
+                .body(PageResponseDto.from(items));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ItemResponseDto> getParticularItems(@PathVariable UUID id){
-        return ResponseEntity.ok().body(itemService.getItemById(id));
+        ItemResponseDto item = itemService.getItemById(id);
+        Timestamp updatedAt = item.getUpdatedAt();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag("\"" + Long.toHexString(item.getVersion()) + "-" + Integer.toHexString(item.hashCode()) + "\"");
+        if (updatedAt != null) response.lastModified(updatedAt.toInstant());
+        return response.body(item);
     }
 }
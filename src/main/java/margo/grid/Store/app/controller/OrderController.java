@@ -1,12 +1,17 @@
 package margo.grid.store.app.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.dto.CancelOrdersRequestDto;
+import margo.grid.store.app.dto.CancellationResponseDto;
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.OrderResponseDto;
 import margo.grid.store.app.dto.PageResponseDto;
 import margo.grid.store.app.service.OrderService;
 import margo.grid.store.app.utils.MyUserDetails;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -15,6 +20,7 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import java.net.URI;
 import java.util.UUID;
 
+import static margo.grid.store.app.config.PathConstants.CANCELLATIONS_PATH;
 import static margo.grid.store.app.config.PathConstants.ORDERS_PATH;
 
 @RestController
@@ -24,8 +30,10 @@ public class OrderController {
     private final OrderService orderService;
 
     @PostMapping
-    public ResponseEntity<OrderResponseDto> createOrder(@AuthenticationPrincipal MyUserDetails user){
-        OrderResponseDto orderResponse = orderService.createOrder(user);
+    public ResponseEntity<OrderResponseDto> createOrder(@RequestHeader(value = "Idempotency-Key", required = false)
+                                                        String idempotencyKey,
+                                                        @AuthenticationPrincipal MyUserDetails user){
+        OrderResponseDto orderResponse = orderService.createOrder(user, idempotencyKey);
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
                 .path("/{id}").build(orderResponse.getId());
@@ -46,9 +54,25 @@ public class OrderController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping(CANCELLATIONS_PATH)
+    public ResponseEntity<CancellationResponseDto> cancelOrders(@Valid @RequestBody CancelOrdersRequestDto dto,
+                                                                @AuthenticationPrincipal MyUserDetails user){
+        return ResponseEntity.ok(orderService.cancelOrders(dto.getOrderIds(), user));
+    }
+
     @GetMapping
     public ResponseEntity<PageResponseDto<OrderResponseDto>> getAllUserOrders(@PageableDefault Pageable pageable,
+                                                                              @RequestParam(required = false) String after,
+                                                                              @RequestParam(defaultValue = "true") boolean count,
                                                                               @AuthenticationPrincipal MyUserDetails user){
+        if (after != null) {
+            CursorPage<OrderResponseDto> orders = orderService.getUserOrdersAfter(user, after, pageable.getPageSize());
+            return ResponseEntity.ok().body(PageResponseDto.from(orders));
+        }
+        if (!count) {
+            Slice<OrderResponseDto> orders = orderService.getUserOrderSlice(user, pageable);
+            return ResponseEntity.ok().body(PageResponseDto.from(orders, orderService.estimateUserOrderCount(user)));
+        }
         Page<OrderResponseDto> orders = orderService.getAllUserOrders(user, pageable);
         return ResponseEntity.ok().body(PageResponseDto.from(orders));
     }
@@ -0,0 +1,33 @@
+package margo.grid.store.app.controller;
+
+import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.entity.OutboxStatus;
+import margo.grid.store.app.service.OutboxService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Operator tool for the outbox: shows the pending and parked events and requeues events of a status
+ * created since a given moment. It is not in the web exposure list since the store has no admin role;
+ * use it over JMX or expose it on a separate management port.
+ */
+@Component
+@Endpoint(id = "outbox")
+@RequiredArgsConstructor
+public class OutboxEndpoint {
+    private final OutboxService outboxService;
+
+    @ReadOperation
+    public Map<OutboxStatus, Long> backlog() {
+        return outboxService.backlog();
+    }
+
+    @WriteOperation
+    public Map<String, Integer> replay(OutboxStatus status, OffsetDateTime since) {
+        return Map.of("requeued", outboxService.replay(status, since.toInstant()));
+    }
+}
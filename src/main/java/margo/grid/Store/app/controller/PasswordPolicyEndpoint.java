@@ -0,0 +1,30 @@
+package margo.grid.store.app.controller;
+
+import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.service.PasswordPolicyService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+
+/**
+ * Shows the size of the common-password list in use and compiles the password policy again on demand.
+ * Like the outbox endpoint it is not exposed over the web.
+ */
+@Component
+@Endpoint(id = "passwordpolicy")
+@RequiredArgsConstructor
+public class PasswordPolicyEndpoint {
+    private final PasswordPolicyService passwordPolicyService;
+
+    @ReadOperation
+    public Map<String, Long> policy() {
+        return Map.of("commonPasswords", passwordPolicyService.getPolicy().getCommonPasswordCount());
+    }
+
+    @WriteOperation
+    public Map<String, Long> reload() {
+        return Map.of("commonPasswords", passwordPolicyService.reload().getCommonPasswordCount());
+    }
+}
@@ -0,0 +1,21 @@
+package margo.grid.store.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CancelOrdersRequestDto {
+    @NotEmpty
+    @Size(max = 100)
+    @JsonProperty("order_ids")
+    private List<@NotNull UUID> orderIds;
+}
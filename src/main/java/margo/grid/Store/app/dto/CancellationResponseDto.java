@@ -0,0 +1,7 @@
+package margo.grid.store.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record CancellationResponseDto(@JsonProperty("cancelled_orders") int cancelledOrders,
+                                      @JsonProperty("restored_units") int restoredUnits) {
+}
@@ -0,0 +1,22 @@
+package margo.grid.store.app.dto;
+
+import margo.grid.store.app.utils.Cursor;
+import java.util.List;
+import java.util.function.Function;
+
+public record CursorPage<T>(List<T> content, int size, String nextCursor) {
+
+    /**
+     * Builds a page from rows fetched with a limit of {@code size + 1}; the extra row only tells that there is a next page.
+     */
+    public static <R, T> CursorPage<T> of(List<R> rows, int size, Function<R, Cursor> cursorOf, Function<R, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<R> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(pageRows.getLast()).encode() : null;
+        return new CursorPage<>(pageRows.stream().map(mapper).toList(), size, nextCursor);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,6 @@
+package margo.grid.store.app.dto;
+
+import java.util.UUID;
+
+public record ItemQuantityDto(UUID itemId, Long quantity) {
+}
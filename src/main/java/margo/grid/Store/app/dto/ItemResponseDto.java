@@ -1,8 +1,10 @@
 package margo.grid.store.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.UUID;
 
 @Data
@@ -13,4 +15,10 @@ public class ItemResponseDto {
     @JsonProperty("available_quantity")
     private Integer availableQuantity;
     private BigDecimal price;
+
+    @JsonIgnore
+    private long version;
+
+    @JsonIgnore
+    private Timestamp updatedAt;
 }
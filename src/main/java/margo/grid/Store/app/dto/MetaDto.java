@@ -1,8 +1,10 @@
 package margo.grid.store.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 @Getter
 public class MetaDto {
@@ -23,6 +25,14 @@ public class MetaDto {
     @JsonProperty("has_previous")
     private boolean hasPrevious = false;
 
+    @JsonProperty("total_is_estimate")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean totalEstimated = false;
+
+    @JsonProperty("next_cursor")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     public MetaDto(Page<?> page) {
         if (page != null) {
             this.page = page.getNumber();
@@ -33,4 +43,26 @@ public class MetaDto {
             this.hasPrevious = page.hasPrevious();
         }
     }
+
+    /**
+     * Meta of a page read without a count query; the totals come from a background estimate and are
+     * only raised to what the slice itself proves to exist.
+     */
+    public MetaDto(Slice<?> slice, long estimatedTotal) {
+        long seen = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements()
+                + (slice.hasNext() ? 1 : 0);
+        this.page = slice.getNumber();
+        this.totalCount = Math.max(estimatedTotal, seen);
+        this.pageSize = slice.getSize();
+        this.totalPages = slice.getSize() == 0 ? 1 : (int) ((totalCount + slice.getSize() - 1) / slice.getSize());
+        this.hasNext = slice.hasNext();
+        this.hasPrevious = slice.hasPrevious();
+        this.totalEstimated = true;
+    }
+
+    public MetaDto(CursorPage<?> page) {
+        this.pageSize = page.size();
+        this.hasNext = page.hasNext();
+        this.nextCursor = page.nextCursor();
+    }
 }
\ No newline at end of file
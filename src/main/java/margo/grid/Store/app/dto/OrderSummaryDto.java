@@ -0,0 +1,9 @@
+package margo.grid.store.app.dto;
+
+import margo.grid.store.app.entity.OrderStatus;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+public record OrderSummaryDto(UUID id, Timestamp createdAt, OrderStatus status, BigDecimal total) {
+}
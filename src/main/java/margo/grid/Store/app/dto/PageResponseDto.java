@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import java.util.List;
 
 @Data
@@ -16,4 +17,12 @@ public class PageResponseDto<T> {
     public static <T> PageResponseDto<T> from(Page<T> page) {
         return new PageResponseDto<>(new MetaDto(page), page.getContent());
     }
+
+    public static <T> PageResponseDto<T> from(Slice<T> slice, long estimatedTotal) {
+        return new PageResponseDto<>(new MetaDto(slice, estimatedTotal), slice.getContent());
+    }
+
+    public static <T> PageResponseDto<T> from(CursorPage<T> page) {
+        return new PageResponseDto<>(new MetaDto(page), page.content());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package margo.grid.store.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "cart_items",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"cart_id", "item_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartItem {
+
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    @Column(nullable = false, name = "cart_id")
+    private UUID cartId;
+
+    @Column(nullable = false, name = "item_id")
+    private UUID itemId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,35 @@
+package margo.grid.store.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "cart_reservations",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"cart_id", "item_id"}),
+        indexes = @Index(name = "idx_cart_reservations_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartReservation {
+
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    @Column(nullable = false, name = "cart_id", length = 64)
+    private String cartId;
+
+    @Column(nullable = false, name = "item_id")
+    private UUID itemId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, name = "expires_at")
+    private LocalDateTime expiresAt;
+}
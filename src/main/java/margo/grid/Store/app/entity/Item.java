@@ -10,18 +10,17 @@ import org.springframework.data.annotation.LastModifiedDate;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name = "items")
+@Table(name = "items",
+        indexes = @Index(name = "idx_items_title_id", columnList = "title, id"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(exclude = {"orders"})
-@ToString(exclude = {"orders"})
+@EqualsAndHashCode
+@ToString
 @Builder
 public class Item {
     @Id
@@ -37,6 +36,10 @@ public class Item {
     @Column(nullable = false, name = "available_quantity")
     private Integer availableQuantity;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @UpdateTimestamp
     @Column(name = "updated_at", insertable = false)
     private Timestamp updatedAt;
@@ -44,8 +47,4 @@ public class Item {
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private Timestamp createdAt;
-
-    @ManyToMany(mappedBy = "items")
-    @Builder.Default
-    Set<Order> orders = new HashSet<>();
 }
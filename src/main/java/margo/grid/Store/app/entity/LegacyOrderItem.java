@@ -0,0 +1,35 @@
+package margo.grid.store.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Row of the {@code order_item} join table orders were linked to their items through before they had
+ * lines. Only read to backfill the lines and totals of those orders.
+ */
+@Entity
+@Table(name = "order_item")
+@IdClass(LegacyOrderItem.Key.class)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LegacyOrderItem {
+
+    @Id
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Id
+    @Column(name = "item_id")
+    private UUID itemId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID orderId;
+        private UUID itemId;
+    }
+}
@@ -8,21 +8,23 @@ import org.hibernate.annotations.UuidGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
+import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+        indexes = @Index(name = "idx_orders_user_id_status_created_at", columnList = "user_id, status, created_at, id"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(exclude = {"items", "user"})
+@EqualsAndHashCode(exclude = {"lines", "user"})
 @Builder
-@ToString(exclude = {"items", "user"})
+@ToString(exclude = {"lines", "user"})
 public class Order {
 
     @Id
@@ -33,6 +35,10 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @UpdateTimestamp
     @Column(name = "updated_at", insertable = false)
     private Timestamp updatedAt;
@@ -41,25 +47,27 @@ public class Order {
     @Column(name = "created_at", updatable = false)
     private Timestamp createdAt;
 
+    @Column(name = "idempotency_key", unique = true, updatable = false)
+    private UUID idempotencyKey;
+
+    @Column(nullable = false)
     @Builder.Default
-    @ManyToMany
-    @JoinTable(name = "order_item",
-                joinColumns = @JoinColumn(name = "order_id"),
-                inverseJoinColumns = @JoinColumn(name = "item_id"))
-    private Set<Item> items = new HashSet<>();
+    private BigDecimal total = BigDecimal.ZERO;
 
-    public void addItem(Item item) {
-        if (item != null) {
-            items.add(item);
-            item.getOrders().add(this);
-        }
-    }
+    @Builder.Default
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<OrderLine> lines = new ArrayList<>();
 
-    public void removeItem(Item item) {
-        if (item != null && items.contains(item)) {
-            items.remove(item);
-            item.getOrders().remove(this);
-        }
+    public void addLine(Item item, int quantity) {
+        BigDecimal lineTotal = item.getPrice().multiply(BigDecimal.valueOf(quantity));
+        lines.add(OrderLine.builder()
+                .order(this)
+                .item(item)
+                .quantity(quantity)
+                .unitPrice(item.getPrice())
+                .lineTotal(lineTotal)
+                .build());
+        total = total.add(lineTotal);
     }
 
     @ManyToOne(targetEntity = User.class, optional = false)
@@ -0,0 +1,41 @@
+package margo.grid.store.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Entity
+@Table(name = "order_lines",
+        indexes = @Index(name = "idx_order_lines_order_id", columnList = "order_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"order", "item"})
+@ToString(exclude = {"order", "item"})
+@Builder
+public class OrderLine {
+
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "item_id", nullable = false)
+    private Item item;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Column(nullable = false, name = "line_total")
+    private BigDecimal lineTotal;
+}
@@ -0,0 +1,58 @@
+package margo.grid.store.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Entity
+@Table(name = "outbox_events",
+        indexes = @Index(name = "idx_outbox_events_status_created_at", columnList = "status, created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = "payload")
+public class OutboxEvent {
+
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    @Column(nullable = false, length = 32)
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType type;
+
+    @Column(nullable = false, name = "aggregate_id")
+    private UUID aggregateId;
+
+    @Column(nullable = false, length = 2000)
+    private String payload;
+
+    @Column(nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Timestamp createdAt;
+
+    @Column(name = "processed_at")
+    private Timestamp processedAt;
+
+    @Column(name = "claim_token")
+    private UUID claimToken;
+
+    @Column(name = "claimed_until")
+    private Timestamp claimedUntil;
+}
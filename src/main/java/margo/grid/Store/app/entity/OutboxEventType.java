@@ -0,0 +1,13 @@
+package margo.grid.store.app.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.event.OrderPlacedEvent;
+
+@Getter
+@RequiredArgsConstructor
+public enum OutboxEventType {
+    ORDER_PLACED(OrderPlacedEvent.class);
+
+    private final Class<?> eventClass;
+}
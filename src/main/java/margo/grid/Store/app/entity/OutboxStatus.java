@@ -0,0 +1,5 @@
+package margo.grid.store.app.entity;
+
+public enum OutboxStatus {
+    PENDING, PROCESSED, FAILED
+}
@@ -0,0 +1,34 @@
+package margo.grid.store.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "rate_limit_buckets",
+        indexes = @Index(name = "idx_rate_limit_buckets_refilled_at", columnList = "refilled_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RateLimitBucket {
+
+    @Id
+    @Column(name = "client_key")
+    private Long clientKey;
+
+    @Column(nullable = false)
+    private int tokens;
+
+    /**
+     * Epoch milliseconds of the last refill; tokens come back one per interval counted from here.
+     */
+    @Column(nullable = false, name = "refilled_at")
+    private long refilledAt;
+
+    /**
+     * Bumped by every lease taken from the bucket.
+     */
+    @Version
+    private Long version;
+}
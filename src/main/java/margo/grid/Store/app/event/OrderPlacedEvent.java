@@ -0,0 +1,10 @@
+package margo.grid.store.app.event;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Delivered from the outbox by a worker thread once the order has been committed, at least once.
+ */
+public record OrderPlacedEvent(UUID orderId, UUID userId, BigDecimal total) {
+}
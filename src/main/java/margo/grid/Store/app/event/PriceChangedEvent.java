@@ -0,0 +1,10 @@
+package margo.grid.store.app.event;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Published when the catalog notices, on reload, that the given items no longer have the price it served before.
+ */
+public record PriceChangedEvent(Set<UUID> itemIds) {
+}
@@ -0,0 +1,10 @@
+package margo.grid.store.app.event;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Published by the inventory when available quantities of the given items were written to the database.
+ */
+public record StockChangedEvent(Set<UUID> itemIds) {
+}
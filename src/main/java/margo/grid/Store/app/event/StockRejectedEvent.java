@@ -0,0 +1,10 @@
+package margo.grid.store.app.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the inventory when the database refused to take units that carts reserved in memory,
+ * so that reservations holding that many units of the item can be revoked.
+ */
+public record StockRejectedEvent(UUID itemId, int units) {
+}
@@ -0,0 +1,9 @@
+package margo.grid.store.app.exception;
+
+import java.util.UUID;
+
+public class OutOfStockException extends RuntimeException {
+    public OutOfStockException(UUID itemId) {
+        super("Item with id " + itemId + " is no longer in stock in the quantity of the cart");
+    }
+}
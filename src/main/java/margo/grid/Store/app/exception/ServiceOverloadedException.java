@@ -0,0 +1,7 @@
+package margo.grid.store.app.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
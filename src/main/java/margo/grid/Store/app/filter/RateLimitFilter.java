@@ -1,97 +1,107 @@
 package margo.grid.store.app.filter;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import margo.grid.store.app.config.RateLimitSettings;
+import margo.grid.store.app.repository.RateLimitStore;
+import margo.grid.store.app.utils.RateLimitResult;
+import margo.grid.store.app.utils.RateLimitRoutes;
+import margo.grid.store.app.utils.TokenBucketTable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
-import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Limits requests per client IP by the policy of the most specific {@code rate-limit.policies}
+ * route matching the path within the application; requests no route matches pass through. The
+ * buckets live in the {@link RateLimitStore} picked by {@code rate-limit.store}, and clients are
+ * keyed by a hash of the address, so identifying one allocates nothing here.
+ * <p>
+ * Limited responses carry {@code RateLimit-Limit}, {@code RateLimit-Remaining} and
+ * {@code RateLimit-Reset} (seconds until the bucket is full), and a rejection adds
+ * {@code Retry-After} (seconds until the next token). Decisions are counted in
+ * {@code rate-limit.requests}, tagged with the policy and the result.
+ */
 @Component
-@RequiredArgsConstructor
 public class RateLimitFilter extends OncePerRequestFilter {
-    private final Map<String, BucketEntry> buckets = new ConcurrentHashMap<>();
     private final RateLimitSettings settings;
+    private final RateLimitStore rateLimitStore;
+    private final RateLimitRoutes routes;
+    private final Map<String, Counter> allowed = new HashMap<>();
+    private final Map<String, Counter> rejected = new HashMap<>();
 
-    private static class BucketEntry {
-        private final Bucket bucket;
-
-        @Getter
-        private volatile Instant lastAccessed;
-
-        public BucketEntry(Bucket bucket) {
-            this.bucket = bucket;
-            this.lastAccessed = Instant.now();
-        }
-
-        public Bucket getBucket() {
-            this.lastAccessed = Instant.now();
-            return bucket;
+    public RateLimitFilter(RateLimitSettings settings, RateLimitStore rateLimitStore, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.rateLimitStore = rateLimitStore;
+        this.routes = RateLimitRoutes.compile(settings.getPolicies());
+        for (String policy : settings.getPolicies().keySet()) {
+            allowed.put(policy, requestCounter(meterRegistry, policy, "allowed"));
+            rejected.put(policy, requestCounter(meterRegistry, policy, "rejected"));
         }
     }
 
-    @Scheduled(fixedRateString = "#{rateLimitSettings.cleanupInterval.toMillis()}")
-    public void cleanOldBuckets(){
-        buckets.entrySet().removeIf(entry ->
-                entry.getValue()
-                        .getLastAccessed()
-                        .isBefore(Instant.now()
-                                .minus(settings.getCleanupInterval())));
+    private static Counter requestCounter(MeterRegistry meterRegistry, String policy, String result) {
+        return Counter.builder("rate-limit.requests")
+                .tag("policy", policy)
+                .tag("result", result)
+                .description("Requests checked against a rate-limit policy")
+                .register(meterRegistry);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        if (!settings.isEnabled() || !shouldApplyRateLimit(request.getServletPath())) {
+        String policy = settings.isEnabled()
+                ? routes.match(request.getMethod(), request.getRequestURI(), request.getContextPath())
+                : null;
+        if (policy == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String clientId = getClientId(request);
-        BucketEntry bucketEntry = buckets.computeIfAbsent(clientId, this::createNewBucketEntry);
-
-        if(bucketEntry.getBucket().tryConsume(1)) filterChain.doFilter(request, response);
-        else {
+        RateLimitResult result = rateLimitStore.tryConsume(policy, clientKey(request));
+        response.setHeader("RateLimit-Limit", Integer.toString(result.limit()));
+        response.setHeader("RateLimit-Remaining", Integer.toString(result.remaining()));
+        response.setHeader("RateLimit-Reset", Long.toString(seconds(result.resetMillis())));
+        if (result.allowed()) {
+            allowed.get(policy).increment();
+            filterChain.doFilter(request, response);
+        } else {
+            rejected.get(policy).increment();
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.setContentType(MediaType.APPLICATION_JSON.getType());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, seconds(result.nextTokenMillis()))));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
             response.getWriter().write("{\"message\": \"Too many attempts. Try later!!!\"}");
         }
     }
 
-    private boolean shouldApplyRateLimit(String path) {
-        if (!path.startsWith("/store/auth")) return false;
-        for (String excludedPath : settings.getExcludedPaths()) {
-            if (path.contains(excludedPath)) return false;
-        }
-        return true;
-    }
-
-    private BucketEntry createNewBucketEntry(String clientId) {
-        return new BucketEntry(Bucket.builder()
-                .addLimit(Bandwidth.classic(settings.getMaxRequests(),
-                        Refill.greedy(settings.getMaxRequests(), settings.getRefillPeriod())))
-                .build());
+    private static long seconds(long millis) {
+        return (millis + 999) / 1000;
     }
 
-    private String getClientId(HttpServletRequest request) {
+    private static long clientKey(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+            int end = xForwardedFor.indexOf(',');
+            return trimmedHash(xForwardedFor, 0, end < 0 ? xForwardedFor.length() : end);
         }
         String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) return xRealIp;
-        return request.getRemoteAddr();
+        if (xRealIp != null && !xRealIp.isEmpty()) return TokenBucketTable.hash(xRealIp, 0, xRealIp.length());
+        String remoteAddr = request.getRemoteAddr();
+        return TokenBucketTable.hash(remoteAddr, 0, remoteAddr.length());
+    }
+
+    private static long trimmedHash(String value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') from++;
+        while (to > from && value.charAt(to - 1) <= ' ') to--;
+        return TokenBucketTable.hash(value, from, to);
     }
 }
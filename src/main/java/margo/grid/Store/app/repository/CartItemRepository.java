@@ -0,0 +1,24 @@
+package margo.grid.store.app.repository;
+
+import margo.grid.store.app.entity.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
+    Optional<CartItem> findByCartIdAndItemId(UUID cartId, UUID itemId);
+
+    List<CartItem> findAllByCartIdOrderByCreatedAtAsc(UUID cartId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.cartId = :cartId")
+    int deleteAllByCartId(@Param("cartId") UUID cartId);
+}
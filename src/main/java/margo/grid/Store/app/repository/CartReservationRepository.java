@@ -0,0 +1,13 @@
+package margo.grid.store.app.repository;
+
+import margo.grid.store.app.entity.CartReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CartReservationRepository extends JpaRepository<CartReservation, UUID> {
+    List<CartReservation> findAllByCartIdIn(Collection<String> cartIds);
+}
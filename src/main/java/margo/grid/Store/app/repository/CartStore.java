@@ -0,0 +1,30 @@
+package margo.grid.store.app.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface CartStore {
+    int getQuantity(UUID cartId, UUID itemId);
+
+    /**
+     * Sets the quantity of a cart line, appending the line if it is new. A quantity of zero removes it.
+     */
+    void setQuantity(UUID cartId, UUID itemId, int quantity);
+
+    /**
+     * Lines of the cart in the order they were first added.
+     */
+    List<CartLine> getLines(UUID cartId);
+
+    void clear(UUID cartId);
+
+    /**
+     * Whether changes made inside a transaction are rolled back together with it.
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+
+    record CartLine(UUID itemId, int quantity) {
+    }
+}
@@ -1,10 +1,46 @@
 package margo.grid.store.app.repository;
 
+import margo.grid.store.app.dto.ItemQuantityDto;
 import margo.grid.store.app.entity.Item;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface ItemRepository extends JpaRepository<Item, UUID> {
+public interface ItemRepository extends JpaRepository<Item, UUID>, ItemStockRepository {
+
+    Slice<Item> findAllBy(Pageable pageable);
+
+    @Query("SELECT i FROM Item i ORDER BY i.title, i.id")
+    List<Item> findFirstPage(Limit limit);
+
+    @Query("SELECT i FROM Item i WHERE i.title > :title OR (i.title = :title AND i.id > :id) ORDER BY i.title, i.id")
+    List<Item> findPageAfter(@Param("title") String title, @Param("id") UUID id, Limit limit);
+
+    @Query("SELECT new margo.grid.store.app.dto.ItemQuantityDto(i.id, CAST(i.availableQuantity AS Long)) " +
+            "FROM Item i WHERE i.id IN :ids")
+    List<ItemQuantityDto> findAvailableQuantities(@Param("ids") Collection<UUID> ids);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.availableQuantity = i.availableQuantity - :quantity, " +
+            "i.version = i.version + 1, i.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE i.id = :id AND i.availableQuantity >= :quantity")
+    int reserveStock(@Param("id") UUID id, @Param("quantity") int quantity);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.availableQuantity = i.availableQuantity + :quantity, " +
+            "i.version = i.version + 1, i.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE i.id = :id")
+    int releaseStock(@Param("id") UUID id, @Param("quantity") int quantity);
 }
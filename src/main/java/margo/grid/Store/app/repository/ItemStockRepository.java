@@ -0,0 +1,13 @@
+package margo.grid.store.app.repository;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface ItemStockRepository {
+    /**
+     * Adds the given quantities to the available quantity of their items with one multi-row update.
+     *
+     * @return the number of updated items
+     */
+    int addStock(Map<UUID, Integer> quantities);
+}
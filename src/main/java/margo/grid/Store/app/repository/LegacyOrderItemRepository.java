@@ -0,0 +1,15 @@
+package margo.grid.store.app.repository;
+
+import margo.grid.store.app.entity.LegacyOrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface LegacyOrderItemRepository extends JpaRepository<LegacyOrderItem, LegacyOrderItem.Key> {
+
+    @Query("SELECT l FROM LegacyOrderItem l " +
+            "WHERE NOT EXISTS (SELECT 1 FROM OrderLine ol WHERE ol.order.id = l.orderId)")
+    List<LegacyOrderItem> findWithoutOrderLines();
+}
@@ -1,14 +1,68 @@
 package margo.grid.store.app.repository;
 
+import margo.grid.store.app.dto.ItemQuantityDto;
+import margo.grid.store.app.dto.OrderSummaryDto;
 import margo.grid.store.app.entity.Order;
 import margo.grid.store.app.entity.OrderStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
-    Page<Order> findOrdersByUser_IdAndStatus_(UUID userId, OrderStatus status, Pageable pageable);
+    @Query(value = "SELECT new margo.grid.store.app.dto.OrderSummaryDto(o.id, o.createdAt, o.status, o.total) " +
+            "FROM Order o WHERE o.user.id = :userId AND o.status = :status",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId AND o.status = :status")
+    Page<OrderSummaryDto> findOrderSummaries(@Param("userId") UUID userId, @Param("status") OrderStatus status,
+                                             Pageable pageable);
+
+    @Query("SELECT new margo.grid.store.app.dto.OrderSummaryDto(o.id, o.createdAt, o.status, o.total) " +
+            "FROM Order o WHERE o.user.id = :userId AND o.status = :status")
+    Slice<OrderSummaryDto> findOrderSummarySlice(@Param("userId") UUID userId, @Param("status") OrderStatus status,
+                                                 Pageable pageable);
+
+    Optional<Order> findByIdempotencyKey(UUID idempotencyKey);
+
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids AND o.user.id = :userId AND o.status = :status")
+    List<UUID> findIdsByUser(@Param("ids") Collection<UUID> ids, @Param("userId") UUID userId,
+                             @Param("status") OrderStatus status);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1, o.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE o.id IN :ids AND o.status = :from")
+    int updateStatus(@Param("ids") Collection<UUID> ids, @Param("from") OrderStatus from,
+                     @Param("to") OrderStatus to);
+
+    @Query("SELECT new margo.grid.store.app.dto.ItemQuantityDto(l.item.id, SUM(l.quantity)) " +
+            "FROM OrderLine l WHERE l.order.id IN :orderIds GROUP BY l.item.id")
+    List<ItemQuantityDto> sumQuantitiesByItem(@Param("orderIds") Collection<UUID> orderIds);
+
+    long countByUser_IdAndStatus(UUID userId, OrderStatus status);
+
+    @Query("SELECT new margo.grid.store.app.dto.OrderSummaryDto(o.id, o.createdAt, o.status, o.total) " +
+            "FROM Order o WHERE o.user.id = :userId AND o.status = :status " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDto> findFirstOrderSummaries(@Param("userId") UUID userId, @Param("status") OrderStatus status,
+                                                  Limit limit);
+
+    @Query("SELECT new margo.grid.store.app.dto.OrderSummaryDto(o.id, o.createdAt, o.status, o.total) " +
+            "FROM Order o WHERE o.user.id = :userId AND o.status = :status " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDto> findOrderSummariesAfter(@Param("userId") UUID userId, @Param("status") OrderStatus status,
+                                                  @Param("createdAt") Timestamp createdAt, @Param("id") UUID id,
+                                                  Limit limit);
 }
@@ -0,0 +1,51 @@
+package margo.grid.store.app.repository;
+
+import margo.grid.store.app.entity.OutboxEvent;
+import margo.grid.store.app.entity.OutboxStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = :status " +
+            "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.createdAt, e.id")
+    List<UUID> findUnclaimedIds(@Param("status") OutboxStatus status, @Param("now") Timestamp now, Limit limit);
+
+    /**
+     * Claims those of the given events that are still unclaimed. Concurrent claims of the same row
+     * are serialized by its row lock, so only one of them matches it.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimToken = :token, e.claimedUntil = :until " +
+            "WHERE e.id IN :ids AND e.status = :status AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<UUID> ids, @Param("status") OutboxStatus status,
+              @Param("now") Timestamp now, @Param("token") UUID token, @Param("until") Timestamp until);
+
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.id IN :ids AND e.claimToken = :token ORDER BY e.createdAt, e.id")
+    List<UUID> findClaimedIds(@Param("ids") Collection<UUID> ids, @Param("token") UUID token);
+
+    long countByStatus(OutboxStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = margo.grid.store.app.entity.OutboxStatus.PENDING, " +
+            "e.attempts = 0, e.lastError = NULL, e.processedAt = NULL, e.claimToken = NULL, e.claimedUntil = NULL " +
+            "WHERE e.status = :status AND e.createdAt >= :since")
+    int requeue(@Param("status") OutboxStatus status, @Param("since") Timestamp since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = margo.grid.store.app.entity.OutboxStatus.PROCESSED " +
+            "AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") Timestamp before);
+}
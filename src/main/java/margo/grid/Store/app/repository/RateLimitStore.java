@@ -0,0 +1,13 @@
+package margo.grid.store.app.repository;
+
+import margo.grid.store.app.utils.RateLimitResult;
+
+public interface RateLimitStore {
+    /**
+     * Takes a token from the client's bucket of the named policy if it has one. Clients are 64-bit
+     * keys, see {@link margo.grid.store.app.utils.TokenBucketTable#hash}.
+     *
+     * @throws IllegalArgumentException if {@code rate-limit.policies} has no such policy
+     */
+    RateLimitResult tryConsume(String policy, long clientKey);
+}
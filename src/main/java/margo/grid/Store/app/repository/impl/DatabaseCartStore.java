@@ -0,0 +1,58 @@
+package margo.grid.store.app.repository.impl;
+
+import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.entity.CartItem;
+import margo.grid.store.app.repository.CartItemRepository;
+import margo.grid.store.app.repository.CartStore;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps carts in the {@code cart_items} table so they survive restarts and are visible to every node.
+ */
+@RequiredArgsConstructor
+public class DatabaseCartStore implements CartStore {
+    private final CartItemRepository cartItemRepository;
+
+    @Override
+    public int getQuantity(UUID cartId, UUID itemId) {
+        return cartItemRepository.findByCartIdAndItemId(cartId, itemId)
+                .map(CartItem::getQuantity)
+                .orElse(0);
+    }
+
+    @Override
+    @Transactional
+    public void setQuantity(UUID cartId, UUID itemId, int quantity) {
+        cartItemRepository.findByCartIdAndItemId(cartId, itemId).ifPresentOrElse(
+                cartItem -> {
+                    if (quantity == 0) cartItemRepository.delete(cartItem);
+                    else cartItem.setQuantity(quantity);
+                },
+                () -> {
+                    if (quantity != 0) cartItemRepository.save(CartItem.builder()
+                            .cartId(cartId)
+                            .itemId(itemId)
+                            .quantity(quantity)
+                            .build());
+                });
+    }
+
+    @Override
+    public List<CartLine> getLines(UUID cartId) {
+        return cartItemRepository.findAllByCartIdOrderByCreatedAtAsc(cartId).stream()
+                .map(cartItem -> new CartLine(cartItem.getItemId(), cartItem.getQuantity()))
+                .toList();
+    }
+
+    @Override
+    public void clear(UUID cartId) {
+        cartItemRepository.deleteAllByCartId(cartId);
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+}
@@ -0,0 +1,257 @@
+package margo.grid.store.app.repository.impl;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.RateLimitSettings;
+import margo.grid.store.app.repository.RateLimitBucketRepository;
+import margo.grid.store.app.repository.RateLimitStore;
+import margo.grid.store.app.utils.ExpiringCache;
+import margo.grid.store.app.utils.RateLimitResult;
+import margo.grid.store.app.utils.TokenBucketTable;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the buckets in the {@code rate_limit_buckets} table so that all nodes share one limit per
+ * client and policy, each row keyed by a hash of both. A node does not go to the database for every
+ * request: it takes a lease of several tokens at once, sized per policy by its {@code lease-tokens} or
+ * else by what the policy refills during {@code rate-limit.lease-duration}, spends them locally for
+ * at most {@code rate-limit.lease-duration}, and after finding a bucket empty it refuses the client
+ * locally until the next token is due. Leased tokens count as consumed, so a client never gets more
+ * than the shared limit, but an unused lease can refuse it up to {@code lease-tokens - 1} requests
+ * early on another node. Leases are taken over a pool of {@code rate-limit.database-pool-size}
+ * connections of their own, so neither waiting for a connection nor the queries of a lease can take
+ * longer than {@code rate-limit.database-timeout}, and a lease never waits behind the rest of the
+ * application for a connection. When a lease request fails the node falls back to its own buckets
+ * and does not try the database again for {@code rate-limit.fallback-duration}, so an outage costs
+ * the requests that were already waiting for the database one timeout per window, not every request.
+ */
+@Slf4j
+public class DatabaseRateLimitStore implements RateLimitStore {
+    // a derived lease holds at most this share of the bucket, so other nodes are not starved by it
+    private static final int MAX_LEASE_SHARE = 10;
+
+    private final RateLimitBucketRepository bucketRepository;
+    private final DataSource leaseDataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RateLimitSettings settings;
+    private final RateLimitStore fallback;
+    private final ExpiringCache<Long, Lease> leases;
+    private final Map<String, Limit> limits = new HashMap<>();
+    private final LongSupplier currentTimeMillis;
+    private final long longestRefillMillis;
+    private final Counter grantedLeases;
+    private final Counter deniedLeases;
+    private final Counter failedLeases;
+    private volatile long fallbackUntil;
+
+    private record Limit(long salt, int maxTokens, long refillMillis, int leaseTokens) {
+    }
+
+    private record Grant(int tokens, int left, long nextTokenAt, long fullAt) {
+    }
+
+    private record Bucket(int tokens, long refilledAt) {
+    }
+
+    // what the bucket looked like when the lease was taken, tokens left in it included
+    private static final class Lease {
+        private int tokens;
+        private int shared;
+        private long expiresAt;
+        private long deniedUntil;
+        private long nextTokenAt;
+        private long fullAt;
+
+        RateLimitResult result(boolean allowed, int limit, long now) {
+            return new RateLimitResult(allowed, limit, allowed ? tokens + shared : 0,
+                    Math.max(0, nextTokenAt - now), Math.max(0, fullAt - now));
+        }
+    }
+
+    public DatabaseRateLimitStore(RateLimitBucketRepository bucketRepository,
+                                  DataSourceProperties dataSourceProperties,
+                                  RateLimitSettings settings, MeterRegistry meterRegistry) {
+        this(bucketRepository, leasePool(dataSourceProperties, settings, meterRegistry), settings, meterRegistry,
+                System::currentTimeMillis);
+    }
+
+    /**
+     * @param leaseDataSource the connections leases are taken over, closed with the store
+     */
+    DatabaseRateLimitStore(RateLimitBucketRepository bucketRepository, DataSource leaseDataSource,
+                           RateLimitSettings settings, MeterRegistry meterRegistry, LongSupplier currentTimeMillis) {
+        this.bucketRepository = bucketRepository;
+        this.leaseDataSource = leaseDataSource;
+        this.jdbcTemplate = new JdbcTemplate(leaseDataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(leaseDataSource));
+        // the timeout also bounds the statements in the transaction, waiting for the bucket's row lock included
+        this.transactionTemplate.setTimeout(timeoutSeconds(settings.getDatabaseTimeout()));
+        this.settings = settings;
+        this.fallback = new InMemoryRateLimitStore(settings);
+        this.currentTimeMillis = currentTimeMillis;
+        long longestRefill = 0;
+        long longestTokenInterval = 0;
+        for (Map.Entry<String, RateLimitSettings.Policy> entry : settings.getPolicies().entrySet()) {
+            RateLimitSettings.Policy policy = entry.getValue();
+            long refillMillis = Math.max(1, policy.getRefillPeriod().toMillis() / policy.getMaxRequests());
+            String name = entry.getKey();
+            limits.put(name, new Limit(TokenBucketTable.hash(name, 0, name.length()), policy.getMaxRequests(),
+                    refillMillis, leaseTokens(policy, settings.getLeaseDuration())));
+            longestRefill = Math.max(longestRefill, policy.getRefillPeriod().toMillis());
+            longestTokenInterval = Math.max(longestTokenInterval, refillMillis);
+        }
+        this.longestRefillMillis = longestRefill;
+        Duration ttl = Duration.ofMillis(Math.max(settings.getLeaseDuration().toMillis(), longestTokenInterval));
+        this.leases = new ExpiringCache<>("rate-limit.leases", settings.getMaxClients(), ttl, meterRegistry,
+                () -> currentTimeMillis.getAsLong() * 1_000_000, (stale, fresh) -> { });
+        this.grantedLeases = leaseCounter(meterRegistry, "granted", "Leases of at least one token");
+        this.deniedLeases = leaseCounter(meterRegistry, "denied", "Lease requests that found the bucket empty");
+        this.failedLeases = leaseCounter(meterRegistry, "failed", "Lease requests the database did not answer");
+    }
+
+    // the application's pool waits 30 seconds for a connection by default, this one no longer than a lease may take
+    static HikariDataSource leasePool(DataSourceProperties dataSourceProperties, RateLimitSettings settings,
+                                       MeterRegistry meterRegistry) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("rate-limit");
+        pool.setMaximumPoolSize(settings.getDatabasePoolSize());
+        pool.setMinimumIdle(0);
+        pool.setConnectionTimeout(Math.max(250, settings.getDatabaseTimeout().toMillis()));
+        pool.setValidationTimeout(Math.max(250, settings.getDatabaseTimeout().toMillis()));
+        // the application starts, limiting on its own, while the database is down
+        pool.setInitializationFailTimeout(-1);
+        pool.setMetricRegistry(meterRegistry);
+        return pool;
+    }
+
+    private static int timeoutSeconds(Duration timeout) {
+        return (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+    }
+
+    private static int leaseTokens(RateLimitSettings.Policy policy, Duration leaseDuration) {
+        int maxTokens = policy.getMaxRequests();
+        if (policy.getLeaseTokens() != null) return Math.min(policy.getLeaseTokens(), maxTokens);
+        long refilled = leaseDuration.toMillis() * maxTokens / Math.max(1, policy.getRefillPeriod().toMillis());
+        return (int) Math.max(1, Math.min(refilled, maxTokens / MAX_LEASE_SHARE));
+    }
+
+    private static Counter leaseCounter(MeterRegistry meterRegistry, String result, String description) {
+        return Counter.builder("rate-limit.leases")
+                .tag("result", result)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public RateLimitResult tryConsume(String policy, long clientKey) {
+        Limit limit = limits.get(policy);
+        if (limit == null) throw new IllegalArgumentException("Unknown rate limit policy " + policy);
+        long bucketKey = bucketKey(limit, clientKey);
+        Lease lease = leases.get(bucketKey, key -> new Lease());
+        synchronized (lease) {
+            long now = currentTimeMillis.getAsLong();
+            if (lease.tokens > 0 && now < lease.expiresAt) {
+                lease.tokens--;
+                return lease.result(true, limit.maxTokens(), now);
+            }
+            if (now < lease.deniedUntil) return lease.result(false, limit.maxTokens(), now);
+            if (now < fallbackUntil) return fallback.tryConsume(policy, clientKey);
+
+            Grant grant;
+            try {
+                grant = takeLease(limit, bucketKey, now);
+            } catch (DataAccessException | TransactionException e) {
+                failedLeases.increment();
+                fallbackUntil = now + settings.getFallbackDuration().toMillis();
+                log.warn("Rate limit buckets are unavailable, limiting on this node only for {}: {}",
+                        settings.getFallbackDuration(), e.getMessage());
+                return fallback.tryConsume(policy, clientKey);
+            }
+            lease.shared = grant.left();
+            lease.nextTokenAt = grant.nextTokenAt();
+            lease.fullAt = grant.fullAt();
+            if (grant.tokens() == 0) {
+                deniedLeases.increment();
+                lease.tokens = 0;
+                lease.deniedUntil = grant.nextTokenAt();
+                return lease.result(false, limit.maxTokens(), now);
+            }
+            grantedLeases.increment();
+            lease.tokens = grant.tokens() - 1;
+            lease.expiresAt = now + settings.getLeaseDuration().toMillis();
+            return lease.result(true, limit.maxTokens(), now);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        if (leaseDataSource instanceof AutoCloseable pool) pool.close();
+    }
+
+    /**
+     * Deletes the buckets that have been full for the longest refill period of all policies.
+     */
+    @Scheduled(fixedDelayString = "#{rateLimitSettings.purgeInterval.toMillis()}")
+    public void purgeRefilled() {
+        int purged = bucketRepository.deleteRefilledBefore(currentTimeMillis.getAsLong() - longestRefillMillis);
+        if (purged > 0) log.debug("Purged {} refilled rate limit buckets", purged);
+    }
+
+    private Grant takeLease(Limit limit, long bucketKey, long now) {
+        try {
+            return transactionTemplate.execute(status -> lease(limit, bucketKey, now));
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            // another node created the bucket first, it is there to lock now
+            return transactionTemplate.execute(status -> lease(limit, bucketKey, now));
+        }
+    }
+
+    // same refill arithmetic as TokenBucketTable, in epoch milliseconds so that all nodes agree on it
+    private Grant lease(Limit limit, long bucketKey, long now) {
+        int maxTokens = limit.maxTokens();
+        long refillMillis = limit.refillMillis();
+        List<Bucket> found = jdbcTemplate.query(
+                "SELECT tokens, refilled_at FROM rate_limit_buckets WHERE client_key = ? FOR UPDATE",
+                (row, index) -> new Bucket(row.getInt("tokens"), row.getLong("refilled_at")), bucketKey);
+        Bucket bucket = found.isEmpty() ? new Bucket(maxTokens, now) : found.getFirst();
+        long refills = Math.max(0, now - bucket.refilledAt()) / refillMillis;
+        int tokens = (int) Math.min(maxTokens, bucket.tokens() + refills);
+        long refilledAt = tokens == maxTokens ? now : bucket.refilledAt() + refills * refillMillis;
+        int granted = Math.min(tokens, limit.leaseTokens());
+        int left = tokens - granted;
+        if (found.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO rate_limit_buckets (client_key, tokens, refilled_at, version) "
+                    + "VALUES (?, ?, ?, 0)", bucketKey, left, refilledAt);
+        } else {
+            jdbcTemplate.update("UPDATE rate_limit_buckets SET tokens = ?, refilled_at = ?, version = version + 1 "
+                    + "WHERE client_key = ?", left, refilledAt, bucketKey);
+        }
+        return new Grant(granted, left, refilledAt + refillMillis, refilledAt + (maxTokens - left) * refillMillis);
+    }
+
+    private static long bucketKey(Limit limit, long clientKey) {
+        long key = clientKey ^ limit.salt();
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,109 @@
+package margo.grid.store.app.repository.impl;
+
+import margo.grid.store.app.repository.CartStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every cart as a pair of primitive arrays instead of a boxed {@code Map<UUID, Integer>}:
+ * item ids are stored as their two {@code long} halves and quantities as {@code int}s, so a cart
+ * with a few lines costs a handful of objects regardless of how many lines it has.
+ */
+public class InMemoryCartStore implements CartStore {
+    private final Map<UUID, CompactCart> carts = new ConcurrentHashMap<>();
+
+    static final class CompactCart {
+        private static final int INITIAL_CAPACITY = 2;
+
+        private long[] itemIds = new long[INITIAL_CAPACITY * 2];
+        private int[] quantities = new int[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized int getQuantity(UUID itemId) {
+            int index = indexOf(itemId);
+            return index < 0 ? 0 : quantities[index];
+        }
+
+        synchronized void setQuantity(UUID itemId, int quantity) {
+            int index = indexOf(itemId);
+            if (index >= 0) {
+                if (quantity == 0) remove(index);
+                else quantities[index] = quantity;
+            } else if (quantity != 0) {
+                append(itemId, quantity);
+            }
+        }
+
+        synchronized List<CartLine> lines() {
+            List<CartLine> lines = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                lines.add(new CartLine(new UUID(itemIds[2 * i], itemIds[2 * i + 1]), quantities[i]));
+            }
+            return lines;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int indexOf(UUID itemId) {
+            long most = itemId.getMostSignificantBits();
+            long least = itemId.getLeastSignificantBits();
+            for (int i = 0; i < size; i++) {
+                if (itemIds[2 * i] == most && itemIds[2 * i + 1] == least) return i;
+            }
+            return -1;
+        }
+
+        private void append(UUID itemId, int quantity) {
+            if (size == quantities.length) {
+                int capacity = size + (size >> 1) + 1;
+                itemIds = Arrays.copyOf(itemIds, capacity * 2);
+                quantities = Arrays.copyOf(quantities, capacity);
+            }
+            itemIds[2 * size] = itemId.getMostSignificantBits();
+            itemIds[2 * size + 1] = itemId.getLeastSignificantBits();
+            quantities[size++] = quantity;
+        }
+
+        private void remove(int index) {
+            int moved = size - index - 1;
+            System.arraycopy(itemIds, 2 * (index + 1), itemIds, 2 * index, moved * 2);
+            System.arraycopy(quantities, index + 1, quantities, index, moved);
+            size--;
+        }
+    }
+
+    @Override
+    public int getQuantity(UUID cartId, UUID itemId) {
+        CompactCart cart = carts.get(cartId);
+        return cart == null ? 0 : cart.getQuantity(itemId);
+    }
+
+    @Override
+    public void setQuantity(UUID cartId, UUID itemId, int quantity) {
+        carts.compute(cartId, (id, cart) -> {
+            if (cart == null) {
+                if (quantity == 0) return null;
+                cart = new CompactCart();
+            }
+            cart.setQuantity(itemId, quantity);
+            return cart.isEmpty() ? null : cart;
+        });
+    }
+
+    @Override
+    public List<CartLine> getLines(UUID cartId) {
+        CompactCart cart = carts.get(cartId);
+        return cart == null ? List.of() : cart.lines();
+    }
+
+    @Override
+    public void clear(UUID cartId) {
+        carts.remove(cartId);
+    }
+}
@@ -0,0 +1,47 @@
+package margo.grid.store.app.repository.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import margo.grid.store.app.config.RateLimitSettings;
+import margo.grid.store.app.repository.RateLimitStore;
+import margo.grid.store.app.utils.RateLimitResult;
+import margo.grid.store.app.utils.TokenBucketTable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buckets of this node only, one {@link TokenBucketTable} of {@code rate-limit.max-clients} per
+ * policy, so with several nodes every one of them lets a client through the whole limit. Bound to a
+ * registry it reports {@code rate-limit.buckets} and {@code rate-limit.evictions} per policy.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore, MeterBinder {
+    private final Map<String, TokenBucketTable> buckets = new HashMap<>();
+
+    public InMemoryRateLimitStore(RateLimitSettings settings) {
+        settings.getPolicies().forEach((name, policy) -> buckets.put(name, new TokenBucketTable(
+                settings.getMaxClients(), policy.getMaxRequests(), policy.getRefillPeriod())));
+    }
+
+    @Override
+    public RateLimitResult tryConsume(String policy, long clientKey) {
+        TokenBucketTable table = buckets.get(policy);
+        if (table == null) throw new IllegalArgumentException("Unknown rate limit policy " + policy);
+        return table.consume(clientKey);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        buckets.forEach((policy, table) -> {
+            Gauge.builder("rate-limit.buckets", table, TokenBucketTable::size)
+                    .tag("policy", policy)
+                    .description("Clients with a bucket in the table")
+                    .register(meterRegistry);
+            FunctionCounter.builder("rate-limit.evictions", table, TokenBucketTable::evictions)
+                    .tag("policy", policy)
+                    .description("Buckets dropped before they refilled to make room for a new client")
+                    .register(meterRegistry);
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package margo.grid.store.app.repository.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.repository.ItemStockRepository;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds {@code UPDATE items SET available_quantity = available_quantity + CASE id WHEN ... END WHERE id IN (...)},
+ * split into chunks so the statement stays within the driver's parameter limits.
+ */
+public class ItemStockRepositoryImpl implements ItemStockRepository {
+    private static final int ITEMS_PER_STATEMENT = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int addStock(Map<UUID, Integer> quantities) {
+        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        int updated = 0;
+        for (int from = 0; from < entries.size(); from += ITEMS_PER_STATEMENT) {
+            updated += addStock(entries.subList(from, Math.min(from + ITEMS_PER_STATEMENT, entries.size())));
+        }
+        entityManager.clear();
+        return updated;
+    }
+
+    private int addStock(List<Map.Entry<UUID, Integer>> chunk) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Item> update = builder.createCriteriaUpdate(Item.class);
+        Root<Item> item = update.from(Item.class);
+
+        CriteriaBuilder.SimpleCase<UUID, Integer> added = builder.selectCase(item.get("id"));
+        List<UUID> itemIds = new ArrayList<>(chunk.size());
+        for (Map.Entry<UUID, Integer> entry : chunk) {
+            added.when(entry.getKey(), entry.getValue());
+            itemIds.add(entry.getKey());
+        }
+        update.set(item.<Integer>get("availableQuantity"),
+                builder.sum(item.get("availableQuantity"), added.otherwise(0)));
+        update.set(item.<Long>get("version"), builder.sum(item.get("version"), 1L));
+        update.set(item.<Timestamp>get("updatedAt"), builder.currentTimestamp());
+        update.where(item.get("id").in(itemIds));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -2,18 +2,25 @@ package margo.grid.store.app.service;
 
 import margo.grid.store.app.dto.CartDto;
 import margo.grid.store.app.dto.ItemToCartRequestDto;
-import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.repository.CartStore.CartLine;
+import margo.grid.store.app.utils.MyUserDetails;
 import java.util.List;
 import java.util.UUID;
 
 public interface CartService {
-    void addItem(ItemToCartRequestDto dto);
+    void addItem(ItemToCartRequestDto dto, MyUserDetails userDetails);
 
-    void modifyItem(ItemToCartRequestDto dto);
+    void modifyItem(ItemToCartRequestDto dto, MyUserDetails userDetails);
 
-    void removeItem(UUID id);
+    void removeItem(UUID id, MyUserDetails userDetails);
 
-    CartDto getCart();
+    CartDto getCart(MyUserDetails userDetails);
 
-    List<Item> getAllItemsInCart();
+    List<CartLine> getCartLines(MyUserDetails userDetails);
+
+    /**
+     * Consumes the reservations of the given lines, the ones the order was built from, and removes them
+     * from the cart. Lines added since then stay in the cart with their reservations.
+     */
+    void checkout(MyUserDetails userDetails, List<CartLine> lines);
 }
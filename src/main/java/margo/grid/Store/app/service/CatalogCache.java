@@ -0,0 +1,21 @@
+package margo.grid.store.app.service;
+
+import margo.grid.store.app.dto.ItemResponseDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Function;
+
+public interface CatalogCache {
+    ItemResponseDto getItem(UUID id, Function<UUID, ItemResponseDto> loader);
+
+    Page<ItemResponseDto> getPage(Pageable pageable, Function<Pageable, Page<ItemResponseDto>> loader);
+
+    void invalidateItems(Collection<UUID> itemIds);
+
+    /**
+     * Changes whenever anything the cache serves may have changed, so it can stand in for the content of every page.
+     */
+    long version();
+}
@@ -0,0 +1,14 @@
+package margo.grid.store.app.service;
+
+import java.util.function.LongSupplier;
+
+public interface CountEstimateService {
+
+    /**
+     * Returns the last known result of {@code counter} for the key. Only the first call for a key
+     * counts synchronously; afterwards the value is refreshed in the background while it is being read.
+     */
+    long estimate(String key, LongSupplier counter);
+
+    void invalidate(String key);
+}
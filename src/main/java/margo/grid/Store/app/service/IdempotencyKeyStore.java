@@ -0,0 +1,11 @@
+package margo.grid.store.app.service;
+
+import java.util.UUID;
+
+public interface IdempotencyKeyStore {
+    UUID requestKey(UUID userId, String idempotencyKey);
+
+    UUID findOrderId(UUID requestKey);
+
+    void remember(UUID requestKey, UUID orderId);
+}
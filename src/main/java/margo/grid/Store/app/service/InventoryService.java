@@ -0,0 +1,27 @@
+package margo.grid.store.app.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+public interface InventoryService {
+    void reserve(UUID itemId, int quantity);
+
+    void release(UUID itemId, int quantity);
+
+    int getAvailableQuantity(UUID itemId);
+
+    /**
+     * Returns stock to its items in the caller's transaction, bypassing pending deltas.
+     *
+     * @return the number of units returned
+     */
+    int restock(Map<UUID, Integer> quantities);
+
+    void flush();
+
+    /**
+     * Writes the pending changes of the given items only, in the caller's transaction if there is one.
+     */
+    void flush(Collection<UUID> itemIds);
+}
@@ -1,13 +1,23 @@
 package margo.grid.store.app.service;
 
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.ItemResponseDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.UUID;
 
 public interface ItemService {
     Page<ItemResponseDto> getItems(Pageable pageable);
 
+    Slice<ItemResponseDto> getItemSlice(Pageable pageable);
+
+    long estimateItemCount();
+
+    CursorPage<ItemResponseDto> getItemsAfter(String after, int size);
+
     ItemResponseDto getItemById(UUID id);
+
+    long getCatalogVersion();
 }
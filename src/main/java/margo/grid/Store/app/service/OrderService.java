@@ -1,19 +1,31 @@
 package margo.grid.store.app.service;
 
+import margo.grid.store.app.dto.CancellationResponseDto;
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.OrderResponseDto;
 import margo.grid.store.app.utils.MyUserDetails;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.UUID;
 
 public interface OrderService {
 
     OrderResponseDto getOrderById(UUID id, MyUserDetails user);
 
-    OrderResponseDto createOrder(MyUserDetails user);
+    OrderResponseDto createOrder(MyUserDetails user, String idempotencyKey);
 
     void cancelOrder(UUID id, MyUserDetails user);
 
+    CancellationResponseDto cancelOrders(Collection<UUID> ids, MyUserDetails user);
+
     Page<OrderResponseDto> getAllUserOrders(MyUserDetails user, Pageable pageable);
+
+    Slice<OrderResponseDto> getUserOrderSlice(MyUserDetails user, Pageable pageable);
+
+    long estimateUserOrderCount(MyUserDetails user);
+
+    CursorPage<OrderResponseDto> getUserOrdersAfter(MyUserDetails user, String after, int size);
 }
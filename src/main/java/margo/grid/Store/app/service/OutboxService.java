@@ -0,0 +1,25 @@
+package margo.grid.store.app.service;
+
+import margo.grid.store.app.entity.OutboxEventType;
+import margo.grid.store.app.entity.OutboxStatus;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+public interface OutboxService {
+    /**
+     * Stores the event in the caller's transaction, so it is delivered if and only if that transaction commits.
+     */
+    void append(OutboxEventType type, UUID aggregateId, Object event);
+
+    void dispatch();
+
+    /**
+     * Makes events of the given status created since the given moment pending again.
+     */
+    int replay(OutboxStatus status, Instant since);
+
+    Map<OutboxStatus, Long> backlog();
+
+    void purgeProcessed();
+}
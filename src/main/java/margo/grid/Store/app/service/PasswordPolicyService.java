@@ -0,0 +1,18 @@
+package margo.grid.store.app.service;
+
+import margo.grid.store.app.utils.PasswordPolicy;
+
+public interface PasswordPolicyService {
+    PasswordPolicy getPolicy();
+
+    /**
+     * Compiles the policy again from the common-password files and waits until it is in use.
+     */
+    PasswordPolicy reload();
+
+    /**
+     * Starts compiling the policy again in the background when a common-password file has changed since
+     * it was last read, without waiting for it.
+     */
+    void reloadIfChanged();
+}
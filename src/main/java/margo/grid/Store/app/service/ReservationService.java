@@ -0,0 +1,23 @@
+package margo.grid.store.app.service;
+
+import margo.grid.store.app.repository.CartStore.CartLine;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ReservationService {
+    void hold(String cartId, UUID itemId, int quantity);
+
+    void touch(String cartId, Collection<UUID> itemIds);
+
+    /**
+     * Consumes the reservations of the checked out lines, reserving again what a line no longer holds.
+     *
+     * @throws margo.grid.store.app.exception.OutOfStockException if a line cannot be reserved again
+     */
+    void consume(String cartId, List<CartLine> lines);
+
+    void reapExpiredReservations();
+
+    void flush();
+}
@@ -32,6 +32,7 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final ResetCodeRepository resetCodeRepository;
     private final PasswordEncoder passwordEncoder;
+    private final MyUserDetailsService userDetailsService;
 
     @Value("${reset-code.expiration-time}")
     private Duration resetCodeLifeDuration;
@@ -74,6 +75,7 @@ public class AuthServiceImpl implements AuthService {
         if(resetCodeRepository.existsByCodeAndExpiresAtAfter(dto.getResetCode(), LocalDateTime.now())){
             user.setPasswordHash(passwordEncoder.encode(dto.getNewPassword()));
             userRepository.save(user);
+            userDetailsService.evict(user.getEmail());
         }
     }
 }
@@ -1,136 +1,212 @@
 package margo.grid.store.app.service.impl;
 
 import jakarta.persistence.EntityNotFoundException;
-
+import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.config.CartSettings;
 import margo.grid.store.app.dto.CartDto;
 import margo.grid.store.app.dto.CartItemResponseDto;
 import margo.grid.store.app.dto.ItemToCartRequestDto;
 import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.event.PriceChangedEvent;
+import margo.grid.store.app.repository.CartStore;
+import margo.grid.store.app.repository.CartStore.CartLine;
 import margo.grid.store.app.repository.ItemRepository;
 import margo.grid.store.app.service.CartService;
-import org.springframework.context.annotation.Scope;
-import org.springframework.context.annotation.ScopedProxyMode;
+import margo.grid.store.app.service.ReservationService;
+import margo.grid.store.app.utils.MyUserDetails;
+import margo.grid.store.app.utils.RetryExecutor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.WebApplicationContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@Scope(value = WebApplicationContext.SCOPE_SESSION, proxyMode = ScopedProxyMode.TARGET_CLASS)
+@RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
-    private final Map<UUID, Integer> cartItems;
+    private final Map<UUID, CartSummary> summaries = new ConcurrentHashMap<>();
+    private final CartStore cartStore;
     private final ItemRepository itemRepository;
-
-
-    public CartServiceImpl(ItemRepository itemRepository) {
-        this.cartItems = new LinkedHashMap<>();
-        this.itemRepository = itemRepository;
+    private final ReservationService reservationService;
+    private final CartSettings cartSettings;
+    private final RetryExecutor retryExecutor;
+
+    /**
+     * A rendered cart together with the stored lines it was rendered from, lines of items that no
+     * longer exist included. It is served as long as the stored lines still match, and patched in
+     * place when a known line changes quantity.
+     */
+    private record CartSummary(List<CartLine> lines, CartDto cart) {
+
+        CartSummary withQuantity(UUID itemId, int quantity) {
+            List<CartItemResponseDto> items = cart.getItems();
+            List<CartLine> newLines = new ArrayList<>(lines.size());
+            List<CartItemResponseDto> newItems = new ArrayList<>(items.size());
+            BigDecimal totalPrice = BigDecimal.ZERO;
+            int totalQuantity = 0;
+            boolean found = false;
+            int rendered = 0;
+            for (CartLine line : lines) {
+                CartItemResponseDto item = rendered < items.size()
+                        && items.get(rendered).getItemId().equals(line.itemId()) ? items.get(rendered++) : null;
+                if (line.itemId().equals(itemId)) {
+                    found = true;
+                    if (quantity == 0) continue;
+                    line = new CartLine(itemId, quantity);
+                }
+                newLines.add(line);
+                if (item == null) continue;
+                item = toCartItemDto(line, item.getTitle(), item.getPrice(), newItems.size() + 1);
+                newItems.add(item);
+                totalPrice = totalPrice.add(item.getSubtotal());
+                totalQuantity += line.quantity();
+            }
+            return found ? new CartSummary(newLines, toCartDto(newItems, totalPrice, totalQuantity)) : null;
+        }
     }
 
     @Override
-    public void addItem(ItemToCartRequestDto dto) {
-        itemRepository.findById(dto.getItemId()).ifPresentOrElse(
-                foundItem -> {
-                    if (foundItem.getAvailableQuantity() < dto.getQuantity()) {
-                        throw new IllegalArgumentException("The requested quantity exceeded available quantity!");
-                    }
-                    cartItems.put(dto.getItemId(), dto.getQuantity());
-                    foundItem.setAvailableQuantity(foundItem.getAvailableQuantity() - dto.getQuantity());
-                    itemRepository.save(foundItem);
-                },
-                () -> {
-                    throw new EntityNotFoundException("Item with id: " + dto.getItemId() + " was not found");
-                }
-        );
+    public void addItem(ItemToCartRequestDto dto, MyUserDetails userDetails) {
+        UUID cartId = userDetails.getId();
+        retryExecutor.run(() -> {
+            int newQuantity = cartStore.getQuantity(cartId, dto.getItemId()) + dto.getQuantity();
+            reservationService.hold(cartId.toString(), dto.getItemId(), newQuantity);
+            setQuantity(cartId, dto.getItemId(), newQuantity);
+        });
     }
 
     @Override
-    public void modifyItem(ItemToCartRequestDto dto) {
-        Integer currentCartQuantity = cartItems.get(dto.getItemId());
-        if(currentCartQuantity == null){
-            throw new EntityNotFoundException("There is no item in the cart with id: " + dto.getItemId());
-        }
+    public void modifyItem(ItemToCartRequestDto dto, MyUserDetails userDetails) {
+        UUID cartId = userDetails.getId();
+        retryExecutor.run(() -> {
+            if (cartStore.getQuantity(cartId, dto.getItemId()) == 0) {
+                throw new EntityNotFoundException("There is no item in the cart with id: " + dto.getItemId());
+            }
+            reservationService.hold(cartId.toString(), dto.getItemId(), dto.getQuantity());
+            setQuantity(cartId, dto.getItemId(), dto.getQuantity());
+        });
+    }
 
-        itemRepository.findById(dto.getItemId()).ifPresentOrElse(
-                foundItem -> {
-                    int quantityDifference = dto.getQuantity() - currentCartQuantity;
-                    if (quantityDifference > 0 && foundItem.getAvailableQuantity() < quantityDifference) {
-                        throw new IllegalArgumentException("The requested quantity exceeded available quantity!");
-                    }
-                    cartItems.put(dto.getItemId(), dto.getQuantity());
-                    foundItem.setAvailableQuantity(foundItem.getAvailableQuantity() - quantityDifference);
-                    itemRepository.save(foundItem);
-                },
-                () -> {throw new EntityNotFoundException("Item with id: " + dto.getItemId() + " was not found");}
-        );
+    @Override
+    public void removeItem(UUID id, MyUserDetails userDetails) {
+        UUID cartId = userDetails.getId();
+        retryExecutor.run(() -> {
+            if (cartStore.getQuantity(cartId, id) == 0) {
+                throw new EntityNotFoundException("There is no item in the cart with id: " + id);
+            }
+            reservationService.hold(cartId.toString(), id, 0);
+            setQuantity(cartId, id, 0);
+        });
     }
 
     @Override
-    public void removeItem(UUID id) {
-        itemRepository.findById(id).ifPresentOrElse(item -> {
-                    Integer removedQuantity = cartItems.remove(id);
-                    if (removedQuantity == null) {
-                        throw new EntityNotFoundException("There is no item in the cart with id: " + id);
-                    }
-                    item.setAvailableQuantity(item.getAvailableQuantity() + removedQuantity);
-                    itemRepository.save(item);
-                },
-                () -> {throw new EntityNotFoundException("There is no item in the store with id: " + id);});
+    public CartDto getCart(MyUserDetails userDetails) {
+        UUID cartId = userDetails.getId();
+        List<CartLine> lines = cartStore.getLines(cartId);
+        List<UUID> itemIds = getItemIds(lines);
+        reservationService.touch(cartId.toString(), itemIds);
+
+        CartSummary summary = summaries.get(cartId);
+        if (summary != null && summary.lines().equals(lines)) return summary.cart();
+
+        summary = summarize(lines, itemIds);
+        if (summaries.size() >= cartSettings.getSummaryCacheSize()) evictOneSummary();
+        summaries.put(cartId, summary);
+        return summary.cart();
     }
 
     @Override
-    public CartDto getCart() {
-        List<CartItemResponseDto> items = getCartItemDtos();
-        return CartDto.builder()
-                .items(items)
-                .totalPrice(getTotalPrice(items))
-                .totalQuantity(getTotalQuantity(items))
-                .build();
+    public List<CartLine> getCartLines(MyUserDetails userDetails) {
+        return cartStore.getLines(userDetails.getId());
     }
 
     @Override
-    public List<Item> getAllItemsInCart(){
-        return itemRepository.findAllById(cartItems.keySet());
+    public void checkout(MyUserDetails userDetails, List<CartLine> lines) {
+        UUID cartId = userDetails.getId();
+        reservationService.consume(cartId.toString(), lines);
+        for (CartLine line : lines) {
+            cartStore.setQuantity(cartId, line.itemId(), 0);
+        }
+        summaries.remove(cartId);
+        if (cartStore.isTransactional() || !TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        // the order this checkout belongs to may still roll back, in which case the cart gets its lines back
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) return;
+                for (CartLine line : lines) {
+                    cartStore.setQuantity(cartId, line.itemId(), line.quantity());
+                }
+            }
+        });
     }
 
-    private BigDecimal getSubtotal(BigDecimal price, Integer quantity) {
-        return price.multiply(BigDecimal.valueOf(quantity));
+    @EventListener
+    public void onPriceChanged(PriceChangedEvent event) {
+        summaries.values().removeIf(summary -> summary.lines().stream()
+                .anyMatch(line -> event.itemIds().contains(line.itemId())));
     }
 
-    private List<CartItemResponseDto> getCartItemDtos(){
-        List<UUID> itemIds = new ArrayList<>(cartItems.keySet());
-        Map<UUID, Item> itemMap = itemRepository.findAllById(itemIds).stream()
-                .collect(Collectors.toMap(Item::getId, item -> item));
-
-       return itemIds.stream()
-                .map(itemId -> {
-                    Item item = itemMap.get(itemId);
-                    Integer quantity = cartItems.get(itemId);
-                    BigDecimal price = item.getPrice();
-                    int ordinal = itemIds.indexOf(itemId) + 1;
-
-                    return CartItemResponseDto.builder()
-                            .itemId(itemId)
-                            .title(item.getTitle())
-                            .price(price)
-                            .ordinal(ordinal)
-                            .quantity(quantity)
-                            .subtotal(getSubtotal(price, quantity))
-                            .build();
-                })
-                .toList();
+    private void setQuantity(UUID cartId, UUID itemId, int quantity) {
+        cartStore.setQuantity(cartId, itemId, quantity);
+        summaries.computeIfPresent(cartId, (id, summary) -> summary.withQuantity(itemId, quantity));
     }
 
-    private BigDecimal getTotalPrice(List<CartItemResponseDto> items) {
-        return items.stream()
-                .map(CartItemResponseDto::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private CartSummary summarize(List<CartLine> lines, List<UUID> itemIds) {
+        Map<UUID, Item> itemMap = HashMap.newHashMap(lines.size());
+        for (Item item : itemRepository.findAllById(itemIds)) {
+            itemMap.put(item.getId(), item);
+        }
+
+        List<CartItemResponseDto> items = new ArrayList<>(lines.size());
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        int totalQuantity = 0;
+        for (CartLine line : lines) {
+            Item item = itemMap.get(line.itemId());
+            if (item == null) continue;
+            CartItemResponseDto cartItem = toCartItemDto(line, item.getTitle(), item.getPrice(), items.size() + 1);
+            items.add(cartItem);
+            totalPrice = totalPrice.add(cartItem.getSubtotal());
+            totalQuantity += line.quantity();
+        }
+        return new CartSummary(List.copyOf(lines), toCartDto(items, totalPrice, totalQuantity));
     }
 
-    private int getTotalQuantity(List<CartItemResponseDto> items) {
-        return cartItems.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+    private void evictOneSummary() {
+        Iterator<UUID> cartIds = summaries.keySet().iterator();
+        if (cartIds.hasNext()) {
+            cartIds.next();
+            cartIds.remove();
+        }
+    }
+
+    private List<UUID> getItemIds(List<CartLine> lines) {
+        List<UUID> itemIds = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            itemIds.add(line.itemId());
+        }
+        return itemIds;
+    }
+
+    private static CartItemResponseDto toCartItemDto(CartLine line, String title, BigDecimal price, int ordinal) {
+        return CartItemResponseDto.builder()
+                .itemId(line.itemId())
+                .title(title)
+                .price(price)
+                .ordinal(ordinal)
+                .quantity(line.quantity())
+                .subtotal(price.multiply(BigDecimal.valueOf(line.quantity())))
+                .build();
+    }
+
+    private static CartDto toCartDto(List<CartItemResponseDto> items, BigDecimal totalPrice, int totalQuantity) {
+        return CartDto.builder()
+                .items(Collections.unmodifiableList(items))
+                .totalPrice(totalPrice)
+                .totalQuantity(totalQuantity)
+                .build();
     }
 }
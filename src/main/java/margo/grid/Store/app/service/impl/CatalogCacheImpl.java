@@ -0,0 +1,88 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import margo.grid.store.app.config.CatalogSettings;
+import margo.grid.store.app.dto.ItemResponseDto;
+import margo.grid.store.app.event.PriceChangedEvent;
+import margo.grid.store.app.event.StockChangedEvent;
+import margo.grid.store.app.service.CatalogCache;
+import margo.grid.store.app.utils.ExpiringCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Single items and whole catalog pages as served to anonymous browsing. Entries are dropped once
+ * the inventory has written a new available quantity of one of their items, and expire after
+ * {@code catalog.cache-ttl} so changes made directly in the database are picked up as well.
+ * The catalog version moves on with every invalidation and with every reload that differs from the
+ * entry it replaces, but not when an entry is loaded for the first time, since nothing served before
+ * has changed then; it starts from the boot time so versions of earlier runs are never reused.
+ */
+@Service
+public class CatalogCacheImpl implements CatalogCache {
+    private final ExpiringCache<UUID, ItemResponseDto> items;
+    private final ExpiringCache<Pageable, Page<ItemResponseDto>> pages;
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CatalogCacheImpl(CatalogSettings settings,
+                            ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.items = new ExpiringCache<>("catalog.items", settings.getItemCacheSize(), settings.getCacheTtl(),
+                meterRegistry, System::nanoTime, (stale, fresh) -> {
+                    if (stale != null) publishPriceChanges(List.of(stale), List.of(fresh));
+                    if (stale != null && !fresh.equals(stale)) version.incrementAndGet();
+                });
+        this.pages = new ExpiringCache<>("catalog.pages", settings.getPageCacheSize(), settings.getCacheTtl(),
+                meterRegistry, System::nanoTime, (stale, fresh) -> {
+                    if (stale != null) publishPriceChanges(stale.getContent(), fresh.getContent());
+                    if (stale != null && !fresh.equals(stale)) version.incrementAndGet();
+                });
+    }
+
+    @Override
+    public ItemResponseDto getItem(UUID id, Function<UUID, ItemResponseDto> loader) {
+        return items.get(id, loader);
+    }
+
+    @Override
+    public Page<ItemResponseDto> getPage(Pageable pageable, Function<Pageable, Page<ItemResponseDto>> loader) {
+        return pages.get(pageable, loader);
+    }
+
+    @Override
+    public void invalidateItems(Collection<UUID> itemIds) {
+        itemIds.forEach(items::invalidate);
+        pages.invalidateIf(page -> page.getContent().stream().anyMatch(item -> itemIds.contains(item.getId())));
+        version.incrementAndGet();
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        invalidateItems(event.itemIds());
+    }
+
+    private void publishPriceChanges(List<ItemResponseDto> stale, List<ItemResponseDto> fresh) {
+        Map<UUID, ItemResponseDto> staleById = HashMap.newHashMap(stale.size());
+        stale.forEach(item -> staleById.put(item.getId(), item));
+
+        Set<UUID> changed = new HashSet<>();
+        for (ItemResponseDto item : fresh) {
+            ItemResponseDto before = staleById.get(item.getId());
+            if (before != null && before.getPrice().compareTo(item.getPrice()) != 0) changed.add(item.getId());
+        }
+        if (!changed.isEmpty()) eventPublisher.publishEvent(new PriceChangedEvent(changed));
+    }
+}
@@ -0,0 +1,82 @@
+package margo.grid.store.app.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.config.PaginationSettings;
+import margo.grid.store.app.service.CountEstimateService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+@Service
+@RequiredArgsConstructor
+public class CountEstimateServiceImpl implements CountEstimateService {
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+    private final PaginationSettings settings;
+    private long refreshRun;
+
+    private static final class Estimate {
+        private final LongSupplier counter;
+        private volatile long value;
+        private volatile boolean read;
+        private long refreshedRun;
+
+        private Estimate(LongSupplier counter) {
+            this.counter = counter;
+            this.value = counter.getAsLong();
+        }
+    }
+
+    @Override
+    public long estimate(String key, LongSupplier counter) {
+        Estimate estimate = estimates.get(key);
+        if (estimate == null) {
+            if (estimates.size() >= settings.getCountCacheSize()) evictOne();
+            estimate = estimates.computeIfAbsent(key, k -> new Estimate(counter));
+        }
+        estimate.read = true;
+        return estimate.value;
+    }
+
+    @Override
+    public void invalidate(String key) {
+        estimates.remove(key);
+    }
+
+    /**
+     * Recounts up to {@code pagination.count-refresh-batch-size} estimates that were read since they were
+     * last counted, least recently counted first, and forgets the ones nobody asked for. The rest wait for
+     * the next run, so that one run does not hold up the other jobs of the scheduler for long.
+     */
+    @Scheduled(fixedDelayString = "#{paginationSettings.countRefreshInterval.toMillis()}")
+    public void refreshEstimates() {
+        List<Estimate> stale = new ArrayList<>();
+        for (Iterator<Estimate> it = estimates.values().iterator(); it.hasNext(); ) {
+            Estimate estimate = it.next();
+            if (estimate.read) stale.add(estimate);
+            else it.remove();
+        }
+        refreshRun++;
+        stale.stream()
+                .sorted(Comparator.comparingLong(estimate -> estimate.refreshedRun))
+                .limit(settings.getCountRefreshBatchSize())
+                .forEach(estimate -> {
+                    estimate.read = false;
+                    estimate.refreshedRun = refreshRun;
+                    estimate.value = estimate.counter.getAsLong();
+                });
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = estimates.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
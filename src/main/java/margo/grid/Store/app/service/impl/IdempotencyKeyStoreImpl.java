@@ -0,0 +1,46 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import margo.grid.store.app.config.CheckoutSettings;
+import margo.grid.store.app.service.IdempotencyKeyStore;
+import margo.grid.store.app.utils.ExpiringCache;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Orders placed recently, keyed by a 16 byte digest of the user id and the client's
+ * {@code Idempotency-Key}, so the raw header values are never kept. A retry served from here
+ * costs a single lookup of the order; keys that have expired or were placed through another
+ * instance are still caught by the unique {@code orders.idempotency_key} column.
+ */
+@Service
+public class IdempotencyKeyStoreImpl implements IdempotencyKeyStore {
+    private final ExpiringCache<UUID, UUID> orderIds;
+    private final CheckoutSettings settings;
+
+    public IdempotencyKeyStoreImpl(CheckoutSettings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.orderIds = new ExpiringCache<>("checkout.idempotency-keys", settings.getIdempotencyKeyCacheSize(),
+                settings.getIdempotencyKeyTtl(), meterRegistry);
+    }
+
+    @Override
+    public UUID requestKey(UUID userId, String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > settings.getMaxIdempotencyKeyLength()) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and "
+                    + settings.getMaxIdempotencyKeyLength() + " characters");
+        }
+        return UUID.nameUUIDFromBytes((userId + ":" + idempotencyKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public UUID findOrderId(UUID requestKey) {
+        return orderIds.getIfPresent(requestKey);
+    }
+
+    @Override
+    public void remember(UUID requestKey, UUID orderId) {
+        orderIds.put(requestKey, orderId);
+    }
+}
@@ -0,0 +1,353 @@
+package margo.grid.store.app.service.impl;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.InventorySettings;
+import margo.grid.store.app.dto.ItemQuantityDto;
+import margo.grid.store.app.event.StockChangedEvent;
+import margo.grid.store.app.event.StockRejectedEvent;
+import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.service.InventoryService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps available stock of recently touched items in memory so cart operations do not hit the
+ * {@code items} row on every click. Net changes are written back in one transaction per flush,
+ * which joins the caller's transaction so they commit (or roll back) together with the cart
+ * reservations they belong to. A counter is seeded from the database on first use, and every flush
+ * sets the counters it keeps back to what the database holds plus their unflushed delta, so stock
+ * other nodes reserved or returned reaches them too. Every flush
+ * publishes a {@link StockChangedEvent} so cached catalog entries of the flushed items get dropped.
+ * Stock returned in bulk by {@link #restock} is written straight to the database and added to the
+ * counters once that write has committed. Reserved units the database refuses to take are reported
+ * through a {@link StockRejectedEvent} so the reservations holding them do not outlive the stock.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryServiceImpl implements InventoryService {
+    private final Map<UUID, StockCounter> counters = new ConcurrentHashMap<>();
+    private final ItemRepository itemRepository;
+    private final TransactionOperations transactionTemplate;
+    private final InventorySettings settings;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int ITEMS_PER_QUERY = 500;
+
+    private record PendingDelta(UUID itemId, StockCounter counter, int delta) {
+    }
+
+    private record Written(List<PendingDelta> rejected, Map<UUID, Integer> available) {
+    }
+
+    /**
+     * Available quantity and the not yet flushed delta packed into one long, so both change in a single CAS.
+     */
+    static final class StockCounter {
+        private static final long RETIRED = Long.MIN_VALUE;
+
+        private final AtomicLong state;
+        private volatile boolean touched = true;
+        private int idleFlushes;
+
+        StockCounter(int available) {
+            this.state = new AtomicLong(pack(available, 0));
+        }
+
+        boolean tryReserve(int quantity) {
+            markTouched();
+            long current;
+            do {
+                current = state.get();
+                if (current == RETIRED) return false;
+                if (available(current) < quantity) {
+                    throw new IllegalArgumentException("The requested quantity exceeded available quantity!");
+                }
+            } while (!state.compareAndSet(current, pack(available(current) - quantity, pending(current) - quantity)));
+            return true;
+        }
+
+        boolean tryRelease(int quantity) {
+            markTouched();
+            long current;
+            do {
+                current = state.get();
+                if (current == RETIRED) return false;
+            } while (!state.compareAndSet(current, pack(available(current) + quantity, pending(current) + quantity)));
+            return true;
+        }
+
+        boolean tryAddAvailable(int quantity) {
+            markTouched();
+            long current;
+            do {
+                current = state.get();
+                if (current == RETIRED) return false;
+            } while (!state.compareAndSet(current, pack(available(current) + quantity, pending(current))));
+            return true;
+        }
+
+        int drainPending() {
+            long current;
+            do {
+                current = state.get();
+                if (current == RETIRED || pending(current) == 0) return 0;
+            } while (!state.compareAndSet(current, pack(available(current), 0)));
+            return pending(current);
+        }
+
+        void restorePending(int delta) {
+            state.getAndUpdate(current -> pack(available(current), pending(current) + delta));
+        }
+
+        void resync(int databaseAvailable) {
+            state.getAndUpdate(current -> pack(databaseAvailable + pending(current), pending(current)));
+        }
+
+        boolean isIdleFor(int flushes) {
+            if (touched) {
+                touched = false;
+                idleFlushes = 0;
+                return false;
+            }
+            return ++idleFlushes >= flushes;
+        }
+
+        boolean retire() {
+            long current = state.get();
+            return current != RETIRED && pending(current) == 0 && state.compareAndSet(current, RETIRED);
+        }
+
+        boolean isRetired() {
+            return state.get() == RETIRED;
+        }
+
+        int available() {
+            return available(state.get());
+        }
+
+        private void markTouched() {
+            if (!touched) touched = true;
+        }
+
+        private static long pack(int available, int pending) {
+            return ((long) available << 32) | (pending & 0xFFFFFFFFL);
+        }
+
+        private static int available(long state) {
+            return (int) (state >> 32);
+        }
+
+        private static int pending(long state) {
+            return (int) state;
+        }
+    }
+
+    @Override
+    public void reserve(UUID itemId, int quantity) {
+        StockCounter counter = counterFor(itemId);
+        while (!counter.tryReserve(quantity)) {
+            counter = reloadCounter(itemId, counter);
+        }
+    }
+
+    @Override
+    public void release(UUID itemId, int quantity) {
+        StockCounter counter = counterFor(itemId);
+        while (!counter.tryRelease(quantity)) {
+            counter = reloadCounter(itemId, counter);
+        }
+    }
+
+    @Override
+    public int getAvailableQuantity(UUID itemId) {
+        StockCounter counter = counterFor(itemId);
+        while (counter.isRetired()) {
+            counter = reloadCounter(itemId, counter);
+        }
+        return counter.available();
+    }
+
+    @Override
+    public int restock(Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) return 0;
+        // counters cached now hold the stock from before the update, any other one may or may not have seen it
+        Map<UUID, StockCounter> cached = HashMap.newHashMap(quantities.size());
+        quantities.keySet().forEach(itemId -> {
+            StockCounter counter = counters.get(itemId);
+            if (counter == null || counter.isRetired()) return;
+            counter.markTouched();
+            cached.put(itemId, counter);
+        });
+        itemRepository.addStock(quantities);
+        eventPublisher.publishEvent(new StockChangedEvent(quantities.keySet()));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyRestock(quantities, cached);
+                }
+            });
+        } else {
+            applyRestock(quantities, cached);
+        }
+        return quantities.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public void flush() {
+        List<PendingDelta> deltas = new ArrayList<>();
+        Map<UUID, StockCounter> kept = new HashMap<>();
+        counters.forEach((itemId, counter) -> {
+            int delta = counter.drainPending();
+            if (delta != 0) {
+                deltas.add(new PendingDelta(itemId, counter, delta));
+                return;
+            }
+            if (counter.isIdleFor(settings.getIdleFlushesBeforeEviction()) && counter.retire()) {
+                counters.remove(itemId, counter);
+            } else {
+                kept.put(itemId, counter);
+            }
+        });
+        write(deltas, kept);
+    }
+
+    @Override
+    public void flush(Collection<UUID> itemIds) {
+        List<PendingDelta> deltas = new ArrayList<>();
+        for (UUID itemId : itemIds) {
+            StockCounter counter = counters.get(itemId);
+            int delta = counter == null ? 0 : counter.drainPending();
+            if (delta != 0) deltas.add(new PendingDelta(itemId, counter, delta));
+        }
+        write(deltas, Map.of());
+    }
+
+    private void write(List<PendingDelta> deltas, Map<UUID, StockCounter> unchanged) {
+        if (deltas.isEmpty() && unchanged.isEmpty()) return;
+
+        AtomicBoolean restoredOnRollback = new AtomicBoolean();
+        Written written;
+        try {
+            written = transactionTemplate.execute(status -> applyDeltas(deltas, unchanged.keySet(), restoredOnRollback));
+        } catch (RuntimeException e) {
+            if (!restoredOnRollback.get()) restore(deltas);
+            log.error("Failed to flush stock changes of {} items, keeping them for the next flush", deltas.size(), e);
+            return;
+        }
+        if (written == null) return;
+
+        // inside a caller's transaction the counters only take the database's stock once it has committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resync(deltas, unchanged, written);
+                }
+            });
+        } else {
+            resync(deltas, unchanged, written);
+        }
+    }
+
+    private Written applyDeltas(List<PendingDelta> deltas, Collection<UUID> unchanged, AtomicBoolean restoredOnRollback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            restoredOnRollback.set(true);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) restore(deltas);
+                }
+            });
+        }
+        List<PendingDelta> rejected = new ArrayList<>();
+        for (PendingDelta pending : deltas) {
+            int updated = pending.delta() > 0
+                    ? itemRepository.releaseStock(pending.itemId(), pending.delta())
+                    : itemRepository.reserveStock(pending.itemId(), -pending.delta());
+            if (updated == 0) rejected.add(pending);
+        }
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(
+                    deltas.stream().map(PendingDelta::itemId).collect(Collectors.toSet())));
+        }
+
+        // read after the updates, the rows written here show every other node's committed changes as well
+        List<UUID> itemIds = new ArrayList<>(unchanged);
+        deltas.forEach(pending -> itemIds.add(pending.itemId()));
+        Map<UUID, Integer> available = HashMap.newHashMap(itemIds.size());
+        for (int from = 0; from < itemIds.size(); from += ITEMS_PER_QUERY) {
+            List<UUID> chunk = itemIds.subList(from, Math.min(from + ITEMS_PER_QUERY, itemIds.size()));
+            for (ItemQuantityDto stock : itemRepository.findAvailableQuantities(chunk)) {
+                available.put(stock.itemId(), stock.quantity().intValue());
+            }
+        }
+        return new Written(rejected, available);
+    }
+
+    private void restore(List<PendingDelta> deltas) {
+        deltas.forEach(pending -> pending.counter().restorePending(pending.delta()));
+    }
+
+    private void applyRestock(Map<UUID, Integer> quantities, Map<UUID, StockCounter> cached) {
+        quantities.forEach((itemId, quantity) -> {
+            StockCounter counter = counters.get(itemId);
+            if (counter == null || counter.isRetired()) return;
+            if (counter == cached.get(itemId) && counter.tryAddAvailable(quantity)) return;
+            itemRepository.findById(itemId).ifPresent(item -> counter.resync(item.getAvailableQuantity()));
+        });
+    }
+
+    private void resync(List<PendingDelta> deltas, Map<UUID, StockCounter> unchanged, Written written) {
+        for (PendingDelta pending : written.rejected()) {
+            log.warn("Stock of item {} was changed outside of the inventory, dropping delta {} and reloading it",
+                    pending.itemId(), pending.delta());
+            if (pending.delta() < 0) {
+                eventPublisher.publishEvent(new StockRejectedEvent(pending.itemId(), -pending.delta()));
+            }
+        }
+        deltas.forEach(pending -> resync(pending.itemId(), pending.counter(), written.available()));
+        unchanged.forEach((itemId, counter) -> resync(itemId, counter, written.available()));
+    }
+
+    private void resync(UUID itemId, StockCounter counter, Map<UUID, Integer> available) {
+        Integer databaseAvailable = available.get(itemId);
+        if (databaseAvailable != null) {
+            counter.resync(databaseAvailable);
+        } else if (counter.retire()) {
+            counters.remove(itemId, counter);
+        }
+    }
+
+    private StockCounter counterFor(UUID itemId) {
+        return counters.computeIfAbsent(itemId, this::loadCounter);
+    }
+
+    private StockCounter reloadCounter(UUID itemId, StockCounter retired) {
+        counters.remove(itemId, retired);
+        return counterFor(itemId);
+    }
+
+    private StockCounter loadCounter(UUID itemId) {
+        return itemRepository.findById(itemId)
+                .map(item -> new StockCounter(item.getAvailableQuantity()))
+                .orElseThrow(() -> new EntityNotFoundException("Item with id: " + itemId + " was not found"));
+    }
+}
@@ -2,30 +2,71 @@ package margo.grid.store.app.service.impl;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.ItemResponseDto;
+import margo.grid.store.app.entity.Item;
 import margo.grid.store.app.mapper.ItemMapper;
 import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.service.CatalogCache;
+import margo.grid.store.app.service.CountEstimateService;
 import margo.grid.store.app.service.ItemService;
+import margo.grid.store.app.utils.Cursor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    private static final String ITEM_COUNT_KEY = "items";
+
     private final ItemRepository itemRepository;
     private final ItemMapper itemMapper;
+    private final CountEstimateService countEstimateService;
+    private final CatalogCache catalogCache;
 
     @Override
     public Page<ItemResponseDto> getItems(Pageable pageable) {
-        return itemRepository.findAll(pageable).map(itemMapper::toItemResponseDto);
+        return catalogCache.getPage(pageable,
+                page -> itemRepository.findAll(page).map(itemMapper::toItemResponseDto));
+    }
+
+    @Override
+    public Slice<ItemResponseDto> getItemSlice(Pageable pageable) {
+        return itemRepository.findAllBy(pageable).map(itemMapper::toItemResponseDto);
+    }
+
+    @Override
+    public long estimateItemCount() {
+        return countEstimateService.estimate(ITEM_COUNT_KEY, itemRepository::count);
+    }
+
+    @Override
+    public CursorPage<ItemResponseDto> getItemsAfter(String after, int size) {
+        List<Item> items;
+        if (after.isBlank()) {
+            items = itemRepository.findFirstPage(Limit.of(size + 1));
+        } else {
+            Cursor cursor = Cursor.decode(after);
+            items = itemRepository.findPageAfter(cursor.key(), cursor.id(), Limit.of(size + 1));
+        }
+        return CursorPage.of(items, size, item -> new Cursor(item.getTitle(), item.getId()),
+                itemMapper::toItemResponseDto);
     }
 
     @Override
     public ItemResponseDto getItemById(UUID id) {
-        return itemRepository.findById(id)
+        return catalogCache.getItem(id, itemId -> itemRepository.findById(itemId)
                 .map(itemMapper::toItemResponseDto)
-                .orElseThrow(() -> new EntityNotFoundException("Item with id " + id + " was not found!"));
+                .orElseThrow(() -> new EntityNotFoundException("Item with id " + itemId + " was not found!")));
+    }
+
+    @Override
+    public long getCatalogVersion() {
+        return catalogCache.version();
     }
 }
@@ -1,21 +1,62 @@
 package margo.grid.store.app.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import margo.grid.store.app.config.UserCacheSettings;
+import margo.grid.store.app.entity.User;
+import margo.grid.store.app.utils.ExpiringCache;
 import margo.grid.store.app.utils.MyUserDetails;
 import margo.grid.store.app.repository.UserRepository;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import java.util.Locale;
 
+/**
+ * Principals are cached by lower-cased email for {@code user-cache.ttl}, so repeated logins skip
+ * the user lookup. Unknown emails are not cached, and anything that changes the stored password
+ * hash has to {@link #evict} the entry. {@link MyUserDetails} keeps the hash after authentication
+ * because it does not implement {@code CredentialsContainer}, which is what makes it safe to share.
+ * <p>
+ * As a {@link UserDetailsPasswordService} it receives the new hash when a login succeeds with a hash
+ * the password encoder wants to upgrade, so old hashes are replaced as users sign in.
+ */
 @Service
-@RequiredArgsConstructor
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final ExpiringCache<String, MyUserDetails> principals;
+
+    public MyUserDetailsService(UserRepository userRepository, UserCacheSettings settings,
+                                MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.principals = new ExpiringCache<>("users.principals", settings.getSize(), settings.getTtl(),
+                meterRegistry);
+    }
 
     @Override
     public MyUserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email)
+        return principals.get(key(email), key -> userRepository.findByEmail(email)
                 .map(MyUserDetails::new)
+                .orElseThrow(() -> new UsernameNotFoundException("User with email " + email + " was not found!")));
+    }
+
+    @Override
+    public MyUserDetails updatePassword(UserDetails userDetails, String newPasswordHash) {
+        String email = userDetails.getUsername();
+        User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User with email " + email + " was not found!"));
+        user.setPasswordHash(newPasswordHash);
+        MyUserDetails updated = new MyUserDetails(userRepository.save(user));
+        evict(email);
+        return updated;
+    }
+
+    public void evict(String email) {
+        principals.invalidate(key(email));
+    }
+
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
     }
 }
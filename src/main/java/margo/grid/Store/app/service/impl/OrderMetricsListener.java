@@ -0,0 +1,32 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import margo.grid.store.app.event.OrderPlacedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order analytics, fed from the outbox rather than from the checkout request.
+ */
+@Component
+public class OrderMetricsListener {
+    private final Counter placedOrders;
+    private final DistributionSummary orderValue;
+
+    public OrderMetricsListener(MeterRegistry meterRegistry) {
+        this.placedOrders = Counter.builder("orders.placed")
+                .description("Orders placed")
+                .register(meterRegistry);
+        this.orderValue = DistributionSummary.builder("orders.value")
+                .description("Total of placed orders")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        placedOrders.increment();
+        orderValue.record(event.total().doubleValue());
+    }
+}
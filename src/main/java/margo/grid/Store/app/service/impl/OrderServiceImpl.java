@@ -2,23 +2,47 @@ package margo.grid.store.app.service.impl;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import margo.grid.store.app.dto.CancellationResponseDto;
+import margo.grid.store.app.dto.CursorPage;
+import margo.grid.store.app.dto.ItemQuantityDto;
 import margo.grid.store.app.dto.OrderResponseDto;
+import margo.grid.store.app.dto.OrderSummaryDto;
+import margo.grid.store.app.entity.Item;
 import margo.grid.store.app.entity.Order;
 import margo.grid.store.app.entity.OrderStatus;
-import margo.grid.store.app.entity.User;
+import margo.grid.store.app.entity.OutboxEventType;
+import margo.grid.store.app.event.OrderPlacedEvent;
 import margo.grid.store.app.mapper.OrderMapper;
+import margo.grid.store.app.repository.CartStore.CartLine;
+import margo.grid.store.app.repository.ItemRepository;
 import margo.grid.store.app.repository.OrderRepository;
 import margo.grid.store.app.repository.UserRepository;
 import margo.grid.store.app.service.CartService;
+import margo.grid.store.app.service.CountEstimateService;
+import margo.grid.store.app.service.IdempotencyKeyStore;
+import margo.grid.store.app.service.InventoryService;
 import margo.grid.store.app.service.OrderService;
+import margo.grid.store.app.service.OutboxService;
+import margo.grid.store.app.utils.Cursor;
 import margo.grid.store.app.utils.MyUserDetails;
+import margo.grid.store.app.utils.RetryExecutor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
-import java.util.HashSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -26,8 +50,14 @@ import java.util.UUID;
 public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
     private final OrderMapper orderMapper;
     private final CartService cartService;
+    private final CountEstimateService countEstimateService;
+    private final RetryExecutor retryExecutor;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final OutboxService outboxService;
+    private final InventoryService inventoryService;
 
     @Override
     public OrderResponseDto getOrderById(UUID id, MyUserDetails userDetails) {
@@ -42,37 +72,145 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    public OrderResponseDto createOrder(MyUserDetails userDetails) {
-        User user = userRepository.findById(userDetails.getId()).orElseThrow();
+    public OrderResponseDto createOrder(MyUserDetails userDetails, String idempotencyKey) {
+        UUID requestKey = idempotencyKey == null ? null
+                : idempotencyKeyStore.requestKey(userDetails.getId(), idempotencyKey);
+        if (requestKey != null) {
+            UUID placedOrderId = idempotencyKeyStore.findOrderId(requestKey);
+            if (placedOrderId != null) return getOrderById(placedOrderId, userDetails);
+        }
+
+        Order savedOrder;
+        try {
+            savedOrder = retryExecutor.execute(() -> placeOrder(userDetails, requestKey));
+        } catch (DataIntegrityViolationException e) {
+            if (requestKey == null) throw e;
+            // a concurrent retry carrying the same key committed first
+            savedOrder = orderRepository.findByIdempotencyKey(requestKey).orElseThrow(() -> e);
+        }
+        if (requestKey != null) idempotencyKeyStore.remember(requestKey, savedOrder.getId());
+        countEstimateService.invalidate(orderCountKey(userDetails.getId()));
+        return orderMapper.toDto(savedOrder);
+    }
+
+    /**
+     * Inserts the order with all its lines and its outbox event, consumes the reservations of the cart
+     * lines it was built from, writes the stock and removes those lines from the cart in the one
+     * transaction the caller runs it in.
+     */
+    private Order placeOrder(MyUserDetails userDetails, UUID requestKey) {
+        List<CartLine> cartLines = cartService.getCartLines(userDetails);
+        if (cartLines.isEmpty()) {
+            // the cart of a replayed request has already been checked out
+            Optional<Order> placedOrder = requestKey == null ? Optional.empty()
+                    : orderRepository.findByIdempotencyKey(requestKey);
+            return placedOrder.orElseThrow(() -> new IllegalStateException("Cannot place an order with an empty cart"));
+        }
+
         Order order = Order.builder()
                 .status(OrderStatus.CONFIRMED)
-                .user(user)
-                .items(new HashSet<>(cartService.getAllItemsInCart()))
+                .user(userRepository.getReferenceById(userDetails.getId()))
+                .idempotencyKey(requestKey)
                 .build();
-        return orderMapper.toDto(orderRepository.save(order));
+        Map<UUID, Item> items = HashMap.newHashMap(cartLines.size());
+        for (Item item : itemRepository.findAllById(cartLines.stream().map(CartLine::itemId).toList())) {
+            items.put(item.getId(), item);
+        }
+        for (CartLine cartLine : cartLines) {
+            Item item = items.get(cartLine.itemId());
+            if (item == null) {
+                throw new IllegalStateException("Item with id: " + cartLine.itemId()
+                        + " in the cart no longer exists, remove it to place the order");
+            }
+            order.addLine(item, cartLine.quantity());
+        }
+        // fails on a duplicate key before the cart is touched
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        outboxService.append(OutboxEventType.ORDER_PLACED, savedOrder.getId(),
+                new OrderPlacedEvent(savedOrder.getId(), userDetails.getId(), savedOrder.getTotal()));
+        cartService.checkout(userDetails, cartLines);
+        return savedOrder;
     }
 
     @Override
     public void cancelOrder(UUID id, MyUserDetails user) {
+        if (cancelOrders(List.of(id), user).cancelledOrders() > 0) return;
+
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Order with id: " + id + " was not found!"));
-
         if (!order.getUser().getId().equals(user.getId())) {
             throw new AccessDeniedException("You can only cancel your own orders!");
         }
+        throw new IllegalStateException("Order is already cancelled");
+    }
 
-        if (order.getStatus() == OrderStatus.CANCELLED) {
-            throw new IllegalStateException("Order is already cancelled");
-        }
-
-        order.setStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
+    /**
+     * Cancels the confirmed orders among the given ones that belong to the user and returns the
+     * stock of all their lines, without loading any order: one update flips the statuses, one
+     * query sums the lines per item and one update puts the units back.
+     */
+    @Override
+    public CancellationResponseDto cancelOrders(Collection<UUID> ids, MyUserDetails user) {
+        CancellationResponseDto result = retryExecutor.execute(() -> {
+            List<UUID> cancellable = orderRepository.findIdsByUser(ids, user.getId(), OrderStatus.CONFIRMED);
+            if (cancellable.isEmpty()) return new CancellationResponseDto(0, 0);
+            if (orderRepository.updateStatus(cancellable, OrderStatus.CONFIRMED, OrderStatus.CANCELLED)
+                    != cancellable.size()) {
+                throw new ConcurrencyFailureException("Some of the orders were cancelled concurrently");
+            }
+            Map<UUID, Integer> quantities = new HashMap<>();
+            for (ItemQuantityDto line : orderRepository.sumQuantitiesByItem(cancellable)) {
+                quantities.put(line.itemId(), Math.toIntExact(line.quantity()));
+            }
+            return new CancellationResponseDto(cancellable.size(), inventoryService.restock(quantities));
+        });
+        if (result.cancelledOrders() > 0) countEstimateService.invalidate(orderCountKey(user.getId()));
+        return result;
     }
 
     @Override
     public Page<OrderResponseDto> getAllUserOrders(MyUserDetails userDetails, Pageable pageable) {
-        User user = userRepository.findById(userDetails.getId()).orElseThrow();
-        return new PageImpl<>(orderRepository.findOrdersByUser_IdAndStatus_(user.getId(), OrderStatus.CONFIRMED,
-                pageable).map(orderMapper::toDto).getContent());
+        return orderRepository.findOrderSummaries(userDetails.getId(), OrderStatus.CONFIRMED, pageable)
+                .map(orderMapper::toDto);
+    }
+
+    @Override
+    public Slice<OrderResponseDto> getUserOrderSlice(MyUserDetails userDetails, Pageable pageable) {
+        return orderRepository.findOrderSummarySlice(userDetails.getId(), OrderStatus.CONFIRMED, pageable)
+                .map(orderMapper::toDto);
+    }
+
+    @Override
+    public long estimateUserOrderCount(MyUserDetails userDetails) {
+        UUID userId = userDetails.getId();
+        return countEstimateService.estimate(orderCountKey(userId),
+                () -> orderRepository.countByUser_IdAndStatus(userId, OrderStatus.CONFIRMED));
+    }
+
+    @Override
+    public CursorPage<OrderResponseDto> getUserOrdersAfter(MyUserDetails userDetails, String after, int size) {
+        List<OrderSummaryDto> orders;
+        if (after.isBlank()) {
+            orders = orderRepository.findFirstOrderSummaries(userDetails.getId(), OrderStatus.CONFIRMED,
+                    Limit.of(size + 1));
+        } else {
+            Cursor cursor = Cursor.decode(after);
+            orders = orderRepository.findOrderSummariesAfter(userDetails.getId(), OrderStatus.CONFIRMED,
+                    parseTimestamp(cursor.key()), cursor.id(), Limit.of(size + 1));
+        }
+        return CursorPage.of(orders, size,
+                order -> new Cursor(order.createdAt().toInstant().toString(), order.id()), orderMapper::toDto);
+    }
+
+    private static String orderCountKey(UUID userId) {
+        return "orders:" + userId;
+    }
+
+    private Timestamp parseTimestamp(String value) {
+        try {
+            return Timestamp.from(Instant.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 }
@@ -0,0 +1,217 @@
+package margo.grid.store.app.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.OutboxSettings;
+import margo.grid.store.app.entity.OutboxEvent;
+import margo.grid.store.app.entity.OutboxEventType;
+import margo.grid.store.app.entity.OutboxStatus;
+import margo.grid.store.app.repository.OutboxEventRepository;
+import margo.grid.store.app.service.OutboxService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Work that follows a committed change is written as an outbox row in the same transaction and
+ * delivered later as an application event on a bounded pool of worker threads, in batches of
+ * {@code outbox.batch-size}. The dispatcher only claims a new batch while the pool queue has room,
+ * so when listeners slow down the backlog grows in the table instead of on the request threads.
+ * A batch that fails is retried event by event; an event that keeps failing is parked as
+ * {@link OutboxStatus#FAILED} until it is replayed. Delivery is at least once. Batches are claimed
+ * in the table with a conditional update, so with several nodes every event goes to one of them; a
+ * claim that is not settled within {@code outbox.claim-timeout}, because its node died, lapses.
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final OutboxEventRepository outboxRepository;
+    private final TransactionOperations transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final OutboxSettings settings;
+    private final ThreadPoolExecutor workers;
+    private final Counter processedEvents;
+    private final Counter failedAttempts;
+    private final Timer deliveryLag;
+
+    public OutboxServiceImpl(OutboxEventRepository outboxRepository,
+                             TransactionOperations transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper,
+                             OutboxSettings settings,
+                             MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+        this.workers = new ThreadPoolExecutor(settings.getWorkers(), settings.getWorkers(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.getQueuedBatches()), new WorkerThreadFactory());
+        this.processedEvents = Counter.builder("outbox.events")
+                .tag("result", "processed")
+                .description("Outbox events delivered to their listeners")
+                .register(meterRegistry);
+        this.failedAttempts = Counter.builder("outbox.events")
+                .tag("result", "failed")
+                .description("Outbox event deliveries that threw")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("outbox.lag")
+                .description("Time from writing an outbox event to delivering it")
+                .register(meterRegistry);
+        meterRegistry.gauge("outbox.in-flight", inFlight, Set::size);
+        meterRegistry.gauge("outbox.queued-batches", workers.getQueue(), Queue::size);
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "outbox-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    @Override
+    public void append(OutboxEventType type, UUID aggregateId, Object event) {
+        try {
+            outboxRepository.save(OutboxEvent.builder()
+                    .type(type)
+                    .aggregateId(aggregateId)
+                    .payload(objectMapper.writeValueAsString(event))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + type + " event of " + aggregateId, e);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{outboxSettings.pollInterval.toMillis()}")
+    public void dispatch() {
+        while (workers.getQueue().remainingCapacity() > 0) {
+            List<UUID> batch = claimBatch();
+            if (batch.isEmpty()) return;
+            try {
+                workers.execute(() -> process(batch));
+            } catch (RejectedExecutionException e) {
+                batch.forEach(inFlight::remove);
+                return;
+            }
+            if (batch.size() < settings.getBatchSize()) return;
+        }
+    }
+
+    @Override
+    public int replay(OutboxStatus status, Instant since) {
+        int requeued = outboxRepository.requeue(status, Timestamp.from(since));
+        log.info("Requeued {} {} outbox events created since {}", requeued, status, since);
+        return requeued;
+    }
+
+    @Override
+    public Map<OutboxStatus, Long> backlog() {
+        Map<OutboxStatus, Long> backlog = new EnumMap<>(OutboxStatus.class);
+        backlog.put(OutboxStatus.PENDING, outboxRepository.countByStatus(OutboxStatus.PENDING));
+        backlog.put(OutboxStatus.FAILED, outboxRepository.countByStatus(OutboxStatus.FAILED));
+        return backlog;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{outboxSettings.purgeInterval.toMillis()}")
+    public void purgeProcessed() {
+        Instant before = Instant.now().minus(settings.getRetention());
+        int purged = outboxRepository.deleteProcessedBefore(Timestamp.from(before));
+        if (purged > 0) log.info("Purged {} processed outbox events", purged);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Outbox workers did not finish in time, undelivered events stay pending");
+        }
+    }
+
+    private List<UUID> claimBatch() {
+        Instant now = Instant.now();
+        List<UUID> candidates = outboxRepository.findUnclaimedIds(OutboxStatus.PENDING, Timestamp.from(now),
+                Limit.of(settings.getBatchSize()));
+        if (candidates.isEmpty()) return List.of();
+
+        UUID token = UUID.randomUUID();
+        outboxRepository.claim(candidates, OutboxStatus.PENDING, Timestamp.from(now), token,
+                Timestamp.from(now.plus(settings.getClaimTimeout())));
+        List<UUID> batch = new ArrayList<>(outboxRepository.findClaimedIds(candidates, token));
+        batch.removeIf(id -> !inFlight.add(id));
+        return batch;
+    }
+
+    private void process(List<UUID> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.findAllById(batch).forEach(this::deliver));
+        } catch (RuntimeException e) {
+            log.warn("Outbox batch of {} events failed, delivering them one by one", batch.size(), e);
+            batch.forEach(this::processOne);
+        } finally {
+            batch.forEach(inFlight::remove);
+        }
+    }
+
+    private void processOne(UUID id) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.findById(id).ifPresent(this::deliver));
+        } catch (RuntimeException e) {
+            failedAttempts.increment();
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.findById(id).ifPresent(event -> recordFailure(event, e)));
+        }
+    }
+
+    private void deliver(OutboxEvent event) {
+        if (event.getStatus() != OutboxStatus.PENDING) return;
+        Object payload;
+        try {
+            payload = objectMapper.readValue(event.getPayload(), event.getType().getEventClass());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read outbox event " + event.getId(), e);
+        }
+        eventPublisher.publishEvent(payload);
+        event.setStatus(OutboxStatus.PROCESSED);
+        event.setProcessedAt(Timestamp.from(Instant.now()));
+        processedEvents.increment();
+        if (event.getCreatedAt() != null) {
+            deliveryLag.record(Duration.between(event.getCreatedAt().toInstant(), Instant.now()));
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, RuntimeException e) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setClaimToken(null);
+        event.setClaimedUntil(null);
+        String error = String.valueOf(e.getMessage());
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (event.getAttempts() >= settings.getMaxAttempts()) {
+            event.setStatus(OutboxStatus.FAILED);
+            log.error("Outbox event {} failed {} times, parking it", event.getId(), event.getAttempts(), e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package margo.grid.store.app.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.PasswordSettings;
+import margo.grid.store.app.service.PasswordPolicyService;
+import margo.grid.store.app.utils.MappedPasswordFingerprintFile;
+import margo.grid.store.app.utils.PasswordFingerprintSet;
+import margo.grid.store.app.utils.PasswordPolicy;
+import org.passay.dictionary.Dictionary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the compiled {@link PasswordPolicy}. The common passwords are the ones listed in
+ * {@code password.common-passwords}, plus every line of {@code password.common-passwords-file} and
+ * every fingerprint in the memory-mapped {@code password.breached-passwords-file} when those are set.
+ * The files are checked every {@code password.common-passwords-check-interval} and the policy is
+ * compiled again on a thread of its own when one has changed, so the scheduler is not held up by a
+ * large list; validations keep using the previous policy until the new one is swapped in. The rule
+ * settings are bound once at startup, a reload only picks up changed files. Replace the
+ * breached-password file by renaming a new file over it, never by rewriting it in place, since the
+ * current policy still reads the mapped old file. A file that cannot be read at startup fails the
+ * startup.
+ */
+@Slf4j
+@Service
+public class PasswordPolicyServiceImpl implements PasswordPolicyService {
+    private final PasswordSettings settings;
+    private final ExecutorService compiler;
+    private final AtomicBoolean compiling = new AtomicBoolean();
+    private volatile PasswordPolicy policy;
+    private volatile List<FileTime> loadedVersions;
+
+    public PasswordPolicyServiceImpl(PasswordSettings settings) {
+        this.settings = settings;
+        this.compiler = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "password-policy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compile();
+    }
+
+    @Override
+    public PasswordPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public PasswordPolicy reload() {
+        try {
+            return CompletableFuture.supplyAsync(this::compile, compiler).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{passwordSettings.commonPasswordsCheckInterval.toMillis()}")
+    public void reloadIfChanged() {
+        Path commonFile = path(settings.getCommonPasswordsFile());
+        Path breachedFile = path(settings.getBreachedPasswordsFile());
+        if (commonFile == null && breachedFile == null) return;
+        try {
+            if (versions(commonFile, breachedFile).equals(loadedVersions)) return;
+        } catch (IOException e) {
+            log.warn("Cannot reload the common password lists, keeping the current policy", e);
+            return;
+        }
+        // a compilation already running is followed by another check, which sees the change
+        if (!compiling.compareAndSet(false, true)) return;
+        compiler.execute(() -> {
+            try {
+                compile();
+            } catch (UncheckedIOException e) {
+                log.warn("Cannot reload the common password lists, keeping the current policy", e);
+            } finally {
+                compiling.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compiler.shutdownNow();
+    }
+
+    // on the compiler thread, apart from the first compilation at startup
+    private PasswordPolicy compile() {
+        Path commonFile = path(settings.getCommonPasswordsFile());
+        Path breachedFile = path(settings.getBreachedPasswordsFile());
+        List<String> configured = Arrays.asList(settings.getCommonPasswords());
+        PasswordPolicy compiled;
+        try {
+            List<FileTime> versions = versions(commonFile, breachedFile);
+            PasswordFingerprintSet commonPasswords = commonFile == null
+                    ? PasswordFingerprintSet.of(configured)
+                    : PasswordFingerprintSet.load(commonFile, configured);
+            Dictionary breachedPasswords = breachedFile == null
+                    ? PasswordFingerprintSet.EMPTY
+                    : MappedPasswordFingerprintFile.open(breachedFile);
+            compiled = PasswordPolicy.compile(settings, commonPasswords, breachedPasswords);
+            policy = compiled;
+            loadedVersions = versions;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the common password lists", e);
+        }
+        log.info("Password policy compiled with {} common passwords", compiled.getCommonPasswordCount());
+        return compiled;
+    }
+
+    private static List<FileTime> versions(Path... files) throws IOException {
+        List<FileTime> versions = new ArrayList<>(files.length);
+        for (Path file : files) versions.add(file == null ? null : Files.getLastModifiedTime(file));
+        return versions;
+    }
+
+    private static Path path(String file) {
+        return file == null || file.isBlank() ? null : Path.of(file);
+    }
+}
@@ -0,0 +1,317 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.InventorySettings;
+import margo.grid.store.app.entity.CartReservation;
+import margo.grid.store.app.event.StockRejectedEvent;
+import margo.grid.store.app.exception.OutOfStockException;
+import margo.grid.store.app.repository.CartReservationRepository;
+import margo.grid.store.app.repository.CartStore.CartLine;
+import margo.grid.store.app.service.InventoryService;
+import margo.grid.store.app.service.ReservationService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks how much stock every cart line holds and until when. Reservations are written back together
+ * with the stock deltas of {@link InventoryService} in one transaction, so the persisted reservations
+ * and {@code items.available_quantity} always describe the same moment and a restart can simply
+ * reload them. Expired reservations are found through a delay queue instead of scanning the table.
+ * When the database refuses stock the inventory had reserved, reservations of that item are revoked
+ * without returning their units, newest first, until the refused units are covered.
+ */
+@Slf4j
+@Service
+public class ReservationServiceImpl implements ReservationService {
+    private final Map<ReservationKey, Reservation> reservations = new ConcurrentHashMap<>();
+    private final Map<ReservationKey, Long> changedReservations = new ConcurrentHashMap<>();
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    private final InventoryService inventoryService;
+    private final CartReservationRepository reservationRepository;
+    private final TransactionOperations transactionTemplate;
+    private final InventorySettings settings;
+    private final Counter reclaimedUnits;
+    private final Counter expiredReservations;
+    private final Counter revokedUnits;
+
+    public ReservationServiceImpl(InventoryService inventoryService,
+                                  CartReservationRepository reservationRepository,
+                                  TransactionOperations transactionTemplate,
+                                  InventorySettings settings,
+                                  MeterRegistry meterRegistry) {
+        this.inventoryService = inventoryService;
+        this.reservationRepository = reservationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = settings;
+        this.reclaimedUnits = Counter.builder("inventory.reservations.reclaimed")
+                .baseUnit("units")
+                .description("Units returned to stock because their cart reservation expired")
+                .register(meterRegistry);
+        this.expiredReservations = Counter.builder("inventory.reservations.expired")
+                .description("Cart reservations removed by the expiry reaper")
+                .register(meterRegistry);
+        this.revokedUnits = Counter.builder("inventory.reservations.revoked")
+                .baseUnit("units")
+                .description("Reserved units taken back from carts because the database refused the stock")
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.reservations.active", reservations, Map::size);
+    }
+
+    private record ReservationKey(String cartId, UUID itemId) {
+    }
+
+    private record Reservation(int quantity, LocalDateTime expiresAt) {
+    }
+
+    private record Expiry(ReservationKey key, LocalDateTime expiresAt) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), expiresAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return expiresAt.compareTo(((Expiry) other).expiresAt);
+        }
+    }
+
+    @Override
+    public void hold(String cartId, UUID itemId, int quantity) {
+        ReservationKey key = new ReservationKey(cartId, itemId);
+        // stock is taken before and given back after the line changes, never under the map's lock,
+        // since a counter that is not cached yet is loaded from the database
+        while (true) {
+            Reservation current = reservations.get(key);
+            if (current == null && quantity == 0) return;
+            int difference = quantity - (current == null ? 0 : current.quantity());
+            if (difference > 0) inventoryService.reserve(itemId, difference);
+            Reservation next = quantity == 0 ? null : newReservation(quantity);
+            if (!swap(key, current, next)) {
+                // another request changed the line first, so this one starts over from its quantity
+                if (difference > 0) inventoryService.release(itemId, difference);
+                continue;
+            }
+            markChanged(key);
+            if (difference < 0) inventoryService.release(itemId, -difference);
+            if (next != null) expiries.offer(new Expiry(key, next.expiresAt()));
+            return;
+        }
+    }
+
+    @Override
+    public void touch(String cartId, Collection<UUID> itemIds) {
+        LocalDateTime refreshAfter = LocalDateTime.now().plus(settings.getReservationTtl().dividedBy(2));
+        for (UUID itemId : itemIds) {
+            ReservationKey key = new ReservationKey(cartId, itemId);
+            Reservation current = reservations.get(key);
+            if (current == null || current.expiresAt().isAfter(refreshAfter)) continue;
+            Reservation refreshed = reservations.computeIfPresent(key, (k, existing) -> {
+                markChanged(k);
+                return newReservation(existing.quantity());
+            });
+            if (refreshed != null) expiries.offer(new Expiry(key, refreshed.expiresAt()));
+        }
+    }
+
+    @Override
+    public void consume(String cartId, List<CartLine> lines) {
+        // the line may have outlived its reservation, which expired or was revoked in the meantime
+        for (CartLine line : lines) {
+            Reservation current = reservations.get(new ReservationKey(cartId, line.itemId()));
+            if (current != null && current.quantity() == line.quantity()) continue;
+            try {
+                hold(cartId, line.itemId(), line.quantity());
+            } catch (IllegalArgumentException e) {
+                throw new OutOfStockException(line.itemId());
+            }
+        }
+
+        Map<ReservationKey, Reservation> consumed = new HashMap<>();
+        for (CartLine line : lines) {
+            reservations.computeIfPresent(new ReservationKey(cartId, line.itemId()), (key, current) -> {
+                consumed.put(key, current);
+                markChanged(key);
+                return null;
+            });
+        }
+        if (consumed.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        // the stock of the consumed items is written within the caller's transaction, so every changed
+        // reservation of these items goes with it, other carts' included, and the consumed ones are
+        // handed back if it does not commit
+        Set<UUID> itemIds = consumed.keySet().stream().map(ReservationKey::itemId).collect(Collectors.toSet());
+        Map<ReservationKey, Long> changes = new HashMap<>();
+        changedReservations.forEach((key, sequence) -> {
+            if (itemIds.contains(key.itemId())) changes.put(key, sequence);
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) changes.forEach(changedReservations::remove);
+                else consumed.forEach(ReservationServiceImpl.this::restore);
+            }
+        });
+        try {
+            persist(changes.keySet());
+            reservationRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            // the scheduled flush inserted one of the new rows first, the retry finds it
+            throw new ConcurrencyFailureException("Reservations of the cart's items were written concurrently", e);
+        }
+        inventoryService.flush(itemIds);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{inventorySettings.reaperInterval.toMillis()}")
+    public void reapExpiredReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, Integer> reclaimed = new HashMap<>();
+        Expiry expiry;
+        while ((expiry = expiries.poll()) != null) {
+            ReservationKey key = expiry.key();
+            Reservation current = reservations.get(key);
+            // a line that was changed in the meantime has queued its own expiry
+            if (current == null || current.expiresAt().isAfter(now) || !reservations.remove(key, current)) continue;
+            markChanged(key);
+            reclaim(key, current.quantity());
+            reclaimed.merge(key.itemId(), current.quantity(), Integer::sum);
+        }
+        if (!reclaimed.isEmpty()) log.info("Reclaimed expired reservations of {} items", reclaimed.size());
+    }
+
+    @EventListener
+    public void onStockRejected(StockRejectedEvent event) {
+        List<Map.Entry<ReservationKey, Reservation>> holders = reservations.entrySet().stream()
+                .filter(entry -> entry.getKey().itemId().equals(event.itemId()))
+                .sorted(Comparator.comparing((Map.Entry<ReservationKey, Reservation> entry) ->
+                        entry.getValue().expiresAt()).reversed())
+                .toList();
+        int missing = event.units();
+        for (Map.Entry<ReservationKey, Reservation> holder : holders) {
+            if (missing == 0) break;
+            ReservationKey key = holder.getKey();
+            Reservation current;
+            while (missing > 0 && (current = reservations.get(key)) != null) {
+                int revoked = Math.min(current.quantity(), missing);
+                Reservation next = revoked == current.quantity() ? null
+                        : new Reservation(current.quantity() - revoked, current.expiresAt());
+                if (!swap(key, current, next)) continue;
+                missing -= revoked;
+                revokedUnits.increment(revoked);
+                markChanged(key);
+                break;
+            }
+        }
+        log.warn("Revoked {} reserved units of item {} the database refused", event.units() - missing,
+                event.itemId());
+    }
+
+    private void reclaim(ReservationKey key, int quantity) {
+        expiredReservations.increment();
+        try {
+            inventoryService.release(key.itemId(), quantity);
+            reclaimedUnits.increment(quantity);
+        } catch (EntityNotFoundException e) {
+            log.warn("Item {} of expired reservation no longer exists, dropping {} units", key.itemId(), quantity);
+        }
+    }
+
+    @Override
+    @PreDestroy
+    @Scheduled(fixedDelayString = "#{inventorySettings.flushInterval.toMillis()}")
+    public void flush() {
+        Map<ReservationKey, Long> changes = Map.copyOf(changedReservations);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // written before the stock updates, which clear the persistence context
+                persist(changes.keySet());
+                reservationRepository.flush();
+                inventoryService.flush();
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} reservation changes, keeping them for the next flush", changes.size(), e);
+            return;
+        }
+        changes.forEach(changedReservations::remove);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPersistedReservations() {
+        List<CartReservation> persisted = reservationRepository.findAll();
+        for (CartReservation row : persisted) {
+            ReservationKey key = new ReservationKey(row.getCartId(), row.getItemId());
+            reservations.put(key, new Reservation(row.getQuantity(), row.getExpiresAt()));
+            expiries.offer(new Expiry(key, row.getExpiresAt()));
+        }
+        log.info("Loaded {} persisted cart reservations", persisted.size());
+    }
+
+    private void persist(Set<ReservationKey> keys) {
+        if (keys.isEmpty()) return;
+        Set<String> cartIds = keys.stream().map(ReservationKey::cartId).collect(Collectors.toSet());
+        Map<ReservationKey, CartReservation> rows = reservationRepository.findAllByCartIdIn(cartIds).stream()
+                .collect(Collectors.toMap(row -> new ReservationKey(row.getCartId(), row.getItemId()), row -> row));
+
+        List<CartReservation> toSave = new ArrayList<>();
+        List<CartReservation> toDelete = new ArrayList<>();
+        for (ReservationKey key : keys) {
+            Reservation reservation = reservations.get(key);
+            CartReservation row = rows.get(key);
+            if (reservation == null) {
+                if (row != null) toDelete.add(row);
+                continue;
+            }
+            if (row == null) row = CartReservation.builder().cartId(key.cartId()).itemId(key.itemId()).build();
+            row.setQuantity(reservation.quantity());
+            row.setExpiresAt(reservation.expiresAt());
+            toSave.add(row);
+        }
+        reservationRepository.deleteAllInBatch(toDelete);
+        reservationRepository.saveAll(toSave);
+    }
+
+    private void restore(ReservationKey key, Reservation reservation) {
+        if (reservations.putIfAbsent(key, reservation) == null) {
+            expiries.offer(new Expiry(key, reservation.expiresAt()));
+        } else {
+            // the cart reserved the item again in the meantime, so this stock is no longer held by anyone
+            inventoryService.release(key.itemId(), reservation.quantity());
+        }
+        markChanged(key);
+    }
+
+    private boolean swap(ReservationKey key, Reservation current, Reservation next) {
+        if (current == null) return reservations.putIfAbsent(key, next) == null;
+        return next == null ? reservations.remove(key, current) : reservations.replace(key, current, next);
+    }
+
+    private Reservation newReservation(int quantity) {
+        return new Reservation(quantity, LocalDateTime.now().plus(settings.getReservationTtl()));
+    }
+
+    private void markChanged(ReservationKey key) {
+        changedReservations.put(key, changeSequence.incrementAndGet());
+    }
+}
@@ -0,0 +1,104 @@
+package margo.grid.store.app.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.PasswordHashingSettings;
+import margo.grid.store.app.exception.ServiceOverloadedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the delegate's {@code encode} and {@code matches} on a fixed pool of hashing threads, one per
+ * processor unless {@code password-hashing.threads} says otherwise. At most
+ * {@code password-hashing.queue-capacity} hashes wait for a thread; past that the caller gets a
+ * {@link ServiceOverloadedException} straight away instead of holding a request thread while the
+ * backlog drains, so a burst of logins cannot take every Tomcat thread away from the other endpoints.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor hashers;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingSettings settings,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        int threads = settings.getThreads() == 0 ? Runtime.getRuntime().availableProcessors() : settings.getThreads();
+        BlockingQueue<Runnable> queue = settings.getQueueCapacity() == 0
+                ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.hashers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                new HasherThreadFactory());
+        this.encodeTimer = Timer.builder("password.hash")
+                .tag("operation", "encode")
+                .description("Time spent hashing a password on a hashing thread")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hash")
+                .tag("operation", "matches")
+                .description("Time spent hashing a password on a hashing thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hash.rejected")
+                .description("Hashes refused because the hashing queue was full")
+                .register(meterRegistry);
+        meterRegistry.gauge("password.hash.queued", hashers.getQueue(), Queue::size);
+        meterRegistry.gauge("password.hash.active", hashers, ThreadPoolExecutor::getActiveCount);
+    }
+
+    private static final class HasherThreadFactory implements ThreadFactory {
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "password-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        hashers.shutdownNow();
+    }
+
+    private <T> T submit(Timer timer, Supplier<T> hash) {
+        Future<T> result;
+        try {
+            result = hashers.submit(() -> timer.record(hash));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Password hashing queue is full, rejecting the request");
+            throw new ServiceOverloadedException("Too many authentication requests, please try again later");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
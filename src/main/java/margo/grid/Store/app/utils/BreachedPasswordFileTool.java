@@ -0,0 +1,32 @@
+package margo.grid.store.app.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Builds the file read by {@link MappedPasswordFingerprintFile} from a plaintext list with one
+ * UTF-8 password per line. The fingerprints are sorted in memory, 8 bytes per distinct password.
+ * Run it from the packaged application with
+ * <pre>
+ * java -cp store-app.jar -Dloader.main=margo.grid.store.app.utils.BreachedPasswordFileTool \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher breached.txt breached.pwfp
+ * </pre>
+ */
+public final class BreachedPasswordFileTool {
+
+    private BreachedPasswordFileTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BreachedPasswordFileTool <plaintext list> <fingerprint file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        PasswordFingerprintSet passwords = PasswordFingerprintSet.load(Path.of(args[0]), List.of());
+        MappedPasswordFingerprintFile.write(passwords, Path.of(args[1]));
+        System.out.printf("Wrote %d fingerprints to %s in %d ms%n", passwords.size(), args[1],
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,130 @@
+package margo.grid.store.app.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Read-through map bounded in size whose entries expire a fixed time after they were loaded.
+ * Reports {@code cache.gets} (result=hit|miss), {@code cache.evictions} (cause=size|expired)
+ * and {@code cache.size}, all tagged with the cache name.
+ */
+public class ExpiringCache<K, V> {
+    private static final int EVICTION_SCAN = 8;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final BiConsumer<V, V> onLoad;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    public ExpiringCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(name, maxSize, ttl, meterRegistry, System::nanoTime, (stale, fresh) -> { });
+    }
+
+    /**
+     * @param onLoad called after every load with the value it replaces, or {@code null} if there was none
+     */
+    public ExpiringCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry,
+                         LongSupplier nanoTime, BiConsumer<V, V> onLoad) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+        this.onLoad = onLoad;
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "size")
+                .register(meterRegistry);
+        this.expiredEvictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "expired")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", name).register(meterRegistry);
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = nanoTime.getAsLong();
+        Entry<V> cached = entries.get(key);
+        if (cached != null && !isExpired(cached, now)) {
+            hits.increment();
+            return cached.value();
+        }
+        misses.increment();
+        if (cached != null) expiredEvictions.increment();
+
+        long invalidationsBeforeLoad = invalidations.get();
+        V value = loader.apply(key);
+        onLoad.accept(cached == null ? null : cached.value(), value);
+
+        if (!entries.containsKey(key) && entries.size() >= maxSize) evictOne(now);
+        Entry<V> entry = new Entry<>(value, now + ttlNanos);
+        entries.put(key, entry);
+        // an invalidation that raced with the load may have been meant for the value we just stored
+        if (invalidations.get() != invalidationsBeforeLoad) entries.remove(key, entry);
+        return value;
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> cached = entries.get(key);
+        if (cached != null && !isExpired(cached, nanoTime.getAsLong())) {
+            hits.increment();
+            return cached.value();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        long now = nanoTime.getAsLong();
+        if (!entries.containsKey(key) && entries.size() >= maxSize) evictOne(now);
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateIf(Predicate<? super V> predicate) {
+        invalidations.incrementAndGet();
+        entries.values().removeIf(entry -> predicate.test(entry.value()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return now - entry.expiresAt() >= 0;
+    }
+
+    private void evictOne(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        K victim = null;
+        for (int scanned = 0; it.hasNext() && scanned < EVICTION_SCAN; scanned++) {
+            Map.Entry<K, Entry<V>> candidate = it.next();
+            if (victim == null) victim = candidate.getKey();
+            if (isExpired(candidate.getValue(), now)) {
+                it.remove();
+                expiredEvictions.increment();
+                return;
+            }
+        }
+        if (victim != null && entries.remove(victim) != null) sizeEvictions.increment();
+    }
+}
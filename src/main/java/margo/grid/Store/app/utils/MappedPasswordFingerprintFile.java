@@ -0,0 +1,104 @@
+package margo.grid.store.app.utils;
+
+import org.passay.dictionary.Dictionary;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Breached-password list in a file of {@link PasswordFingerprintSet} fingerprints: an 8 byte magic
+ * followed by big-endian 8 byte fingerprints in ascending signed order, without duplicates. The file
+ * is mapped read-only, so the entries live in the page cache rather than on the heap. The only heap
+ * kept is an index of where each 16-bit fingerprint prefix starts (256 KB). A lookup hashes the
+ * password and binary searches one bucket, about 150 entries for 10 million fingerprints.
+ * A mapping is limited to 2 GB, which is about 268 million entries.
+ */
+public final class MappedPasswordFingerprintFile implements Dictionary {
+    static final byte[] MAGIC = "PWFP0001".getBytes(StandardCharsets.US_ASCII);
+    private static final int ENTRY_BYTES = Long.BYTES;
+    private static final int BUCKETS = 1 << 16;
+
+    private final MappedByteBuffer entries;
+    private final int[] bucketStarts;
+    private final int size;
+
+    private MappedPasswordFingerprintFile(MappedByteBuffer entries, int[] bucketStarts, int size) {
+        this.entries = entries;
+        this.bucketStarts = bucketStarts;
+        this.size = size;
+    }
+
+    /**
+     * Maps the file and checks that it is well formed, which reads it through once.
+     */
+    public static MappedPasswordFingerprintFile open(Path file) throws IOException {
+        MappedByteBuffer entries;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE || length < MAGIC.length || (length - MAGIC.length) % ENTRY_BYTES != 0) {
+                throw new IOException(file + " is not a password fingerprint file of a supported size");
+            }
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        byte[] magic = new byte[MAGIC.length];
+        entries.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException(file + " is not a password fingerprint file");
+
+        int size = (entries.capacity() - MAGIC.length) / ENTRY_BYTES;
+        int[] bucketStarts = new int[BUCKETS + 1];
+        int bucket = 0;
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long fingerprint = entries.getLong(offset(i));
+            if (i > 0 && fingerprint <= previous) throw new IOException(file + " is not sorted at entry " + i);
+            for (int next = bucket(fingerprint); bucket < next; ) bucketStarts[++bucket] = i;
+            previous = fingerprint;
+        }
+        while (bucket < BUCKETS) bucketStarts[++bucket] = size;
+        return new MappedPasswordFingerprintFile(entries, bucketStarts, size);
+    }
+
+    public static void write(PasswordFingerprintSet passwords, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.write(MAGIC);
+            for (long fingerprint : passwords.fingerprints()) out.writeLong(fingerprint);
+        }
+    }
+
+    @Override
+    public boolean search(String password) {
+        long fingerprint = PasswordFingerprintSet.fingerprint(password);
+        int bucket = bucket(fingerprint);
+        int low = bucketStarts[bucket];
+        int high = bucketStarts[bucket + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entry = entries.getLong(offset(middle));
+            if (entry < fingerprint) low = middle + 1;
+            else if (entry > fingerprint) high = middle - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    private static int offset(int index) {
+        return MAGIC.length + index * ENTRY_BYTES;
+    }
+
+    // flipping the sign bit makes the prefix grow with the signed order the entries are sorted in
+    private static int bucket(long fingerprint) {
+        return (int) ((fingerprint ^ Long.MIN_VALUE) >>> 48);
+    }
+}
@@ -0,0 +1,72 @@
+package margo.grid.store.app.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import margo.grid.store.app.config.PasswordHashingSettings;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * New hashes are Argon2id, stored as {@code {argon2}$argon2id$v=19$m=..,t=..,p=..$..}. The iteration
+ * count is picked at startup by timing a few hashes on this machine, so one hash takes about
+ * {@code password-hashing.target-hash-time}. The parameters are part of every hash, so nodes that
+ * calibrate differently still verify each other's hashes, and a hash made with fewer iterations than
+ * this node uses is reported by {@code upgradeEncoding}. Hashes without a prefix are the BCrypt
+ * hashes stored before the switch; they still match and are always upgraded.
+ */
+@Slf4j
+public final class PasswordEncoderFactory {
+    static final String ARGON2 = "argon2";
+    static final String BCRYPT = "bcrypt";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int WARMUP_HASHES = 1;
+    private static final int TIMED_HASHES = 3;
+    private static final String PROBE_PASSWORD = "calibration-probe";
+
+    private PasswordEncoderFactory() {
+    }
+
+    public static PasswordEncoder create(PasswordHashingSettings settings) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(ARGON2, Map.of(
+                ARGON2, calibrateArgon2(settings),
+                BCRYPT, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    static Argon2PasswordEncoder calibrateArgon2(PasswordHashingSettings settings) {
+        Argon2PasswordEncoder probe = argon2(settings, 1);
+        for (int i = 0; i < WARMUP_HASHES; i++) probe.encode(PROBE_PASSWORD);
+        long nanosPerIteration = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_HASHES; i++) {
+            long start = System.nanoTime();
+            probe.encode(PROBE_PASSWORD);
+            nanosPerIteration = Math.min(nanosPerIteration, System.nanoTime() - start);
+        }
+        int iterations = iterationsFor(settings.getTargetHashTime(), nanosPerIteration,
+                settings.getArgon2MinIterations(), settings.getArgon2MaxIterations());
+        Duration hashTime = Duration.ofNanos(nanosPerIteration * iterations);
+        log.info("Hashing passwords with Argon2id m={}KiB t={} p={}, about {} ms per hash",
+                settings.getArgon2MemoryKib(), iterations, settings.getArgon2Parallelism(), hashTime.toMillis());
+        if (hashTime.compareTo(settings.getTargetHashTime().multipliedBy(2)) > 0) {
+            log.warn("Password hashes take {} ms, well over the {} ms target; consider lowering "
+                    + "password-hashing.argon2-memory-kib", hashTime.toMillis(), settings.getTargetHashTime().toMillis());
+        }
+        return argon2(settings, iterations);
+    }
+
+    static int iterationsFor(Duration target, long nanosPerIteration, int minIterations, int maxIterations) {
+        long iterations = target.toNanos() / Math.max(nanosPerIteration, 1);
+        return (int) Math.clamp(iterations, minIterations, Math.max(minIterations, maxIterations));
+    }
+
+    private static Argon2PasswordEncoder argon2(PasswordHashingSettings settings, int iterations) {
+        return new Argon2PasswordEncoder(SALT_LENGTH, HASH_LENGTH, settings.getArgon2Parallelism(),
+                settings.getArgon2MemoryKib(), iterations);
+    }
+}
@@ -0,0 +1,90 @@
+package margo.grid.store.app.utils;
+
+import org.passay.dictionary.Dictionary;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Exact-match password list kept as the first 8 bytes of each password's SHA-1 digest in a sorted
+ * array: 8 bytes per entry, so a 10 million entry breached-password list takes about 80 MB, and a
+ * lookup is one digest and a binary search. Two passwords share a fingerprint with a probability
+ * of about n / 2^64, which is the only way a password outside the list can be reported as in it.
+ */
+public final class PasswordFingerprintSet implements Dictionary {
+    public static final PasswordFingerprintSet EMPTY = new PasswordFingerprintSet(new long[0]);
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(PasswordFingerprintSet::sha1);
+
+    private final long[] fingerprints;
+
+    private PasswordFingerprintSet(long[] fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    public static PasswordFingerprintSet of(Collection<String> passwords) {
+        long[] fingerprints = new long[passwords.size()];
+        int size = 0;
+        for (String password : passwords) fingerprints[size++] = fingerprint(password);
+        return new PasswordFingerprintSet(sortedDistinct(fingerprints, size));
+    }
+
+    /**
+     * Reads one password per line, UTF-8, skipping empty lines, and adds the given passwords.
+     */
+    public static PasswordFingerprintSet load(Path file, Collection<String> extra) throws IOException {
+        long[] fingerprints = new long[1024 + extra.size()];
+        int size = 0;
+        for (String password : extra) fingerprints[size++] = fingerprint(password);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) continue;
+                if (size == fingerprints.length) fingerprints = Arrays.copyOf(fingerprints, size * 2);
+                fingerprints[size++] = fingerprint(line);
+            }
+        }
+        return new PasswordFingerprintSet(sortedDistinct(fingerprints, size));
+    }
+
+    @Override
+    public boolean search(String password) {
+        return Arrays.binarySearch(fingerprints, fingerprint(password)) >= 0;
+    }
+
+    @Override
+    public long size() {
+        return fingerprints.length;
+    }
+
+    long[] fingerprints() {
+        return fingerprints;
+    }
+
+    static long fingerprint(String password) {
+        byte[] digest = SHA1.get().digest(password.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest).getLong();
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    private static long[] sortedDistinct(long[] values, int size) {
+        Arrays.sort(values, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || values[i] != values[distinct - 1]) values[distinct++] = values[i];
+        }
+        return values.length == distinct ? values : Arrays.copyOf(values, distinct);
+    }
+}
@@ -0,0 +1,73 @@
+package margo.grid.store.app.utils;
+
+import margo.grid.store.app.config.PasswordSettings;
+import org.passay.*;
+import org.passay.dictionary.Dictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The rules from {@link PasswordSettings} compiled into one Passay validator. It is immutable, so a
+ * single instance is shared by every validation until the policy is reloaded.
+ */
+public final class PasswordPolicy {
+    private final PasswordValidator validator;
+    private final long commonPasswordCount;
+
+    private PasswordPolicy(PasswordValidator validator, long commonPasswordCount) {
+        this.validator = validator;
+        this.commonPasswordCount = commonPasswordCount;
+    }
+
+    /**
+     * A password found in any of the dictionaries is rejected as a dictionary word.
+     */
+    public static PasswordPolicy compile(PasswordSettings settings, Dictionary... commonPasswords) {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(new LengthRule(settings.getMinLength(), settings.getMaxLength()));
+        rules.add(new CharacterRule(EnglishCharacterData.UpperCase, settings.getMinUppercase()));
+        rules.add(new CharacterRule(EnglishCharacterData.LowerCase, settings.getMinLowercase()));
+        rules.add(new CharacterRule(EnglishCharacterData.Digit, settings.getMinDigits()));
+        rules.add(new CharacterRule(EnglishCharacterData.Special, settings.getMinSpecial()));
+        int maxSequence = settings.getMaxSequenceLength();
+        rules.add(new IllegalSequenceRule(EnglishSequenceData.Alphabetical, maxSequence, false));
+        rules.add(new IllegalSequenceRule(EnglishSequenceData.Numerical, maxSequence, false));
+        rules.add(new IllegalSequenceRule(EnglishSequenceData.USQwerty, maxSequence, false));
+        rules.add(new RepeatCharacterRegexRule(settings.getMaxRepeatChars() + 1));
+        List<Dictionary> dictionaries = Arrays.stream(commonPasswords).filter(d -> d.size() != 0).toList();
+        if (!dictionaries.isEmpty()) {
+            rules.add(new DictionaryRule(dictionaries.size() == 1 ? dictionaries.getFirst()
+                    : new AnyOfDictionary(dictionaries)));
+        }
+        long commonPasswordCount = dictionaries.stream().mapToLong(Dictionary::size).sum();
+        return new PasswordPolicy(new PasswordValidator(rules), commonPasswordCount);
+    }
+
+    private record AnyOfDictionary(List<Dictionary> dictionaries) implements Dictionary {
+        @Override
+        public boolean search(String word) {
+            for (Dictionary dictionary : dictionaries) {
+                if (dictionary.search(word)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return dictionaries.stream().mapToLong(Dictionary::size).sum();
+        }
+    }
+
+    /**
+     * Returns the messages of the broken rules, empty when the password is acceptable.
+     */
+    public List<String> validate(String password) {
+        RuleResult result = validator.validate(new PasswordData(password));
+        return result.isValid() ? List.of() : validator.getMessages(result);
+    }
+
+    public long getCommonPasswordCount() {
+        return commonPasswordCount;
+    }
+}
@@ -0,0 +1,11 @@
+package margo.grid.store.app.utils;
+
+/**
+ * Outcome of taking a token from a bucket.
+ *
+ * @param remaining        tokens left in the bucket after this request
+ * @param nextTokenMillis  time until the bucket gains its next token, zero when it is full
+ * @param resetMillis      time until the bucket is full again
+ */
+public record RateLimitResult(boolean allowed, int limit, int remaining, long nextTokenMillis, long resetMillis) {
+}
@@ -0,0 +1,163 @@
+package margo.grid.store.app.utils;
+
+import margo.grid.store.app.config.RateLimitSettings;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import java.util.*;
+
+/**
+ * The paths of the rate-limit policies, parsed once into {@link PathPattern}s. Routes are indexed by
+ * the first segment of their pattern when it is a literal, so a request is only tried against the
+ * routes under its own first segment and those starting with a variable, most specific first. The
+ * first segment is looked up in the raw request URI and literal patterns are compared with it as
+ * they are, so only a request that reaches a route with variables or wildcards has its path parsed.
+ */
+public class RateLimitRoutes {
+    private static final Route[] NONE = new Route[0];
+
+    private final String[] segments;
+    private final Route[][] segmentRoutes;
+    private final Route[] anySegment;
+    private final Route[] allRoutes;
+
+    private record Route(String policy, PathPattern pattern, String literal, Set<String> methods) {
+        boolean allows(String method) {
+            return methods.isEmpty() || methods.contains(method);
+        }
+    }
+
+    private RateLimitRoutes(String[] segments, Route[][] segmentRoutes, Route[] anySegment, Route[] allRoutes) {
+        this.segments = segments;
+        this.segmentRoutes = segmentRoutes;
+        this.anySegment = anySegment;
+        this.allRoutes = allRoutes;
+    }
+
+    public static RateLimitRoutes compile(Map<String, RateLimitSettings.Policy> policies) {
+        PathPatternParser parser = new PathPatternParser();
+        Map<String, List<Route>> literal = new LinkedHashMap<>();
+        List<Route> variable = new ArrayList<>();
+        List<Route> all = new ArrayList<>();
+        policies.forEach((name, policy) -> {
+            Set<String> methods = new HashSet<>();
+            policy.getMethods().forEach(method -> methods.add(method.name()));
+            for (String path : policy.getPaths()) {
+                PathPattern pattern = parser.parse(path);
+                Route route = new Route(name, pattern, isLiteral(pattern.getPatternString())
+                        ? pattern.getPatternString() : null, methods);
+                String segment = firstSegment(path);
+                if (segment == null) variable.add(route);
+                else literal.computeIfAbsent(segment, key -> new ArrayList<>()).add(route);
+                all.add(route);
+            }
+        });
+
+        String[] segments = literal.keySet().toArray(String[]::new);
+        Route[][] segmentRoutes = new Route[segments.length][];
+        for (int i = 0; i < segments.length; i++) {
+            List<Route> routes = literal.get(segments[i]);
+            routes.addAll(variable);
+            segmentRoutes[i] = sorted(routes);
+        }
+        return new RateLimitRoutes(segments, segmentRoutes, sorted(variable), sorted(all));
+    }
+
+    /**
+     * Name of the policy of the most specific route matching the request, or {@code null}.
+     */
+    public String match(String method, String requestUri, String contextPath) {
+        String context = contextPath == null ? "" : contextPath;
+        int start = context.length();
+        if (!requestUri.startsWith(context) || isEncoded(requestUri, start)) {
+            return match(method, allRoutes, RequestPath.parse(requestUri, context).pathWithinApplication());
+        }
+        PathContainer path = null;
+        for (Route route : candidates(requestUri, start)) {
+            if (!route.allows(method)) continue;
+            if (route.literal() != null) {
+                int length = route.literal().length();
+                boolean same = requestUri.length() - start == length
+                        && requestUri.regionMatches(start, route.literal(), 0, length);
+                if (same) return route.policy();
+                continue;
+            }
+            if (path == null) path = RequestPath.parse(requestUri, context).pathWithinApplication();
+            if (route.pattern().matches(path)) return route.policy();
+        }
+        return null;
+    }
+
+    /**
+     * Name of the policy of the most specific route matching the request, or {@code null}.
+     *
+     * @param path the path within the application, without the context path
+     */
+    public String match(String method, PathContainer path) {
+        List<PathContainer.Element> elements = path.elements();
+        Route[] routes = anySegment;
+        if (elements.size() > 1 && elements.get(1) instanceof PathContainer.PathSegment segment) {
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].equals(segment.valueToMatch())) {
+                    routes = segmentRoutes[i];
+                    break;
+                }
+            }
+        }
+        return match(method, routes, path);
+    }
+
+    private static String match(String method, Route[] routes, PathContainer path) {
+        for (Route route : routes) {
+            if (route.allows(method) && route.pattern().matches(path)) return route.policy();
+        }
+        return null;
+    }
+
+    private Route[] candidates(String uri, int start) {
+        if (start >= uri.length() || uri.charAt(start) != '/') return anySegment;
+        int from = start + 1;
+        int to = from;
+        while (to < uri.length() && uri.charAt(to) != '/') to++;
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].length() == to - from && uri.regionMatches(from, segments[i], 0, to - from)) {
+                return segmentRoutes[i];
+            }
+        }
+        return anySegment;
+    }
+
+    private static Route[] sorted(List<Route> routes) {
+        if (routes.isEmpty()) return NONE;
+        return routes.stream()
+                .sorted(Comparator.comparing(Route::pattern, PathPattern.SPECIFICITY_COMPARATOR))
+                .toArray(Route[]::new);
+    }
+
+    // encoded or parameterized segments are only known after decoding, so the raw URI cannot be compared
+    private static boolean isEncoded(String uri, int start) {
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '%' || c == ';') return true;
+        }
+        return false;
+    }
+
+    private static boolean isLiteral(String pattern) {
+        return pattern.startsWith("/") && pattern.indexOf('{') < 0 && pattern.indexOf('*') < 0
+                && pattern.indexOf('?') < 0 && pattern.indexOf('%') < 0;
+    }
+
+    // null when the first segment can match more than one literal
+    private static String firstSegment(String pattern) {
+        int start = pattern.startsWith("/") ? 1 : 0;
+        int end = pattern.indexOf('/', start);
+        String segment = pattern.substring(start, end < 0 ? pattern.length() : end);
+        if (segment.isEmpty()) return null;
+        for (char c : new char[]{'{', '*', '?'}) {
+            if (segment.indexOf(c) >= 0) return null;
+        }
+        return segment;
+    }
+}
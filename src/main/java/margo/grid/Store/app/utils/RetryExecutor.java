@@ -0,0 +1,70 @@
+package margo.grid.store.app.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import margo.grid.store.app.config.RetrySettings;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and runs it again, after an exponential backoff with full
+ * jitter, when it loses a race on a versioned row or a lock. The action must re-read whatever it
+ * changes, and the executor must be the outermost transaction boundary, otherwise a retry would only
+ * rejoin the transaction that already failed.
+ */
+@Component
+public class RetryExecutor {
+    private final TransactionOperations transactionTemplate;
+    private final RetrySettings settings;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public RetryExecutor(TransactionOperations transactionTemplate, RetrySettings settings,
+                         MeterRegistry meterRegistry) {
+        this.transactionTemplate = transactionTemplate;
+        this.settings = settings;
+        this.retries = Counter.builder("concurrency.retries")
+                .description("Actions run again after a concurrent update")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("concurrency.retries.exhausted")
+                .description("Actions given up after the last attempt lost a concurrent update")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        long backoffNanos = settings.getInitialBackoff().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= settings.getMaxAttempts()) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                sleep(ThreadLocalRandom.current().nextLong(backoffNanos + 1), e);
+                backoffNanos = Math.min(backoffNanos * 2, settings.getMaxBackoff().toNanos());
+            }
+        }
+    }
+
+    public void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static void sleep(long nanos, ConcurrencyFailureException cause) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
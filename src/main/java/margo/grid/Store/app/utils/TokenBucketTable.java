@@ -0,0 +1,190 @@
+package margo.grid.store.app.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for up to {@code capacity} clients in two preallocated arrays, so neither a request
+ * nor a flood of new client ids allocates anything. A client is a 64-bit key, see {@link #hash}; its
+ * bucket is one long with the tokens in the top 16 bits and the time of the last refill, in
+ * microseconds since the table was created, in the low 48 bits (enough for eight years), updated
+ * with CAS. Tokens come back one every {@code refillPeriod / maxTokens}, like Bucket4j's greedy refill.
+ * <p>
+ * A key lives in one of {@value #PROBES} slots after its home slot. When they are all taken, the new
+ * client takes over a slot whose bucket has refilled completely, which loses nothing since a full
+ * bucket is what an unknown client starts with; failing that, the slot whose bucket holds the most
+ * tokens, and the new client inherits that bucket as it is rather than a full one. Evicting a client
+ * never hands out more tokens than were left in the table, so neither the new client nor the evicted
+ * one, when it comes back, gets a fresh limit out of a window of drained buckets. Every new client
+ * also moves a clock hand {@value #SWEEP_STEP} slots on and frees the refilled buckets it passes, so
+ * cleanup is spread over the requests that add clients instead of pausing for a scan of the whole
+ * table. A race while a slot changes owner can at worst give a client one token too many. Taking
+ * over a slot whose bucket has not refilled yet is counted in {@link #evictions()}.
+ */
+public class TokenBucketTable {
+    static final int PROBES = 16;
+    static final int SWEEP_STEP = 4;
+    private static final long EMPTY = 0;
+    private static final long FULL = 0;
+    private static final int TIME_BITS = 48;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray states;
+    private final AtomicInteger sweepHand = new AtomicInteger();
+    private final AtomicLong evictions = new AtomicLong();
+    private final int mask;
+    private final int maxTokens;
+    private final long refillMicros;
+    private final long epochNanos;
+    private final LongSupplier nanoTime;
+
+    public TokenBucketTable(int capacity, int maxTokens, Duration refillPeriod) {
+        this(capacity, maxTokens, refillPeriod, System::nanoTime);
+    }
+
+    TokenBucketTable(int capacity, int maxTokens, Duration refillPeriod, LongSupplier nanoTime) {
+        if (maxTokens < 1 || maxTokens > 0xFFFF) throw new IllegalArgumentException("maxTokens must be 1..65535");
+        int slots = Math.max(PROBES, Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
+        this.keys = new AtomicLongArray(slots);
+        this.states = new AtomicLongArray(slots);
+        this.mask = slots - 1;
+        this.maxTokens = maxTokens;
+        this.refillMicros = Math.max(1, refillPeriod.toNanos() / 1000 / maxTokens);
+        this.nanoTime = nanoTime;
+        this.epochNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Takes a token from the client's bucket, returning {@code false} when it is empty.
+     */
+    public boolean tryConsume(long key) {
+        return consume(key).allowed();
+    }
+
+    /**
+     * Takes a token from the client's bucket if it has one and reports what is left in it.
+     */
+    public RateLimitResult consume(long key) {
+        long now = now();
+        int slot = find(key, now);
+        for (;;) {
+            long state = states.get(slot);
+            int tokens = tokens(state, now);
+            long refilledAt = tokens == maxTokens ? now : refilledAt(state, now);
+            if (tokens == 0) return result(false, 0, refilledAt, now);
+            if (states.compareAndSet(slot, state, encode(tokens - 1, refilledAt))) {
+                return result(true, tokens - 1, refilledAt, now);
+            }
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        int size = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (keys.get(slot) != EMPTY) size++;
+        }
+        return size;
+    }
+
+    /**
+     * 64-bit FNV-1a of {@code chars[from, to)} with a final avalanche; never returns the empty key.
+     */
+    public static long hash(CharSequence chars, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= chars.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private int find(long key, long now) {
+        int home = (int) (key ^ key >>> 32) & mask;
+        for (;;) {
+            int free = -1;
+            int fullest = -1;
+            int fullestTokens = -1;
+            for (int probe = 0; probe < PROBES; probe++) {
+                int slot = (home + probe) & mask;
+                long slotKey = keys.get(slot);
+                if (slotKey == key) return slot;
+                if (free >= 0) continue;
+                int tokens = slotKey == EMPTY ? maxTokens : tokens(states.get(slot), now);
+                if (tokens == maxTokens) {
+                    free = slot;
+                } else if (tokens > fullestTokens) {
+                    fullest = slot;
+                    fullestTokens = tokens;
+                }
+            }
+            sweep(now);
+            int slot = free >= 0 ? free : fullest;
+            long previous = keys.get(slot);
+            if (keys.compareAndSet(slot, previous, key)) {
+                // an evicted bucket is inherited as it is, only a free slot starts full
+                if (free >= 0) states.set(slot, FULL);
+                else evictions.incrementAndGet();
+                return slot;
+            }
+        }
+    }
+
+    private void sweep(long now) {
+        int start = sweepHand.getAndAdd(SWEEP_STEP);
+        for (int i = 0; i < SWEEP_STEP; i++) {
+            int slot = (start + i) & mask;
+            long key = keys.get(slot);
+            if (key != EMPTY && tokens(states.get(slot), now) == maxTokens && keys.compareAndSet(slot, key, EMPTY)) {
+                states.set(slot, FULL);
+            }
+        }
+    }
+
+    private int tokens(long state, long now) {
+        if (state == FULL) return maxTokens;
+        int tokens = (int) (state >>> TIME_BITS);
+        long refills = (now - (state & TIME_MASK)) / refillMicros;
+        return (int) Math.min(maxTokens, tokens + refills);
+    }
+
+    // keeps the part of an interval that has not produced a token yet
+    private long refilledAt(long state, long now) {
+        if (state == FULL) return now;
+        long refilledAt = state & TIME_MASK;
+        return refilledAt + (now - refilledAt) / refillMicros * refillMicros;
+    }
+
+    private RateLimitResult result(boolean allowed, int tokens, long refilledAt, long now) {
+        long nextToken = tokens == maxTokens ? 0 : refilledAt + refillMicros - now;
+        long full = refilledAt + (long) (maxTokens - tokens) * refillMicros - now;
+        return new RateLimitResult(allowed, maxTokens, tokens, toMillis(nextToken), toMillis(full));
+    }
+
+    private static long toMillis(long micros) {
+        return (micros + 999) / 1000;
+    }
+
+    private static long encode(int tokens, long refilledAt) {
+        return (long) tokens << TIME_BITS | refilledAt & TIME_MASK;
+    }
+
+    // starts at 1 so that no bucket state encodes to FULL
+    private long now() {
+        return (nanoTime.getAsLong() - epochNanos) / 1000 + 1;
+    }
+}
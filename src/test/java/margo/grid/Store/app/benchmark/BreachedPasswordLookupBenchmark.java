@@ -0,0 +1,74 @@
+package margo.grid.store.app.benchmark;
+
+import margo.grid.store.app.utils.BreachedPasswordFileTool;
+import margo.grid.store.app.utils.MappedPasswordFingerprintFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in a memory-mapped breached-password file of {@code entries} fingerprints, for passwords
+ * that are in the list and passwords that are not. The file is built once per trial through
+ * {@link BreachedPasswordFileTool}. Run with {@code mvn test-compile} and then the {@link #main}
+ * method on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BreachedPasswordLookupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int entries;
+
+    private Path directory;
+    private MappedPasswordFingerprintFile breached;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("breached-passwords");
+        Path plaintext = directory.resolve("breached.txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(plaintext)) {
+            for (int i = 0; i < entries; i++) {
+                writer.write("leaked-" + i);
+                writer.newLine();
+            }
+        }
+        Path fingerprints = directory.resolve("breached.pwfp");
+        BreachedPasswordFileTool.main(new String[]{plaintext.toString(), fingerprints.toString()});
+        Files.delete(plaintext);
+        breached = MappedPasswordFingerprintFile.open(fingerprints);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        breached = null;
+        Files.deleteIfExists(directory.resolve("breached.pwfp"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public boolean listed() {
+        return breached.search("leaked-" + ThreadLocalRandom.current().nextInt(entries));
+    }
+
+    @Benchmark
+    public boolean unlisted() {
+        return breached.search("fresh-" + ThreadLocalRandom.current().nextInt(entries));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BreachedPasswordLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
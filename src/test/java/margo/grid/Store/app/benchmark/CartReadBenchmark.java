@@ -0,0 +1,99 @@
+package margo.grid.store.app.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.CartSettings;
+import margo.grid.store.app.config.RetrySettings;
+import margo.grid.store.app.dto.CartDto;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.entity.User;
+import margo.grid.store.app.repository.CartStore;
+import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.repository.impl.InMemoryCartStore;
+import margo.grid.store.app.service.ReservationService;
+import margo.grid.store.app.service.impl.CartServiceImpl;
+import margo.grid.store.app.utils.MyUserDetails;
+import margo.grid.store.app.utils.RetryExecutor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.support.TransactionOperations;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * {@code GET /cart-items} for carts of different sizes: {@code rebuild} renders the cart from the
+ * stored lines (the cart changed since the last read), {@code cached} serves the unchanged summary.
+ * Run with {@code mvn test-compile} and then the {@link #main} method on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CartReadBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    private CartServiceImpl cartService;
+    private CartStore cartStore;
+    private MyUserDetails userDetails;
+    private UUID firstItemId;
+    private int firstQuantity = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        User user = User.builder().id(UUID.randomUUID()).email("bench@example.com").build();
+        userDetails = new MyUserDetails(user);
+        cartStore = new InMemoryCartStore();
+
+        List<Item> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            Item item = Item.builder()
+                    .id(UUID.randomUUID())
+                    .title("Item " + i)
+                    .price(BigDecimal.valueOf(10 + i, 2))
+                    .availableQuantity(100)
+                    .build();
+            items.add(item);
+            cartStore.setQuantity(user.getId(), item.getId(), 1 + i % 5);
+        }
+        firstItemId = items.getFirst().getId();
+
+        ItemRepository itemRepository = mock(ItemRepository.class, withSettings().stubOnly());
+        when(itemRepository.findAllById(any())).thenReturn(items);
+        ReservationService reservationService = mock(ReservationService.class, withSettings().stubOnly());
+        RetryExecutor retryExecutor = new RetryExecutor(TransactionOperations.withoutTransaction(), new RetrySettings(),
+                new SimpleMeterRegistry());
+        cartService = new CartServiceImpl(cartStore, itemRepository, reservationService, new CartSettings(),
+                retryExecutor);
+    }
+
+    @Benchmark
+    public CartDto rebuild() {
+        firstQuantity = firstQuantity == 1 ? 2 : 1;
+        cartStore.setQuantity(userDetails.getId(), firstItemId, firstQuantity);
+        return cartService.getCart(userDetails);
+    }
+
+    @Benchmark
+    public CartDto cached() {
+        return cartService.getCart(userDetails);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartReadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package margo.grid.store.app.benchmark;
+
+import margo.grid.store.app.repository.CartStore;
+import margo.grid.store.app.repository.impl.InMemoryCartStore;
+import java.lang.ref.Reference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Heap retained per cart with one million concurrent carts of three lines each, for the compact
+ * in-heap store and for the boxed {@code LinkedHashMap} the session-scoped cart used to keep.
+ * Run the {@link #main} method on the test classpath with {@code -Xmx4g}.
+ */
+public class CartStoreFootprintBenchmark {
+    private static final int CARTS = 1_000_000;
+    private static final int LINES_PER_CART = 3;
+
+    public static void main(String[] args) {
+        UUID[] catalog = new UUID[1000];
+        for (int i = 0; i < catalog.length; i++) {
+            catalog[i] = UUID.randomUUID();
+        }
+
+        report("InMemoryCartStore", () -> {
+            CartStore cartStore = new InMemoryCartStore();
+            for (int cart = 0; cart < CARTS; cart++) {
+                UUID cartId = UUID.randomUUID();
+                for (int line = 0; line < LINES_PER_CART; line++) {
+                    cartStore.setQuantity(cartId, catalog[(cart + line) % catalog.length], line + 1);
+                }
+            }
+            return cartStore;
+        });
+
+        report("Map<UUID, LinkedHashMap<UUID, Integer>>", () -> {
+            Map<UUID, Map<UUID, Integer>> carts = new ConcurrentHashMap<>();
+            for (int cart = 0; cart < CARTS; cart++) {
+                Map<UUID, Integer> cartItems = new LinkedHashMap<>();
+                for (int line = 0; line < LINES_PER_CART; line++) {
+                    cartItems.put(catalog[(cart + line) % catalog.length], line + 1);
+                }
+                carts.put(UUID.randomUUID(), cartItems);
+            }
+            return carts;
+        });
+    }
+
+    private static void report(String name, Supplier<Object> fill) {
+        long before = usedHeap();
+        Object carts = fill.get();
+        long after = usedHeap();
+        System.out.printf("%-45s %6d bytes per cart%n", name, (after - before) / CARTS);
+        Reference.reachabilityFence(carts);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
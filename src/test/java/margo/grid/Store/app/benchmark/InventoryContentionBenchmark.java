@@ -0,0 +1,64 @@
+package margo.grid.store.app.benchmark;
+
+import margo.grid.store.app.config.InventorySettings;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.service.impl.InventoryServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.support.TransactionOperations;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cart adds per second against a single hot item.
+ * Run with {@code mvn test-compile} and then the {@link #main} method on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class InventoryContentionBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    private InventoryServiceImpl inventoryService;
+    private UUID hotItemId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        hotItemId = UUID.randomUUID();
+        Item hotItem = Item.builder()
+                .id(hotItemId)
+                .title("Flash sale item")
+                .price(BigDecimal.TEN)
+                .availableQuantity(Integer.MAX_VALUE)
+                .build();
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        when(itemRepository.findById(hotItemId)).thenReturn(Optional.of(hotItem));
+        inventoryService = new InventoryServiceImpl(itemRepository, TransactionOperations.withoutTransaction(),
+                new InventorySettings(), event -> { });
+    }
+
+    @Benchmark
+    public void addToCart() {
+        inventoryService.reserve(hotItemId, 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(InventoryContentionBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package margo.grid.store.app.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import margo.grid.store.app.config.RateLimitSettings;
+import margo.grid.store.app.filter.RateLimitFilter;
+import margo.grid.store.app.repository.impl.InMemoryRateLimitStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a rate-limited request when the filter already tracks {@code clients} addresses, with
+ * {@code rate-limit.max-clients} at two million. {@code known} picks a tracked client, {@code spray}
+ * a new address every time, which makes the filter evict. The sample mode shows the percentiles, so
+ * a pause for cleanup would show up in the tail. Run with {@code mvn test-compile} and then the
+ * {@link #main} method on the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RateLimitFilterBenchmark {
+    private static final FilterChain PASS = (request, response) -> { };
+
+    @Param({"1000", "1000000"})
+    private int clients;
+
+    private RateLimitFilter filter;
+    private String[] addresses;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private long sprayed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RateLimitSettings settings = new RateLimitSettings();
+        RateLimitSettings.Policy login = new RateLimitSettings.Policy();
+        login.setPaths(List.of("/auth/login"));
+        login.setMaxRequests(1000);
+        login.setRefillPeriod(Duration.ofSeconds(1));
+        settings.getPolicies().put("login", login);
+        settings.setMaxClients(2_000_000);
+        filter = new RateLimitFilter(settings, new InMemoryRateLimitStore(settings), new SimpleMeterRegistry());
+
+        request = new MockHttpServletRequest("POST", "/store/auth/login");
+        request.setContextPath("/store");
+        response = new MockHttpServletResponse();
+        addresses = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            addresses[i] = "10." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF) + "." + (i & 0xFF);
+            request.setRemoteAddr(addresses[i]);
+            filter.doFilter(request, response, PASS);
+        }
+    }
+
+    @Benchmark
+    public int known() throws Exception {
+        request.setRemoteAddr(addresses[ThreadLocalRandom.current().nextInt(clients)]);
+        filter.doFilter(request, response, PASS);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int spray() throws Exception {
+        request.setRemoteAddr(addresses[(int) (sprayed++ % clients)] + ":" + sprayed);
+        filter.doFilter(request, response, PASS);
+        return response.getStatus();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,6 +1,12 @@
 package margo.grid.store.app.bootstrap;
 
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.entity.LegacyOrderItem;
+import margo.grid.store.app.entity.Order;
+import margo.grid.store.app.entity.OrderStatus;
+import margo.grid.store.app.entity.User;
 import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.repository.LegacyOrderItemRepository;
 import margo.grid.store.app.repository.OrderRepository;
 import margo.grid.store.app.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +14,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import java.math.BigDecimal;
+
+import static margo.grid.store.app.testdata.AuthTestDataProvider.PASSWORD_HASH;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
@@ -23,11 +32,14 @@ class BootStrapTest {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    LegacyOrderItemRepository legacyOrderItemRepository;
+
     BootStrap bootStrap;
 
     @BeforeEach
     void setUp() {
-        bootStrap = new BootStrap(userRepository, itemRepository, orderRepository);
+        bootStrap = new BootStrap(userRepository, itemRepository, orderRepository, legacyOrderItemRepository);
     }
 
     @Test
@@ -37,4 +49,26 @@ class BootStrapTest {
         assertThat(itemRepository.count()).isGreaterThan(0);
         assertThat(orderRepository.count()).isGreaterThan(0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void backfillOrderLines_withOrderLinkedThroughLegacyTable_shouldGiveItLinesAndTotal() {
+        // Arrange
+        User user = userRepository.save(User.builder().email("legacy@example.com").passwordHash(PASSWORD_HASH).build());
+        Item first = itemRepository.save(Item.builder()
+                .title("First").price(new BigDecimal("10.00")).availableQuantity(5).build());
+        Item second = itemRepository.save(Item.builder()
+                .title("Second").price(new BigDecimal("2.50")).availableQuantity(5).build());
+        Order order = orderRepository.save(Order.builder().status(OrderStatus.CONFIRMED).user(user).build());
+        legacyOrderItemRepository.save(new LegacyOrderItem(order.getId(), first.getId()));
+        legacyOrderItemRepository.save(new LegacyOrderItem(order.getId(), second.getId()));
+
+        // Act
+        bootStrap.backfillOrderLines();
+        bootStrap.backfillOrderLines();
+
+        // Assert
+        Order backfilled = orderRepository.findById(order.getId()).orElseThrow();
+        assertThat(backfilled.getTotal()).isEqualByComparingTo("12.50");
+        assertThat(backfilled.getLines()).hasSize(2);
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import margo.grid.store.app.dto.*;
+import margo.grid.store.app.exception.ServiceOverloadedException;
 import margo.grid.store.app.exception.UserAlreadyExistsException;
 import margo.grid.store.app.service.AuthService;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,7 +30,7 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "rate-limit.enabled=false")
 @AutoConfigureMockMvc
 class AuthControllerTest {
 
@@ -136,6 +137,16 @@ class AuthControllerTest {
         verifyLoginCaptureAndAssert();
     }
 
+    @Test
+    void login_whenPasswordHashingIsSaturated_shouldReturnServiceUnavailable() throws Exception {
+        // Arrange
+        when(authService.login(any(UserDto.class), any(HttpServletRequest.class)))
+                .thenThrow(new ServiceOverloadedException("Too many authentication requests, please try again later"));
+
+        // Act & Assert
+        performLoginRequest(userDto).andExpect(status().isServiceUnavailable());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {",,,", "invalid", "@test", "bad.email"})
     void login_withInvalidEmail_shouldReturnBadRequest(String invalidEmail) throws Exception {
@@ -27,13 +27,14 @@ import static margo.grid.store.app.config.PathConstants.FULL_CART_ITEMS_PATH;
 import static margo.grid.store.app.testdata.CartTestDataProvider.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "rate-limit.enabled=false")
 @AutoConfigureMockMvc
 class CartControllerTest {
 
@@ -75,12 +76,12 @@ class CartControllerTest {
     @Test
     void addItemToCart_withValidRequest_shouldAddItemAndReturnOk() throws Exception {
         // Arrange
-        doNothing().when(cartService).addItem(any(ItemToCartRequestDto.class));
+        doNothing().when(cartService).addItem(any(ItemToCartRequestDto.class), any());
 
         // Act & Assert
         performPostRequest(itemToCartRequest).andExpect(status().isOk());
 
-        verify(cartService).addItem(itemToCartRequestDtoCaptor.capture());
+        verify(cartService).addItem(itemToCartRequestDtoCaptor.capture(), eq(userDetails));
         ItemToCartRequestDto captured = itemToCartRequestDtoCaptor.getValue();
         assertEquals(itemToCartRequest.getItemId(), captured.getItemId());
         assertEquals(itemToCartRequest.getQuantity(), captured.getQuantity());
@@ -92,7 +93,7 @@ class CartControllerTest {
         // Act & Assert
         performPostRequest(invalidRequest).andExpect(status().isBadRequest());
 
-        verify(cartService, never()).addItem(itemToCartRequest);
+        verify(cartService, never()).addItem(any(), any());
     }
 
     @ParameterizedTest
@@ -100,12 +101,12 @@ class CartControllerTest {
     void addItemToCart_withException_shouldReturnExpectedStatus(
             Exception exception, int expectedStatus) throws Exception {
         // Arrange
-        doThrow(exception).when(cartService).addItem(any(ItemToCartRequestDto.class));
+        doThrow(exception).when(cartService).addItem(any(ItemToCartRequestDto.class), any());
 
         // Act & Assert
         performPostRequest(itemToCartRequest).andExpect(status().is(expectedStatus));
 
-        verify(cartService).addItem(itemToCartRequest);
+        verify(cartService).addItem(itemToCartRequest, userDetails);
     }
 
     @ParameterizedTest
@@ -114,7 +115,7 @@ class CartControllerTest {
         // Act & Assert
         performPostRequestWithRawJson(json).andExpect(status().isBadRequest());
 
-        verify(cartService, never()).addItem(itemToCartRequest);
+        verify(cartService, never()).addItem(any(), any());
     }
 
     @Test
@@ -122,19 +123,19 @@ class CartControllerTest {
         // Act & Assert
         performUnauthenticatedPostRequest(itemToCartRequest).andExpect(status().isUnauthorized());
 
-        verify(cartService, never()).addItem(any());
+        verify(cartService, never()).addItem(any(), any());
     }
 
     @Test
     void modifyItemInCart_withValidRequest_shouldModifyItemAndReturnNoContent() throws Exception {
         // Arrange
         itemToCartRequest.setQuantity(10);
-        doNothing().when(cartService).modifyItem(any(ItemToCartRequestDto.class));
+        doNothing().when(cartService).modifyItem(any(ItemToCartRequestDto.class), any());
 
         // Act & Assert
         performPutRequest(itemToCartRequest).andExpect(status().isNoContent());
 
-        verify(cartService).modifyItem(itemToCartRequestDtoCaptor.capture());
+        verify(cartService).modifyItem(itemToCartRequestDtoCaptor.capture(), eq(userDetails));
         ItemToCartRequestDto captured = itemToCartRequestDtoCaptor.getValue();
         assertEquals(itemToCartRequest.getItemId(), captured.getItemId());
         assertEquals(itemToCartRequest.getQuantity(), captured.getQuantity());
@@ -146,7 +147,7 @@ class CartControllerTest {
         // Act & Assert
         performPutRequest(invalidRequest).andExpect(status().isBadRequest());
 
-        verify(cartService, never()).modifyItem(any());
+        verify(cartService, never()).modifyItem(any(), any());
     }
 
     @ParameterizedTest
@@ -154,12 +155,12 @@ class CartControllerTest {
     void modifyItemInCart_withException_shouldReturnExpectedStatus(
             Exception exception, int expectedStatus) throws Exception {
         // Arrange
-        doThrow(exception).when(cartService).modifyItem(itemToCartRequest);
+        doThrow(exception).when(cartService).modifyItem(itemToCartRequest, userDetails);
 
         // Act & Assert
         performPutRequest(itemToCartRequest).andExpect(status().is(expectedStatus));
 
-        verify(cartService).modifyItem(itemToCartRequest);
+        verify(cartService).modifyItem(itemToCartRequest, userDetails);
     }
 
     @Test
@@ -167,7 +168,7 @@ class CartControllerTest {
         // Act & Assert
         performPutRequestWithRawJson(invalidJson).andExpect(status().isBadRequest());
 
-        verify(cartService, never()).modifyItem(any());
+        verify(cartService, never()).modifyItem(any(), any());
     }
 
     @Test
@@ -175,30 +176,30 @@ class CartControllerTest {
         // Act & Assert
         performUnauthenticatedPutRequest(itemToCartRequest).andExpect(status().isUnauthorized());
 
-        verify(cartService, never()).modifyItem(any());
+        verify(cartService, never()).modifyItem(any(), any());
     }
 
     @Test
     void deleteItemFromCart_withValidId_shouldDeleteItemAndReturnNoContent() throws Exception {
         // Arrange
-        doNothing().when(cartService).removeItem(itemId);
+        doNothing().when(cartService).removeItem(itemId, userDetails);
 
         // Act & Assert
         performDeleteRequest(itemId).andExpect(status().isNoContent());
 
-        verify(cartService).removeItem(uuidArgumentCaptor.capture());
+        verify(cartService).removeItem(uuidArgumentCaptor.capture(), eq(userDetails));
         assertEquals(itemId, uuidArgumentCaptor.getValue());
     }
 
     @Test
     void deleteItemFromCart_withException_shouldReturnNotFound() throws Exception {
         // Arrange
-        doThrow(new EntityNotFoundException()).when(cartService).removeItem(itemId);
+        doThrow(new EntityNotFoundException()).when(cartService).removeItem(itemId, userDetails);
 
         // Act & Assert
         performDeleteRequest(itemId).andExpect(status().isNotFound());
 
-        verify(cartService).removeItem(itemId);
+        verify(cartService).removeItem(itemId, userDetails);
     }
 
     @Test
@@ -206,13 +207,13 @@ class CartControllerTest {
         // Act & Assert
         performUnauthenticatedDeleteRequest(itemId).andExpect(status().isUnauthorized());
 
-        verify(cartService, never()).removeItem(any());
+        verify(cartService, never()).removeItem(any(), any());
     }
 
     @Test
     void getAllItemsInCart_shouldReturnCartDto() throws Exception {
         // Arrange
-        when(cartService.getCart()).thenReturn(cartDto);
+        when(cartService.getCart(userDetails)).thenReturn(cartDto);
 
         // Act & Assert
         performGetRequest()
@@ -224,14 +225,14 @@ class CartControllerTest {
                 .andExpect(jsonPath("$.total_price").value(cartDto.getTotalPrice()))
                 .andExpect(jsonPath("$.total_quantity").value(cartDto.getTotalQuantity()));
 
-        verify(cartService).getCart();
+        verify(cartService).getCart(userDetails);
     }
 
     @Test
     void getAllItemsInCart_whenCartIsEmpty_shouldReturnEmptyCart() throws Exception {
         // Arrange
         CartDto emptyCart = createEmptyCart();
-        when(cartService.getCart()).thenReturn(emptyCart);
+        when(cartService.getCart(userDetails)).thenReturn(emptyCart);
 
         // Act & Assert
         performGetRequest()
@@ -241,13 +242,13 @@ class CartControllerTest {
                 .andExpect(jsonPath("$.total_price").value(0))
                 .andExpect(jsonPath("$.total_quantity").value(0));
 
-        verify(cartService).getCart();
+        verify(cartService).getCart(userDetails);
     }
 
     @Test
     void getAllItemsInCart_shouldReturnItemsWithCorrectStructure() throws Exception {
         // Arrange
-        when(cartService.getCart()).thenReturn(cartDto);
+        when(cartService.getCart(userDetails)).thenReturn(cartDto);
 
         // Act & Assert
         performGetRequest()
@@ -259,7 +260,7 @@ class CartControllerTest {
                 .andExpect(jsonPath("$.items[0].subtotal").exists())
                 .andExpect(jsonPath("$.items[0].ordinal").exists());
 
-        verify(cartService).getCart();
+        verify(cartService).getCart(userDetails);
     }
 
     @Test
@@ -267,7 +268,7 @@ class CartControllerTest {
         // Act & Assert
         performUnauthenticatedGetRequest().andExpect(status().isUnauthorized());
 
-        verify(cartService, never()).getCart();
+        verify(cartService, never()).getCart(any());
     }
 
     private ResultActions performPostRequest(Object requestBody) throws Exception {
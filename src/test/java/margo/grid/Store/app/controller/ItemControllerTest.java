@@ -1,8 +1,10 @@
 package margo.grid.store.app.controller;
 
 import jakarta.persistence.EntityNotFoundException;
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.ItemResponseDto;
 import margo.grid.store.app.service.ItemService;
+import margo.grid.store.app.utils.Cursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -15,24 +17,31 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
 import static margo.grid.store.app.config.PathConstants.ITEMS_PATH;
 import static margo.grid.store.app.testdata.ItemTestDataProvider.getItemResponseDtos;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "rate-limit.enabled=false")
 @AutoConfigureMockMvc
 class ItemControllerTest {
 
@@ -138,6 +147,70 @@ class ItemControllerTest {
         captureAndCheckPageable(0, 10);
     }
 
+    @Test
+    void getAllStoreItems_withoutCount_shouldReturnSliceWithEstimatedTotal() throws Exception {
+        // Arrange
+        when(itemService.getItemSlice(any(Pageable.class)))
+                .thenAnswer(invocation -> new SliceImpl<>(itemResponseDtos, invocation.getArgument(0), false));
+        when(itemService.estimateItemCount()).thenReturn(0L);
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH)
+                        .param("count", "false")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.meta.page").value(0))
+                .andExpect(jsonPath("$.meta.has_next").value(false))
+                .andExpect(jsonPath("$.meta.total_count").value(itemResponseDtos.size()))
+                .andExpect(jsonPath("$.meta.total_is_estimate").value(true))
+                .andExpect(jsonPath("$.content.length()").value(itemResponseDtos.size()));
+
+        verify(itemService, never()).getItems(any(Pageable.class));
+    }
+
+    @Test
+    void getAllStoreItems_withCount_shouldNotReportEstimate() throws Exception {
+        // Arrange
+        configurePageable(itemResponseDtos);
+
+        // Act & Assert
+        performGetAllItemsRequest()
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.meta.total_is_estimate").doesNotExist());
+    }
+
+    @Test
+    void getAllStoreItems_withAfterCursor_shouldReturnCursorPage() throws Exception {
+        // Arrange
+        String after = new Cursor("Apple", UUID.randomUUID()).encode();
+        String nextCursor = new Cursor("Banana", UUID.randomUUID()).encode();
+        when(itemService.getItemsAfter(after, 20))
+                .thenReturn(new CursorPage<>(itemResponseDtos, 20, nextCursor));
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH)
+                        .param("after", after)
+                        .param("size", "20")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.meta.page_size").value(20))
+                .andExpect(jsonPath("$.meta.has_next").value(true))
+                .andExpect(jsonPath("$.meta.next_cursor").value(nextCursor))
+                .andExpect(jsonPath("$.content.length()").value(itemResponseDtos.size()));
+
+        verify(itemService, never()).getItems(any(Pageable.class));
+    }
+
+    @Test
+    void getAllStoreItems_withMalformedCursor_shouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(itemService.getItemsAfter("broken", 10)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH).param("after", "broken").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getItemById_shouldReturnSpecificItem() throws Exception {
         // Arrange
@@ -156,6 +229,71 @@ class ItemControllerTest {
         verifyGetItemByIdCaptureAndAssert(itemId);
     }
 
+    @Test
+    void getAllStoreItems_withMatchingCatalogVersion_shouldReturnNotModified() throws Exception {
+        // Arrange
+        configurePageable(itemResponseDtos);
+        when(itemService.getCatalogVersion()).thenReturn(0x2aL);
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"2a\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2a\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getAllStoreItems_afterCatalogChanged_shouldReturnPageWithNewTag() throws Exception {
+        // Arrange
+        configurePageable(itemResponseDtos);
+        when(itemService.getCatalogVersion()).thenReturn(0x2bL);
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"2a\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2b\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+                .andExpect(jsonPath("$.content.length()").value(itemResponseDtos.size()));
+    }
+
+    @Test
+    void getItemById_withMatchingEtag_shouldReturnNotModified() throws Exception {
+        // Arrange
+        UUID itemId = itemResponseDto.getId();
+        itemResponseDto.setUpdatedAt(Timestamp.from(Instant.parse("2025-05-01T12:00:00Z")));
+        when(itemService.getItemById(itemId)).thenReturn(itemResponseDto);
+        String etag = performGetItemByIdRequest(itemId)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Thu, 01 May 2025 12:00:00 GMT"))
+                .andExpect(jsonPath("$.updated_at").doesNotExist())
+                .andExpect(jsonPath("$.updatedAt").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH + "/{id}", itemId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getItemById_afterItemChanged_shouldReturnItemWithNewEtag() throws Exception {
+        // Arrange
+        UUID itemId = itemResponseDto.getId();
+        when(itemService.getItemById(itemId)).thenReturn(itemResponseDto);
+        String etag = performGetItemByIdRequest(itemId).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        itemResponseDto.setAvailableQuantity(itemResponseDto.getAvailableQuantity() - 1);
+
+        // Act & Assert
+        mockMvc.perform(get(ITEMS_PATH + "/{id}", itemId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$.available_quantity").value(itemResponseDto.getAvailableQuantity()));
+    }
+
     @Test
     void getItemById_whenItemDoesNotExist_shouldReturnNotFoundStatus() throws Exception {
         // Arrange
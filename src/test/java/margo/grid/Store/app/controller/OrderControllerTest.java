@@ -1,6 +1,7 @@
 package margo.grid.store.app.controller;
 
 import jakarta.persistence.EntityNotFoundException;
+import margo.grid.store.app.dto.CancellationResponseDto;
 import margo.grid.store.app.dto.OrderResponseDto;
 import margo.grid.store.app.entity.OrderStatus;
 import margo.grid.store.app.service.OrderService;
@@ -17,6 +18,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -26,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
+import static margo.grid.store.app.config.PathConstants.CANCELLATIONS_PATH;
 import static margo.grid.store.app.config.PathConstants.ORDERS_PATH;
 import static margo.grid.store.app.testdata.OrderTestDataProvider.createOrderResponseDto;
 import static margo.grid.store.app.testdata.OrderTestDataProvider.getOrderResponseDtos;
@@ -38,7 +41,7 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "rate-limit.enabled=false")
 @AutoConfigureMockMvc
 class OrderControllerTest {
 
@@ -79,7 +82,7 @@ class OrderControllerTest {
     @Test
     void createOrder_shouldCreateOrderAndReturnCreatedStatus() throws Exception {
         // Arrange
-        when(orderService.createOrder(userDetails)).thenReturn(orderResponseDto);
+        when(orderService.createOrder(userDetails, null)).thenReturn(orderResponseDto);
 
         // Act & Assert
         performAuthenticatedPostRequest().andExpect(status().isCreated())
@@ -98,7 +101,24 @@ class OrderControllerTest {
         // Act & Assert
         performUnauthenticatedPostRequest().andExpect(status().isUnauthorized());
 
-        verify(orderService, never()).createOrder(userDetails);
+        verify(orderService, never()).createOrder(any(), any());
+    }
+
+    @Test
+    void createOrder_withIdempotencyKey_shouldPassKeyToService() throws Exception {
+        // Arrange
+        when(orderService.createOrder(any(), eq("checkout-1"))).thenReturn(orderResponseDto);
+
+        // Act & Assert
+        mockMvc.perform(post(ORDERS_PATH)
+                        .with(user(userDetails))
+                        .header("Idempotency-Key", "checkout-1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(orderResponseDto.getId().toString()));
+
+        verify(orderService).createOrder(userDetailsArgumentCaptor.capture(), eq("checkout-1"));
+        assertEquals(userId, userDetailsArgumentCaptor.getValue().getId());
     }
 
     @Test
@@ -172,6 +192,32 @@ class OrderControllerTest {
 
         verify(orderService, never()).cancelOrder(orderId, userDetails);
     }
+    @Test
+    void cancelOrders_shouldReportCancelledOrdersAndRestoredUnits() throws Exception {
+        // Arrange
+        List<UUID> orderIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(orderService.cancelOrders(eq(orderIds), any())).thenReturn(new CancellationResponseDto(2, 7));
+
+        // Act & Assert
+        performAuthenticatedCancellationsRequest(
+                "{\"order_ids\": [\"" + orderIds.get(0) + "\", \"" + orderIds.get(1) + "\"]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cancelled_orders").value(2))
+                .andExpect(jsonPath("$.restored_units").value(7));
+
+        verify(orderService).cancelOrders(eq(orderIds), userDetailsArgumentCaptor.capture());
+        assertEquals(userId, userDetailsArgumentCaptor.getValue().getId());
+    }
+
+    @Test
+    void cancelOrders_withoutOrderIds_shouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        performAuthenticatedCancellationsRequest("{\"order_ids\": []}")
+                .andExpect(status().isBadRequest());
+
+        verify(orderService, never()).cancelOrders(any(), any());
+    }
+
     @Test
     void getAllUserOrders_shouldReturnAllUserOrders() throws Exception {
         // Arrange
@@ -211,6 +257,30 @@ class OrderControllerTest {
         captureAndCheckPageable(0, 10);
     }
 
+    @Test
+    void getAllUserOrders_withoutCount_shouldReturnSliceWithEstimatedTotal() throws Exception {
+        // Arrange
+        when(orderService.getUserOrderSlice(eq(userDetails), any(Pageable.class)))
+                .thenAnswer(invocation -> new SliceImpl<>(orderResponseDtos, invocation.getArgument(1), true));
+        when(orderService.estimateUserOrderCount(userDetails)).thenReturn(95L);
+
+        // Act & Assert
+        mockMvc.perform(get(ORDERS_PATH)
+                        .with(user(userDetails))
+                        .param("count", "false")
+                        .param("size", "20")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.meta.page_size").value(20))
+                .andExpect(jsonPath("$.meta.has_next").value(true))
+                .andExpect(jsonPath("$.meta.total_count").value(95))
+                .andExpect(jsonPath("$.meta.total_pages").value(5))
+                .andExpect(jsonPath("$.meta.total_is_estimate").value(true))
+                .andExpect(jsonPath("$.content.length()").value(orderResponseDtos.size()));
+
+        verify(orderService, never()).getAllUserOrders(any(), any());
+    }
+
     @ParameterizedTest
     @MethodSource("provideInvalidPaginationScenarios")
     void getAllUserOrders_withInvalidPagination_shouldReplaceWithDefaultPagination(
@@ -256,6 +326,13 @@ class OrderControllerTest {
         verify(orderService, never()).getAllUserOrders(any(), any());
     }
 
+    private ResultActions performAuthenticatedCancellationsRequest(String body) throws Exception {
+        return mockMvc.perform(post(ORDERS_PATH + CANCELLATIONS_PATH)
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
     private ResultActions performAuthenticatedPostRequest() throws Exception {
         return mockMvc.perform(post(ORDERS_PATH)
                 .with(user(userDetails))
@@ -309,7 +386,7 @@ class OrderControllerTest {
     }
 
     private void verifyCreateOrderCaptureAndAssert() {
-        verify(orderService).createOrder(userDetailsArgumentCaptor.capture());
+        verify(orderService).createOrder(userDetailsArgumentCaptor.capture(), isNull());
         assertEquals(userId, userDetailsArgumentCaptor.getValue().getId());
     }
 
@@ -1,10 +1,12 @@
 package margo.grid.store.app.filter;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import margo.grid.store.app.config.RateLimitSettings;
+import margo.grid.store.app.repository.impl.InMemoryRateLimitStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,6 +19,10 @@ import org.springframework.http.MediaType;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,17 +33,23 @@ class RateLimitFilterTest {
     @Mock private HttpServletResponse response;
     @Mock private FilterChain filterChain;
     @Mock private PrintWriter writer;
+    private RateLimitSettings.Policy loginPolicy;
+    private SimpleMeterRegistry meterRegistry;
     private RateLimitFilter rateLimitFilter;
 
     @BeforeEach
     void setUp() throws IOException {
-        rateLimitFilter = new RateLimitFilter(rateLimitSettings);
         lenient().when(rateLimitSettings.isEnabled()).thenReturn(true);
-        lenient().when(rateLimitSettings.getMaxRequests()).thenReturn(5);
-        lenient().when(rateLimitSettings.getRefillPeriod()).thenReturn(Duration.ofMinutes(20));
-        lenient().when(rateLimitSettings.getCleanupInterval()).thenReturn(Duration.ofMinutes(30));
-        lenient().when(rateLimitSettings.getExcludedPaths()).thenReturn(new String[]{"/register", "/forgot-password"});
+        meterRegistry = new SimpleMeterRegistry();
+        loginPolicy = policy(5, Duration.ofMinutes(20), "/auth/login", "/auth/reset-password");
+        Map<String, RateLimitSettings.Policy> policies = new LinkedHashMap<>();
+        policies.put("login", loginPolicy);
+        lenient().when(rateLimitSettings.getPolicies()).thenReturn(policies);
+        lenient().when(rateLimitSettings.getMaxClients()).thenReturn(1024);
+        lenient().when(request.getContextPath()).thenReturn("/store");
+        lenient().when(request.getMethod()).thenReturn("POST");
         lenient().when(response.getWriter()).thenReturn(writer);
+        rateLimitFilter = createFilter();
     }
 
     @Test
@@ -54,10 +66,10 @@ class RateLimitFilterTest {
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"/items", "/orders", "/cart-items", "/store/items"})
-    void doFilterInternal_whenPathNotUnderAuth_shouldAllowRequest(String path) throws ServletException, IOException {
+    @ValueSource(strings = {"/store/items", "/store/orders", "/store/cart-items", "/store/store/auth/login"})
+    void doFilterInternal_whenNoRouteMatches_shouldAllowRequest(String path) throws ServletException, IOException {
         // Arrange
-        when(request.getServletPath()).thenReturn(path);
+        when(request.getRequestURI()).thenReturn(path);
 
         // Act
         rateLimitFilter.doFilterInternal(request, response, filterChain);
@@ -68,10 +80,10 @@ class RateLimitFilterTest {
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"/register", "/forgot-password"})
-    void doFilterInternal_whenPathIsExcluded_shouldAllowRequest(String path) throws ServletException, IOException {
+    @ValueSource(strings = {"/store/auth/register", "/store/auth/forgot-password", "/store/auth/login/extra"})
+    void doFilterInternal_whenOtherAuthPath_shouldAllowRequest(String path) throws ServletException, IOException {
         // Arrange
-        when(request.getServletPath()).thenReturn(path);
+        when(request.getRequestURI()).thenReturn(path);
 
         // Act
         rateLimitFilter.doFilterInternal(request, response, filterChain);
@@ -84,7 +96,7 @@ class RateLimitFilterTest {
     @Test
     void doFilterInternal_whenWithinRateLimit_shouldAllowRequest() throws ServletException, IOException {
         // Arrange
-        when(request.getServletPath()).thenReturn("/store/auth/login");
+        when(request.getRequestURI()).thenReturn("/store/auth/login");
         when(request.getRemoteAddr()).thenReturn("192.168.1.1");
 
         // Act
@@ -99,9 +111,10 @@ class RateLimitFilterTest {
     void doFilterInternal_whenExceedingRateLimit_shouldBlockRequest() throws ServletException, IOException {
         // Arrange
         String clientIp = "192.168.1.1";
-        when(request.getServletPath()).thenReturn("/store/auth/login");
+        when(request.getRequestURI()).thenReturn("/store/auth/login");
         when(request.getRemoteAddr()).thenReturn(clientIp);
-        when(rateLimitSettings.getMaxRequests()).thenReturn(3);
+        loginPolicy.setMaxRequests(3);
+        rateLimitFilter = createFilter();
 
         // Act
         for (int i = 0; i < 3; i++) {
@@ -114,15 +127,38 @@ class RateLimitFilterTest {
         // Assert
         verify(filterChain, never()).doFilter(request, response);
         verify(response).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-        verify(response).setContentType(MediaType.APPLICATION_JSON.getType());
+        verify(response).setContentType(MediaType.APPLICATION_JSON_VALUE);
+        verify(response).setHeader("Retry-After", "400");
+        verify(response).setHeader("RateLimit-Remaining", "0");
         verify(writer).write("{\"message\": \"Too many attempts. Try later!!!\"}");
+        assertEquals(3, requests("allowed"));
+        assertEquals(1, requests("rejected"));
+    }
+
+    @Test
+    void doFilterInternal_whenWithinRateLimit_shouldReportRemainingQuota() throws ServletException, IOException {
+        // Arrange
+        when(request.getRequestURI()).thenReturn("/store/auth/login");
+        when(request.getRemoteAddr()).thenReturn("192.168.1.1");
+        rateLimitFilter.doFilterInternal(request, response, filterChain);
+        clearInvocations(response);
+
+        // Act
+        rateLimitFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(response).setHeader("RateLimit-Limit", "5");
+        verify(response).setHeader("RateLimit-Remaining", "3");
+        verify(response).setHeader("RateLimit-Reset", "480");
+        verify(response, never()).setHeader(eq("Retry-After"), anyString());
     }
 
     @Test
     void doFilterInternal_withDifferentClients_shouldTrackSeparately() throws ServletException, IOException {
         // Arrange
-        when(request.getServletPath()).thenReturn("/store/auth/login");
-        when(rateLimitSettings.getMaxRequests()).thenReturn(2);
+        when(request.getRequestURI()).thenReturn("/store/auth/login");
+        loginPolicy.setMaxRequests(2);
+        rateLimitFilter = createFilter();
 
         when(request.getRemoteAddr()).thenReturn("192.168.1.1");
         rateLimitFilter.doFilterInternal(request, response, filterChain);
@@ -137,42 +173,56 @@ class RateLimitFilterTest {
     }
 
     @Test
-    void cleanOldBuckets_shouldRemoveExpiredBuckets() throws ServletException, IOException, InterruptedException {
+    void doFilterInternal_afterRefillPeriod_shouldAllowAgain() throws ServletException, IOException, InterruptedException {
         // Arrange
-        when(request.getServletPath()).thenReturn("/store/auth/login");
+        when(request.getRequestURI()).thenReturn("/store/auth/login");
         when(request.getRemoteAddr()).thenReturn("192.168.1.1");
-        when(rateLimitSettings.getCleanupInterval()).thenReturn(Duration.ofMillis(100));
+        loginPolicy.setMaxRequests(1);
+        loginPolicy.setRefillPeriod(Duration.ofMillis(100));
+        rateLimitFilter = createFilter();
         rateLimitFilter.doFilterInternal(request, response, filterChain);
         Thread.sleep(150);
 
         // Act
-        rateLimitFilter.cleanOldBuckets();
-
-        // Assert
         clearInvocations(filterChain);
         rateLimitFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
         verify(filterChain).doFilter(request, response);
+        verify(response, never()).setStatus(anyInt());
     }
 
     @Test
-    void cleanOldBuckets_shouldNotRemoveRecentBuckets() throws ServletException, IOException {
+    void doFilterInternal_withForwardedChain_shouldLimitByFirstTrimmedAddress() throws ServletException, IOException {
         // Arrange
-        when(request.getServletPath()).thenReturn("/store/auth/login");
-        when(request.getRemoteAddr()).thenReturn("192.168.1.1");
-        when(rateLimitSettings.getMaxRequests()).thenReturn(1);
-        when(rateLimitSettings.getCleanupInterval()).thenReturn(Duration.ofHours(1));
-
-        // Create a bucket by making a request (exhausts the limit)
+        when(request.getRequestURI()).thenReturn("/store/auth/login");
+        loginPolicy.setMaxRequests(1);
+        rateLimitFilter = createFilter();
+        when(request.getHeader("X-Forwarded-For")).thenReturn(" 10.0.0.1 , 172.16.0.1");
         rateLimitFilter.doFilterInternal(request, response, filterChain);
 
         // Act
-        rateLimitFilter.cleanOldBuckets();
-
-        // Assert
-        clearInvocations(response, filterChain, writer);
+        when(request.getHeader("X-Forwarded-For")).thenReturn("10.0.0.1, 172.16.0.2");
         rateLimitFilter.doFilterInternal(request, response, filterChain);
 
-        verify(filterChain, never()).doFilter(request, response);
+        // Assert
+        verify(filterChain, times(1)).doFilter(request, response);
         verify(response).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
     }
-}
\ No newline at end of file
+
+    private RateLimitFilter createFilter() {
+        return new RateLimitFilter(rateLimitSettings, new InMemoryRateLimitStore(rateLimitSettings), meterRegistry);
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("rate-limit.requests").tag("policy", "login").tag("result", result).counter().count();
+    }
+
+    private static RateLimitSettings.Policy policy(int maxRequests, Duration refillPeriod, String... paths) {
+        RateLimitSettings.Policy policy = new RateLimitSettings.Policy();
+        policy.setMaxRequests(maxRequests);
+        policy.setRefillPeriod(refillPeriod);
+        policy.setPaths(List.of(paths));
+        return policy;
+    }
+}
@@ -0,0 +1,107 @@
+package margo.grid.store.app.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.RetrySettings;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.utils.RetryExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers one item from many threads: half of them change it through the versioned entity with
+ * {@link RetryExecutor}, half through the bulk stock update the inventory flush uses.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ItemConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 100;
+    private static final int INITIAL_STOCK = 10_000;
+    private static final double MIN_UPDATES_PER_SECOND = 50;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    SimpleMeterRegistry meterRegistry;
+    RetryExecutor retryExecutor;
+    UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        RetrySettings settings = new RetrySettings();
+        settings.setMaxAttempts(50);
+        meterRegistry = new SimpleMeterRegistry();
+        retryExecutor = new RetryExecutor(transactionTemplate, settings, meterRegistry);
+        itemId = itemRepository.save(Item.builder()
+                .title("Contended item")
+                .price(BigDecimal.TEN)
+                .availableQuantity(INITIAL_STOCK)
+                .build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        itemRepository.deleteById(itemId);
+    }
+
+    @Test
+    void concurrentDecrements_shouldLeaveExactStockWithinThroughputBound() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            boolean viaEntity = thread % 2 == 0;
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    if (viaEntity) decrementThroughEntity();
+                    else itemRepository.reserveStock(itemId, 1);
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        executor.shutdown();
+
+        // Assert
+        int updates = THREADS * UPDATES_PER_THREAD;
+        Item item = itemRepository.findById(itemId).orElseThrow();
+        assertThat(item.getAvailableQuantity()).isEqualTo(INITIAL_STOCK - updates);
+        assertThat(item.getVersion()).isEqualTo(updates);
+        assertThat(meterRegistry.counter("concurrency.retries.exhausted").count()).isZero();
+        assertThat(updates / seconds).isGreaterThanOrEqualTo(MIN_UPDATES_PER_SECOND);
+    }
+
+    private void decrementThroughEntity() {
+        retryExecutor.run(() -> {
+            Item item = itemRepository.findById(itemId).orElseThrow();
+            item.setAvailableQuantity(item.getAvailableQuantity() - 1);
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package margo.grid.store.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import margo.grid.store.app.dto.OrderSummaryDto;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.entity.Order;
+import margo.grid.store.app.entity.OrderStatus;
+import margo.grid.store.app.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static margo.grid.store.app.testdata.AuthTestDataProvider.PASSWORD_HASH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderRepositoryTest {
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    User user;
+
+    Item item;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .email("order-history@example.com")
+                .passwordHash(PASSWORD_HASH)
+                .build());
+        Item first = item = itemRepository.save(Item.builder()
+                .title("Notebook").price(new BigDecimal("3.50")).availableQuantity(100).build());
+        Item second = itemRepository.save(Item.builder()
+                .title("Pencil").price(new BigDecimal("0.75")).availableQuantity(100).build());
+
+        for (int i = 0; i < PAGE_SIZE * 2; i++) {
+            Order order = Order.builder().status(OrderStatus.CONFIRMED).user(user).build();
+            order.addLine(first, 1 + i % 3);
+            order.addLine(second, 2);
+            orderRepository.save(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findOrderSummaries_forFullPage_shouldUseAtMostTwoStatements() {
+        // Arrange
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        Page<OrderSummaryDto> page = orderRepository.findOrderSummaries(user.getId(), OrderStatus.CONFIRMED,
+                PageRequest.of(0, PAGE_SIZE));
+
+        // Assert
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getContent()).allSatisfy(summary -> assertThat(summary.total()).isPositive());
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void findOrderSummarySlice_shouldSkipCountQuery() {
+        // Arrange
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        Slice<OrderSummaryDto> slice = orderRepository.findOrderSummarySlice(user.getId(), OrderStatus.CONFIRMED,
+                PageRequest.of(0, PAGE_SIZE));
+
+        // Assert
+        assertThat(slice.getContent()).hasSize(PAGE_SIZE);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findOrderSummariesAfter_walkingAllPages_shouldReturnEveryOrderOnceNewestFirst() {
+        // Arrange
+        int size = 30;
+        List<OrderSummaryDto> seen = new ArrayList<>();
+
+        // Act
+        List<OrderSummaryDto> page = orderRepository.findFirstOrderSummaries(user.getId(), OrderStatus.CONFIRMED,
+                Limit.of(size));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            OrderSummaryDto last = page.getLast();
+            page = orderRepository.findOrderSummariesAfter(user.getId(), OrderStatus.CONFIRMED,
+                    last.createdAt(), last.id(), Limit.of(size));
+        }
+
+        // Assert
+        assertThat(seen).hasSize(PAGE_SIZE * 2);
+        assertThat(seen).extracting(OrderSummaryDto::id).doesNotHaveDuplicates();
+        assertThat(seen).extracting(OrderSummaryDto::createdAt)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void saveAndFlush_orderWithManyLines_shouldBatchLineInserts() {
+        // Arrange
+        Order order = Order.builder().status(OrderStatus.CONFIRMED).user(user).build();
+        for (int i = 0; i < 20; i++) {
+            order.addLine(item, 1);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        orderRepository.saveAndFlush(order);
+
+        // Assert
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void saveAndFlush_withAlreadyUsedIdempotencyKey_shouldBeRejected() {
+        // Arrange
+        UUID idempotencyKey = UUID.randomUUID();
+        orderRepository.saveAndFlush(Order.builder()
+                .status(OrderStatus.CONFIRMED).user(user).idempotencyKey(idempotencyKey).build());
+        Order retry = Order.builder().status(OrderStatus.CONFIRMED).user(user).idempotencyKey(idempotencyKey).build();
+
+        // Act & Assert
+        assertThatThrownBy(() -> orderRepository.saveAndFlush(retry))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void findByIdempotencyKey_shouldReturnOrderPlacedWithThatKey() {
+        // Arrange
+        UUID idempotencyKey = UUID.randomUUID();
+        Order placed = orderRepository.saveAndFlush(Order.builder()
+                .status(OrderStatus.CONFIRMED).user(user).idempotencyKey(idempotencyKey).build());
+
+        // Act & Assert
+        assertThat(orderRepository.findByIdempotencyKey(idempotencyKey)).map(Order::getId).contains(placed.getId());
+        assertThat(orderRepository.findByIdempotencyKey(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void cancellingOrders_shouldFlipOnlyConfirmedOnesAndRestockTheirLinesInBulk() {
+        // Arrange
+        List<UUID> orderIds = orderRepository.findFirstOrderSummaries(user.getId(), OrderStatus.CONFIRMED,
+                Limit.of(3)).stream().map(OrderSummaryDto::id).toList();
+        int stockBefore = itemRepository.findById(item.getId()).orElseThrow().getAvailableQuantity();
+
+        // Act
+        List<UUID> cancellable = orderRepository.findIdsByUser(orderIds, user.getId(), OrderStatus.CONFIRMED);
+        int cancelled = orderRepository.updateStatus(cancellable, OrderStatus.CONFIRMED, OrderStatus.CANCELLED);
+        int cancelledAgain = orderRepository.updateStatus(cancellable, OrderStatus.CONFIRMED, OrderStatus.CANCELLED);
+        Map<UUID, Integer> quantities = new HashMap<>();
+        orderRepository.sumQuantitiesByItem(cancellable)
+                .forEach(line -> quantities.put(line.itemId(), Math.toIntExact(line.quantity())));
+        int restockedItems = itemRepository.addStock(quantities);
+
+        // Assert
+        assertThat(cancellable).containsExactlyInAnyOrderElementsOf(orderIds);
+        assertThat(cancelled).isEqualTo(3);
+        assertThat(cancelledAgain).isZero();
+        assertThat(quantities).hasSize(2).containsValue(6);
+        assertThat(restockedItems).isEqualTo(2);
+        assertThat(itemRepository.findById(item.getId()).orElseThrow().getAvailableQuantity())
+                .isEqualTo(stockBefore + quantities.get(item.getId()));
+        assertThat(orderRepository.countByUser_IdAndStatus(user.getId(), OrderStatus.CONFIRMED))
+                .isEqualTo(PAGE_SIZE * 2 - 3);
+    }
+}
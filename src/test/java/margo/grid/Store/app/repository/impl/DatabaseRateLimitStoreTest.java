@@ -0,0 +1,318 @@
+package margo.grid.store.app.repository.impl;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.RateLimitSettings;
+import margo.grid.store.app.entity.RateLimitBucket;
+import margo.grid.store.app.repository.RateLimitBucketRepository;
+import margo.grid.store.app.utils.RateLimitResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs several stores against the same table, each standing for one node of the deployment. The table
+ * lives in an embedded H2 database in MySQL mode, so the test needs no database server.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rate-limit;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=h2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DatabaseRateLimitStoreTest {
+    private static final long CLIENT = 0x5EED_0001L;
+    private static final long OTHER_CLIENT = 0x5EED_0002L;
+    private static final String LOGIN = "login";
+    private static final String CHECKOUT = "checkout";
+    private static final String CATALOG = "catalog";
+
+    @Autowired
+    RateLimitBucketRepository bucketRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    DataSourceProperties dataSourceProperties;
+
+    RateLimitSettings settings;
+    RateLimitSettings.Policy login;
+    SimpleMeterRegistry meterRegistry;
+    AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        settings = new RateLimitSettings();
+        login = policy(3, Duration.ofMinutes(3));
+        settings.getPolicies().put(LOGIN, login);
+        settings.getPolicies().put(CHECKOUT, policy(1, Duration.ofSeconds(1)));
+        settings.setMaxClients(1024);
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong(System.currentTimeMillis());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bucketRepository.deleteAll();
+    }
+
+    @Test
+    void tryConsume_onSeveralNodes_shouldShareOneLimit() {
+        // Arrange
+        DatabaseRateLimitStore first = createStore();
+        DatabaseRateLimitStore second = createStore();
+
+        // Act
+        boolean firstAllowed = first.tryConsume(LOGIN, CLIENT).allowed();
+        boolean secondAllowed = second.tryConsume(LOGIN, CLIENT).allowed();
+        boolean thirdAllowed = first.tryConsume(LOGIN, CLIENT).allowed();
+        boolean fourthAllowed = second.tryConsume(LOGIN, CLIENT).allowed();
+
+        // Assert
+        assertThat(List.of(firstAllowed, secondAllowed, thirdAllowed)).containsOnly(true);
+        assertThat(fourthAllowed).isFalse();
+        assertThat(second.tryConsume(LOGIN, OTHER_CLIENT).allowed()).isTrue();
+    }
+
+    @Test
+    void tryConsume_underDifferentPolicies_shouldKeepSeparateBuckets() {
+        // Arrange
+        DatabaseRateLimitStore store = createStore();
+        store.tryConsume(CHECKOUT, CLIENT);
+
+        // Act
+        boolean checkoutAgain = store.tryConsume(CHECKOUT, CLIENT).allowed();
+        boolean login = store.tryConsume(LOGIN, CLIENT).allowed();
+
+        // Assert
+        assertThat(checkoutAgain).isFalse();
+        assertThat(login).isTrue();
+        assertThat(bucketRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void tryConsume_withLeaseOfSeveralTokens_shouldSpendThemWithoutTheDatabase() {
+        // Arrange
+        login.setLeaseTokens(3);
+        DatabaseRateLimitStore first = createStore();
+        DatabaseRateLimitStore second = createStore();
+
+        // Act
+        first.tryConsume(LOGIN, CLIENT);
+        boolean fromLease = first.tryConsume(LOGIN, CLIENT).allowed();
+        boolean elsewhere = second.tryConsume(LOGIN, CLIENT).allowed();
+
+        // Assert
+        assertThat(fromLease).isTrue();
+        assertThat(elsewhere).isFalse();
+        assertThat(leases("granted")).isEqualTo(1);
+        assertThat(bucketRepository.findAll()).singleElement().extracting(RateLimitBucket::getTokens).isEqualTo(0);
+    }
+
+    @Test
+    void tryConsume_withoutLeaseTokens_shouldLeaseWhatThePolicyRefillsDuringTheLease() {
+        // Arrange
+        settings.getPolicies().put(CATALOG, policy(1000, Duration.ofSeconds(1)));
+        settings.setLeaseDuration(Duration.ofMillis(50));
+        DatabaseRateLimitStore store = createStore();
+
+        // Act
+        for (int i = 0; i < 50; i++) store.tryConsume(CATALOG, CLIENT);
+        store.tryConsume(LOGIN, CLIENT);
+
+        // Assert
+        assertThat(leases("granted")).isEqualTo(2);
+        assertThat(bucketRepository.findAll()).extracting(RateLimitBucket::getTokens).containsExactlyInAnyOrder(950, 2);
+    }
+
+    @Test
+    void tryConsume_whenBucketIsEmpty_shouldRefuseLocallyUntilNextToken() {
+        // Arrange
+        DatabaseRateLimitStore store = createStore();
+        for (int i = 0; i < 3; i++) store.tryConsume(LOGIN, CLIENT);
+
+        // Act
+        boolean refused = store.tryConsume(LOGIN, CLIENT).allowed();
+        boolean refusedAgain = store.tryConsume(LOGIN, CLIENT).allowed();
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+        boolean afterRefill = store.tryConsume(LOGIN, CLIENT).allowed();
+
+        // Assert
+        assertThat(refused).isFalse();
+        assertThat(refusedAgain).isFalse();
+        assertThat(afterRefill).isTrue();
+        assertThat(leases("denied")).isEqualTo(1);
+        assertThat(leases("granted")).isEqualTo(4);
+    }
+
+    @Test
+    void tryConsume_shouldReportWhatIsLeftInTheSharedBucket() {
+        // Arrange
+        DatabaseRateLimitStore first = createStore();
+        DatabaseRateLimitStore second = createStore();
+        first.tryConsume(LOGIN, CLIENT);
+
+        // Act
+        RateLimitResult allowed = second.tryConsume(LOGIN, CLIENT);
+        second.tryConsume(LOGIN, CLIENT);
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        RateLimitResult rejected = second.tryConsume(LOGIN, CLIENT);
+
+        // Assert
+        assertThat(allowed).isEqualTo(new RateLimitResult(true, 3, 1, 60_000, 120_000));
+        assertThat(rejected).isEqualTo(new RateLimitResult(false, 3, 0, 50_000, 170_000));
+    }
+
+    @Test
+    void tryConsume_fromManyThreadsOnSeveralNodes_shouldNotExceedTheLimit() throws Exception {
+        // Arrange
+        login.setMaxRequests(20);
+        login.setLeaseTokens(4);
+        List<DatabaseRateLimitStore> nodes = List.of(createStore(), createStore(), createStore());
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int thread = 0; thread < 6; thread++) {
+            DatabaseRateLimitStore node = nodes.get(thread % nodes.size());
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    if (node.tryConsume(LOGIN, CLIENT).allowed()) allowed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> worker : workers) worker.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        assertThat(allowed.get()).isBetween(20 - nodes.size() * 3, 20);
+    }
+
+    @Test
+    void purgeRefilled_shouldDeleteOnlyBucketsThatAreFullAgain() {
+        // Arrange
+        DatabaseRateLimitStore store = createStore();
+        store.tryConsume(LOGIN, CLIENT);
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        store.tryConsume(LOGIN, OTHER_CLIENT);
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+
+        // Act
+        store.purgeRefilled();
+
+        // Assert
+        assertThat(bucketRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void tryConsume_whenDatabaseIsDown_shouldLimitOnThisNodeWithoutTryingItAgain() throws Exception {
+        // Arrange
+        DataSource unreachable = mock(DataSource.class);
+        when(unreachable.getConnection()).thenThrow(new SQLException("down"));
+        DatabaseRateLimitStore store = createStore(unreachable);
+
+        // Act
+        List<Boolean> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) results.add(store.tryConsume(LOGIN, CLIENT).allowed());
+        store.tryConsume(LOGIN, OTHER_CLIENT);
+
+        // Assert
+        assertThat(results).containsExactly(true, true, true, false);
+        assertThat(leases("failed")).isEqualTo(1);
+        verify(unreachable, times(1)).getConnection();
+    }
+
+    @Test
+    void tryConsume_afterFallbackDuration_shouldTryTheDatabaseAgain() throws Exception {
+        // Arrange
+        DataSource unreachable = mock(DataSource.class);
+        when(unreachable.getConnection()).thenThrow(new SQLException("down"));
+        DatabaseRateLimitStore store = createStore(unreachable);
+        store.tryConsume(CHECKOUT, CLIENT);
+
+        // Act
+        now.addAndGet(settings.getFallbackDuration().toMillis());
+        store.tryConsume(CHECKOUT, CLIENT);
+
+        // Assert
+        assertThat(leases("failed")).isEqualTo(2);
+        verify(unreachable, times(2)).getConnection();
+    }
+
+    @Test
+    void tryConsume_whenNoConnectionCanBeObtained_shouldGiveUpAfterDatabaseTimeout() throws Exception {
+        // Arrange
+        settings.setDatabaseTimeout(Duration.ofMillis(300));
+        settings.setDatabasePoolSize(1);
+        try (HikariDataSource pool = DatabaseRateLimitStore.leasePool(dataSourceProperties, settings, meterRegistry);
+             Connection taken = pool.getConnection()) {
+            DatabaseRateLimitStore store = createStore(pool);
+
+            // Act
+            long start = System.nanoTime();
+            boolean first = store.tryConsume(LOGIN, CLIENT).allowed();
+            long firstMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            start = System.nanoTime();
+            boolean second = store.tryConsume(LOGIN, OTHER_CLIENT).allowed();
+            long secondMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // Assert
+            assertThat(taken.isValid(1)).isTrue();
+            assertThat(List.of(first, second)).containsOnly(true);
+            assertThat(firstMillis).isBetween(250L, 2_000L);
+            assertThat(secondMillis).isLessThan(100L);
+            assertThat(leases("failed")).isEqualTo(1);
+        }
+    }
+
+    private DatabaseRateLimitStore createStore() {
+        return createStore(dataSource);
+    }
+
+    private DatabaseRateLimitStore createStore(DataSource leaseDataSource) {
+        return new DatabaseRateLimitStore(bucketRepository, leaseDataSource, settings, meterRegistry, now::get);
+    }
+
+    private double leases(String result) {
+        return meterRegistry.get("rate-limit.leases").tag("result", result).counter().count();
+    }
+
+    private static RateLimitSettings.Policy policy(int maxRequests, Duration refillPeriod) {
+        RateLimitSettings.Policy policy = new RateLimitSettings.Policy();
+        policy.setPaths(List.of("/**"));
+        policy.setMaxRequests(maxRequests);
+        policy.setRefillPeriod(refillPeriod);
+        return policy;
+    }
+}
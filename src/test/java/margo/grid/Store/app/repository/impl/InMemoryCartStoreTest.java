@@ -0,0 +1,109 @@
+package margo.grid.store.app.repository.impl;
+
+import margo.grid.store.app.repository.CartStore.CartLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCartStoreTest {
+
+    private InMemoryCartStore cartStore;
+    private UUID cartId;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = new InMemoryCartStore();
+        cartId = UUID.randomUUID();
+    }
+
+    @Test
+    void getQuantity_withUnknownCartOrItem_shouldReturnZero() {
+        // Arrange
+        cartStore.setQuantity(cartId, UUID.randomUUID(), 2);
+
+        // Act & Assert
+        assertEquals(0, cartStore.getQuantity(UUID.randomUUID(), UUID.randomUUID()));
+        assertEquals(0, cartStore.getQuantity(cartId, UUID.randomUUID()));
+    }
+
+    @Test
+    void setQuantity_forExistingLine_shouldUpdateItInPlace() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        cartStore.setQuantity(cartId, first, 1);
+        cartStore.setQuantity(cartId, second, 2);
+
+        // Act
+        cartStore.setQuantity(cartId, first, 7);
+
+        // Assert
+        assertEquals(List.of(new CartLine(first, 7), new CartLine(second, 2)), cartStore.getLines(cartId));
+    }
+
+    @Test
+    void setQuantity_beyondInitialCapacity_shouldKeepInsertionOrder() {
+        // Arrange
+        List<CartLine> expected = new ArrayList<>();
+
+        // Act
+        for (int i = 1; i <= 50; i++) {
+            UUID itemId = UUID.randomUUID();
+            cartStore.setQuantity(cartId, itemId, i);
+            expected.add(new CartLine(itemId, i));
+        }
+
+        // Assert
+        assertEquals(expected, cartStore.getLines(cartId));
+    }
+
+    @Test
+    void setQuantity_withZero_shouldRemoveLineAndKeepOrderOfTheRest() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        cartStore.setQuantity(cartId, first, 1);
+        cartStore.setQuantity(cartId, second, 2);
+        cartStore.setQuantity(cartId, third, 3);
+
+        // Act
+        cartStore.setQuantity(cartId, second, 0);
+
+        // Assert
+        assertEquals(List.of(new CartLine(first, 1), new CartLine(third, 3)), cartStore.getLines(cartId));
+    }
+
+    @Test
+    void setQuantity_removingLastLine_shouldLeaveEmptyCart() {
+        // Arrange
+        UUID itemId = UUID.randomUUID();
+        cartStore.setQuantity(cartId, itemId, 1);
+
+        // Act
+        cartStore.setQuantity(cartId, itemId, 0);
+
+        // Assert
+        assertTrue(cartStore.getLines(cartId).isEmpty());
+    }
+
+    @Test
+    void clear_shouldOnlyEmptyGivenCart() {
+        // Arrange
+        UUID otherCartId = UUID.randomUUID();
+        UUID itemId = UUID.randomUUID();
+        cartStore.setQuantity(cartId, itemId, 1);
+        cartStore.setQuantity(otherCartId, itemId, 4);
+
+        // Act
+        cartStore.clear(cartId);
+
+        // Assert
+        assertTrue(cartStore.getLines(cartId).isEmpty());
+        assertEquals(4, cartStore.getQuantity(otherCartId, itemId));
+    }
+}
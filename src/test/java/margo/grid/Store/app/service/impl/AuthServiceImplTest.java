@@ -44,6 +44,7 @@ class AuthServiceImplTest {
     @Mock private UserRepository userRepository;
     @Mock private ResetCodeRepository resetCodeRepository;
     @Mock private PasswordEncoder passwordEncoder;
+    @Mock private MyUserDetailsService userDetailsService;
     @Mock private HttpServletRequest httpServletRequest;
     @Mock private HttpSession httpSession;
     @Mock private Authentication authentication;
@@ -206,6 +207,7 @@ class AuthServiceImplTest {
 
         User updatedUser = userArgumentCaptor.getValue();
         assertEquals(encodedPassword, updatedUser.getPasswordHash());
+        verify(userDetailsService).evict(user.getEmail());
     }
 
     @Test
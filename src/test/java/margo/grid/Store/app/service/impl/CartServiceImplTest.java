@@ -1,19 +1,31 @@
 package margo.grid.store.app.service.impl;
 
 import jakarta.persistence.EntityNotFoundException;
+import margo.grid.store.app.config.CartSettings;
 import margo.grid.store.app.dto.CartDto;
 import margo.grid.store.app.dto.CartItemResponseDto;
 import margo.grid.store.app.dto.ItemToCartRequestDto;
 import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.event.PriceChangedEvent;
+import margo.grid.store.app.repository.CartStore;
+import margo.grid.store.app.repository.CartStore.CartLine;
 import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.repository.impl.InMemoryCartStore;
+import margo.grid.store.app.service.ReservationService;
+import margo.grid.store.app.utils.MyUserDetails;
+import margo.grid.store.app.utils.RetryExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static margo.grid.store.app.testdata.CartTestDataProvider.createItemToCartRequest;
 import static margo.grid.store.app.testdata.ItemTestDataProvider.getTestItems;
@@ -25,6 +37,11 @@ import static org.mockito.Mockito.*;
 class CartServiceImplTest {
 
     @Mock private ItemRepository itemRepository;
+    @Mock private ReservationService reservationService;
+    @Mock private MyUserDetails userDetails;
+    @Mock private CartSettings cartSettings;
+    @Mock private RetryExecutor retryExecutor;
+    @Spy private CartStore cartStore = new InMemoryCartStore();
 
     @InjectMocks
     private CartServiceImpl cartService;
@@ -33,9 +50,17 @@ class CartServiceImplTest {
     private ItemToCartRequestDto cartRequest;
     private UUID itemId;
     private List<Item> items;
+    private UUID userId;
 
     @BeforeEach
     void setUp() {
+        userId = UUID.randomUUID();
+        lenient().when(userDetails.getId()).thenReturn(userId);
+        lenient().when(cartSettings.getSummaryCacheSize()).thenReturn(100);
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(retryExecutor).run(any());
         items = getTestItems();
         item = items.getFirst();
         itemId = item.getId();
@@ -44,92 +69,85 @@ class CartServiceImplTest {
 
 
     @Test
-    void addItem_withValidQuantity_shouldAddItemAndDecreaseStock() {
-        // Arrange
-        setupMocks(item);
-        int originalQuantity = item.getAvailableQuantity();
-
+    void addItem_withValidQuantity_shouldReserveStockAndAddItem() {
         // Act
-        cartService.addItem(cartRequest);
+        cartService.addItem(cartRequest, userDetails);
 
         // Assert
-        verifyInteractions(item);
-        assertEquals(originalQuantity - cartRequest.getQuantity(), item.getAvailableQuantity());
+        verify(reservationService).hold(userId.toString(), itemId, cartRequest.getQuantity());
+        verifyNoInteractions(itemRepository);
+        assertEquals(cartRequest.getQuantity(), getCart().get(itemId));
     }
 
     @Test
     void addItem_withInsufficientQuantity_shouldThrowException() {
         // Arrange
         cartRequest.setQuantity(item.getAvailableQuantity() + 2);
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
+        doThrow(new IllegalArgumentException("The requested quantity exceeded available quantity!"))
+                .when(reservationService).hold(userId.toString(), itemId, cartRequest.getQuantity());
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> cartService.addItem(cartRequest));
-        verify(itemRepository, never()).save(any());
+        assertThrows(IllegalArgumentException.class, () -> cartService.addItem(cartRequest, userDetails));
+        assertFalse(getCart().containsKey(itemId));
     }
 
     @Test
     void addItem_withNonExistentItem_shouldThrowException() {
         // Arrange
-        when(itemRepository.findById(itemId)).thenReturn(Optional.empty());
+        doThrow(new EntityNotFoundException())
+                .when(reservationService).hold(userId.toString(), itemId, cartRequest.getQuantity());
 
         // Act & Assert
-        assertThrows(EntityNotFoundException.class, () -> cartService.addItem(cartRequest));
-        verify(itemRepository, never()).save(any());
+        assertThrows(EntityNotFoundException.class, () -> cartService.addItem(cartRequest, userDetails));
+        assertFalse(getCart().containsKey(itemId));
     }
 
     @Test
-    void addItem_withExactAvailableQuantity_shouldBeAdded() {
+    void addItem_whenItemAlreadyInCart_shouldAccumulateQuantity() {
         // Arrange
-        cartRequest.setQuantity(item.getAvailableQuantity());
-        setupMocks(item);
+        addToCart(itemId, 2);
+        cartRequest.setQuantity(3);
 
         // Act
-        cartService.addItem(cartRequest);
+        cartService.addItem(cartRequest, userDetails);
 
         // Assert
-        verifyInteractions(item);
-        assertEquals(0, item.getAvailableQuantity());
+        verify(reservationService).hold(userId.toString(), itemId, 5);
+        assertEquals(5, getCart().get(itemId));
     }
 
     @Test
-    void modifyItem_increasingQuantity_shouldUpdateStock() {
+    void modifyItem_increasingQuantity_shouldHoldNewQuantity() {
         // Arrange
-        int initialStock = 78;
         int currentCartQuantity = 5;
         int newCartQuantity = 15;
 
-        item.setAvailableQuantity(initialStock);
         addToCart(itemId, currentCartQuantity);
         cartRequest.setQuantity(newCartQuantity);
-        setupMocks(item);
 
         // Act
-        cartService.modifyItem(cartRequest);
+        cartService.modifyItem(cartRequest, userDetails);
 
         // Assert
-        verifyInteractions(item);
-        assertEquals(68, item.getAvailableQuantity()); // 78 - (15-5)
+        verify(reservationService).hold(userId.toString(), itemId, newCartQuantity);
+        assertEquals(newCartQuantity, getCart().get(itemId));
     }
 
     @Test
-    void modifyItem_decreasingQuantity_shouldUpdateStock() {
+    void modifyItem_decreasingQuantity_shouldHoldNewQuantity() {
         // Arrange
-        int initialStock = 78;
         int currentCartQuantity = 20;
         int newCartQuantity = 10;
 
-        item.setAvailableQuantity(initialStock);
         addToCart(itemId, currentCartQuantity);
         cartRequest.setQuantity(newCartQuantity);
-        setupMocks(item);
 
         // Act
-        cartService.modifyItem(cartRequest);
+        cartService.modifyItem(cartRequest, userDetails);
 
         // Assert
-        verifyInteractions(item);
-        assertEquals(88, item.getAvailableQuantity()); // 78 + (20-10)
+        verify(reservationService).hold(userId.toString(), itemId, newCartQuantity);
+        assertEquals(newCartQuantity, getCart().get(itemId));
     }
 
     @Test
@@ -138,59 +156,56 @@ class CartServiceImplTest {
         emptyCart();
 
         // Act & Assert
-        assertThrows(EntityNotFoundException.class, () -> cartService.modifyItem(cartRequest));
-        verify(itemRepository, never()).findById(any());
+        assertThrows(EntityNotFoundException.class, () -> cartService.modifyItem(cartRequest, userDetails));
+        verifyNoInteractions(reservationService);
     }
 
     @Test
     void modifyItem_withInsufficientStock_shouldThrowException() {
         // Arrange
         addToCart(itemId, 5);
-        item.setAvailableQuantity(3);
         cartRequest.setQuantity(10);
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
+        doThrow(new IllegalArgumentException("The requested quantity exceeded available quantity!"))
+                .when(reservationService).hold(userId.toString(), itemId, 10);
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> cartService.modifyItem(cartRequest));
-        verify(itemRepository, never()).save(any());
+        assertThrows(IllegalArgumentException.class, () -> cartService.modifyItem(cartRequest, userDetails));
+        assertEquals(5, getCart().get(itemId));
     }
 
     @Test
-    void removeItem_whenExists_shouldRemoveAndUpdateStock() {
+    void removeItem_whenExists_shouldRemoveAndReleaseStock() {
         // Arrange
         int cartQuantity = 5;
-        int originalQuantity = item.getAvailableQuantity();
-
         addToCart(itemId, cartQuantity);
-        setupMocks(item);
 
         // Act
-        cartService.removeItem(itemId);
+        cartService.removeItem(itemId, userDetails);
 
         // Assert
-        verifyInteractions(item);
-        assertEquals(originalQuantity + cartQuantity, item.getAvailableQuantity());
+        verify(reservationService).hold(userId.toString(), itemId, 0);
+        assertFalse(getCart().containsKey(itemId));
     }
 
     @Test
     void removeItem_whenNotInCart_shouldThrowException() {
         // Arrange
         emptyCart();
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
 
         // Act & Assert
-        assertThrows(EntityNotFoundException.class, () -> cartService.removeItem(itemId));
-        verify(itemRepository, never()).save(any());
+        assertThrows(EntityNotFoundException.class, () -> cartService.removeItem(itemId, userDetails));
+        verifyNoInteractions(reservationService);
     }
 
     @Test
     void removeItem_whenItemNotInDatabase_shouldThrowException() {
         // Arrange
-        when(itemRepository.findById(itemId)).thenReturn(Optional.empty());
+        addToCart(itemId, 5);
+        doThrow(new EntityNotFoundException()).when(reservationService).hold(userId.toString(), itemId, 0);
 
         // Act & Assert
-        assertThrows(EntityNotFoundException.class, () -> cartService.removeItem(itemId));
-        verify(itemRepository, never()).save(any());
+        assertThrows(EntityNotFoundException.class, () -> cartService.removeItem(itemId, userDetails));
+        assertTrue(getCart().containsKey(itemId));
     }
 
     @Test
@@ -199,7 +214,7 @@ class CartServiceImplTest {
         emptyCart();
 
         // Act
-        CartDto result = cartService.getCart();
+        CartDto result = cartService.getCart(userDetails);
 
         // Assert
         assertNotNull(result);
@@ -218,7 +233,7 @@ class CartServiceImplTest {
         when(itemRepository.findAllById(any())).thenReturn(List.of(item));
 
         // Act
-        CartDto result = cartService.getCart();
+        CartDto result = cartService.getCart(userDetails);
 
         // Assert
         assertNotNull(result);
@@ -248,7 +263,7 @@ class CartServiceImplTest {
                 .add(secondItem.getPrice().multiply(BigDecimal.valueOf(5)));
 
         // Act
-        CartDto result = cartService.getCart();
+        CartDto result = cartService.getCart(userDetails);
 
         // Assert
         assertNotNull(result);
@@ -259,13 +274,12 @@ class CartServiceImplTest {
 
 
     @Test
-    void getAllItemsInCart_withEmptyCart_shouldReturnEmptyList() {
+    void getCartLines_withEmptyCart_shouldReturnEmptyList() {
         // Arrange
         emptyCart();
-        when(itemRepository.findAllById(any())).thenReturn(Collections.emptyList());
 
         // Act
-        List<Item> result = cartService.getAllItemsInCart();
+        List<CartLine> result = cartService.getCartLines(userDetails);
 
         // Assert
         assertNotNull(result);
@@ -273,57 +287,221 @@ class CartServiceImplTest {
     }
 
     @Test
-    void getAllItemsInCart_withItems_shouldReturnItems() {
+    void getCartLines_withItems_shouldReturnQuantitiesInCartOrder() {
+        // Arrange
+        UUID secondItemId = items.get(1).getId();
+        addMultipleToCart(itemId, 2, secondItemId, 3);
+
+        // Act
+        List<CartLine> result = cartService.getCartLines(userDetails);
+
+        // Assert
+        assertEquals(List.of(new CartLine(itemId, 2), new CartLine(secondItemId, 3)), result);
+        verifyNoInteractions(itemRepository);
+    }
+
+    @Test
+    void getCart_withItems_shouldExtendReservations() {
+        // Arrange
+        addToCart(itemId, 2);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item));
+
+        // Act
+        cartService.getCart(userDetails);
+
+        // Assert
+        verify(reservationService).touch(userId.toString(), List.of(itemId));
+    }
+
+    @Test
+    void getCart_calledTwiceWithoutChanges_shouldLoadItemsOnce() {
+        // Arrange
+        addToCart(itemId, 2);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item));
+
+        // Act
+        CartDto first = cartService.getCart(userDetails);
+        CartDto second = cartService.getCart(userDetails);
+
+        // Assert
+        assertSame(first, second);
+        verify(itemRepository).findAllById(any());
+    }
+
+    @Test
+    void getCart_withLineOfDeletedItem_shouldSkipItAndStillLoadItemsOnce() {
         // Arrange
         Item secondItem = items.get(1);
-        UUID secondItemId = secondItem.getId();
+        addMultipleToCart(UUID.randomUUID(), 3, secondItem.getId(), 5);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(secondItem));
 
-        addMultipleToCart(itemId, 2, secondItemId, 3);
+        // Act
+        CartDto first = cartService.getCart(userDetails);
+        cartService.modifyItem(createItemToCartRequest(secondItem.getId(), 2), userDetails);
+        CartDto second = cartService.getCart(userDetails);
+
+        // Assert
+        verify(itemRepository).findAllById(any());
+        assertEquals(1, first.getItems().size());
+        assertEquals(5, first.getTotalQuantity());
+        assertEquals(1, second.getItems().size());
+        assertEquals(2, second.getTotalQuantity());
+    }
+
+    @Test
+    void getCart_afterPriceChangeOfItemInCart_shouldRebuildSummary() {
+        // Arrange
+        addToCart(itemId, 2);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item));
+        CartDto first = cartService.getCart(userDetails);
+
+        // Act
+        cartService.onPriceChanged(new PriceChangedEvent(Set.of(itemId)));
+        CartDto second = cartService.getCart(userDetails);
+
+        // Assert
+        assertNotSame(first, second);
+        verify(itemRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void getCart_afterPriceChangeOfOtherItem_shouldKeepSummary() {
+        // Arrange
+        addToCart(itemId, 2);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item));
+        CartDto first = cartService.getCart(userDetails);
+
+        // Act
+        cartService.onPriceChanged(new PriceChangedEvent(Set.of(UUID.randomUUID())));
+        CartDto second = cartService.getCart(userDetails);
+
+        // Assert
+        assertSame(first, second);
+        verify(itemRepository).findAllById(any());
+    }
+
+    @Test
+    void getCart_afterQuantityChanges_shouldUpdateSummaryWithoutReloadingItems() {
+        // Arrange
+        Item secondItem = items.get(1);
+        addMultipleToCart(itemId, 2, secondItem.getId(), 5);
         when(itemRepository.findAllById(any())).thenReturn(List.of(item, secondItem));
+        cartService.getCart(userDetails);
 
         // Act
-        List<Item> result = cartService.getAllItemsInCart();
+        cartService.modifyItem(createItemToCartRequest(secondItem.getId(), 1), userDetails);
+        cartService.removeItem(itemId, userDetails);
+        CartDto result = cartService.getCart(userDetails);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertTrue(result.containsAll(List.of(item, secondItem)));
+        verify(itemRepository).findAllById(any());
+        assertEquals(1, result.getItems().size());
+        CartItemResponseDto cartItem = result.getItems().getFirst();
+        assertEquals(secondItem.getId(), cartItem.getItemId());
+        assertEquals(1, cartItem.getOrdinal());
+        assertEquals(1, cartItem.getQuantity());
+        assertEquals(secondItem.getPrice(), result.getTotalPrice());
+        assertEquals(1, result.getTotalQuantity());
     }
 
-    private void setupMocks(Item item) {
-        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
-        when(itemRepository.save(item)).thenReturn(item);
+    @Test
+    void getCart_afterNewItemAdded_shouldReloadItems() {
+        // Arrange
+        Item secondItem = items.get(1);
+        addToCart(itemId, 2);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item), List.of(item, secondItem));
+        cartService.getCart(userDetails);
+
+        // Act
+        cartService.addItem(createItemToCartRequest(secondItem.getId(), 3), userDetails);
+        CartDto result = cartService.getCart(userDetails);
+
+        // Assert
+        verify(itemRepository, times(2)).findAllById(any());
+        assertEquals(2, result.getItems().size());
+        assertEquals(2, result.getItems().get(1).getOrdinal());
+        assertEquals(5, result.getTotalQuantity());
     }
 
-    private void verifyInteractions(Item item) {
-        verify(itemRepository).findById(item.getId());
-        verify(itemRepository).save(item);
+    @Test
+    void getCart_whenCartChangedOutsideThisService_shouldRebuildSummary() {
+        // Arrange
+        addToCart(itemId, 2);
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item));
+        cartService.getCart(userDetails);
+        addToCart(itemId, 4);
+
+        // Act
+        CartDto result = cartService.getCart(userDetails);
+
+        // Assert
+        verify(itemRepository, times(2)).findAllById(any());
+        assertEquals(4, result.getTotalQuantity());
+    }
+
+    @Test
+    void checkout_withItems_shouldConsumeReservationsAndClearCart() {
+        // Arrange
+        addToCart(itemId, 2);
+
+        // Act
+        cartService.checkout(userDetails, cartStore.getLines(userId));
+
+        // Assert
+        verify(reservationService).consume(userId.toString(), List.of(new CartLine(itemId, 2)));
+        assertTrue(getCart().isEmpty());
+    }
+
+    @Test
+    void checkout_withLineAddedAfterOrderWasBuilt_shouldKeepItInCart() {
+        // Arrange
+        UUID secondItemId = items.get(1).getId();
+        addToCart(itemId, 2);
+        List<CartLine> ordered = cartStore.getLines(userId);
+        addToCart(secondItemId, 3);
+
+        // Act
+        cartService.checkout(userDetails, ordered);
+
+        // Assert
+        verify(reservationService).consume(userId.toString(), List.of(new CartLine(itemId, 2)));
+        assertEquals(List.of(new CartLine(secondItemId, 3)), cartStore.getLines(userId));
+    }
+
+    @Test
+    void checkout_whenOrderTransactionRollsBack_shouldRestoreInMemoryCart() {
+        // Arrange
+        addToCart(itemId, 2);
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cartService.checkout(userDetails, cartStore.getLines(userId));
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertEquals(List.of(new CartLine(itemId, 2)), cartStore.getLines(userId));
     }
 
     private void addToCart(UUID itemId, Integer quantity) {
-        Map<UUID, Integer> cartItems = new HashMap<>();
-        cartItems.put(itemId, quantity);
-        setCart(cartItems);
+        cartStore.setQuantity(userId, itemId, quantity);
     }
 
     private void addMultipleToCart(UUID firstId, int firstQty, UUID secondId, int secondQty) {
-        Map<UUID, Integer> cartItems = new HashMap<>();
-        cartItems.put(firstId, firstQty);
-        cartItems.put(secondId, secondQty);
-        setCart(cartItems);
+        addToCart(firstId, firstQty);
+        addToCart(secondId, secondQty);
     }
 
     private void emptyCart() {
-        setCart(new HashMap<>());
+        cartStore.clear(userId);
     }
 
-    private void setCart(Map<UUID, Integer> cartItems) {
-        try {
-            var field = CartServiceImpl.class.getDeclaredField("cartItems");
-            field.setAccessible(true);
-            field.set(cartService, cartItems);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to set cart items for testing", e);
-        }
+    private Map<UUID, Integer> getCart() {
+        return cartStore.getLines(userId).stream()
+                .collect(Collectors.toMap(CartLine::itemId, CartLine::quantity));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.CatalogSettings;
+import margo.grid.store.app.dto.ItemResponseDto;
+import margo.grid.store.app.event.PriceChangedEvent;
+import margo.grid.store.app.event.StockChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static margo.grid.store.app.testdata.ItemTestDataProvider.getItemResponseDtos;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogCacheImplTest {
+
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    private CatalogSettings settings;
+    private List<ItemResponseDto> items;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        settings = new CatalogSettings();
+        items = getItemResponseDtos();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void getPage_repeatedly_shouldLoadOnce() {
+        // Arrange
+        CatalogCacheImpl catalogCache = createCatalogCache();
+
+        // Act
+        Page<ItemResponseDto> first = catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        Page<ItemResponseDto> second = catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void onStockChanged_shouldDropPagesAndItemsContainingChangedItem() {
+        // Arrange
+        CatalogCacheImpl catalogCache = createCatalogCache();
+        UUID changedId = items.getFirst().getId();
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        catalogCache.getItem(changedId, this::loadItem);
+        catalogCache.getItem(items.getLast().getId(), this::loadItem);
+
+        // Act
+        catalogCache.onStockChanged(new StockChangedEvent(Set.of(changedId)));
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        catalogCache.getItem(changedId, this::loadItem);
+        catalogCache.getItem(items.getLast().getId(), this::loadItem);
+
+        // Assert
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void getItem_whenReloadShowsNewPrice_shouldPublishPriceChange() {
+        // Arrange
+        settings.setCacheTtl(Duration.ofNanos(1));
+        CatalogCacheImpl catalogCache = createCatalogCache();
+        ItemResponseDto item = items.getFirst();
+        catalogCache.getItem(item.getId(), id -> copyWithPrice(item, item.getPrice()));
+
+        // Act
+        catalogCache.getItem(item.getId(), id -> copyWithPrice(item, item.getPrice().add(BigDecimal.ONE)));
+
+        // Assert
+        verify(eventPublisher).publishEvent(new PriceChangedEvent(Set.of(item.getId())));
+    }
+
+    @Test
+    void getPage_whenReloadShowsSamePrices_shouldNotPublish() {
+        // Arrange
+        settings.setCacheTtl(Duration.ofNanos(1));
+        CatalogCacheImpl catalogCache = createCatalogCache();
+
+        // Act
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+
+        // Assert
+        assertEquals(2, loads.get());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void version_shouldMoveOnInvalidationButNotOnFirstLoadOrHit() {
+        // Arrange
+        CatalogCacheImpl catalogCache = createCatalogCache();
+        long initial = catalogCache.version();
+
+        // Act
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        long afterLoad = catalogCache.version();
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        long afterHit = catalogCache.version();
+        catalogCache.invalidateItems(Set.of(items.getFirst().getId()));
+        long afterInvalidation = catalogCache.version();
+
+        // Assert
+        assertEquals(initial, afterLoad);
+        assertEquals(afterLoad, afterHit);
+        assertNotEquals(afterHit, afterInvalidation);
+    }
+
+    @Test
+    void version_whenReloadReturnsSameContent_shouldStay() {
+        // Arrange
+        settings.setCacheTtl(Duration.ofNanos(1));
+        CatalogCacheImpl catalogCache = createCatalogCache();
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+        long afterLoad = catalogCache.version();
+
+        // Act
+        catalogCache.getPage(PageRequest.of(0, 10), this::loadPage);
+
+        // Assert
+        assertEquals(2, loads.get());
+        assertEquals(afterLoad, catalogCache.version());
+    }
+
+    @Test
+    void version_whenReloadReturnsChangedItem_shouldMove() {
+        // Arrange
+        settings.setCacheTtl(Duration.ofNanos(1));
+        CatalogCacheImpl catalogCache = createCatalogCache();
+        ItemResponseDto item = items.getFirst();
+        catalogCache.getItem(item.getId(), id -> copyWithPrice(item, item.getPrice()));
+        long afterLoad = catalogCache.version();
+
+        // Act
+        catalogCache.getItem(item.getId(), id -> {
+            ItemResponseDto changed = copyWithPrice(item, item.getPrice());
+            changed.setAvailableQuantity(item.getAvailableQuantity() - 1);
+            return changed;
+        });
+
+        // Assert
+        assertNotEquals(afterLoad, catalogCache.version());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private CatalogCacheImpl createCatalogCache() {
+        return new CatalogCacheImpl(settings, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    private Page<ItemResponseDto> loadPage(Pageable pageable) {
+        loads.incrementAndGet();
+        return new PageImpl<>(items.stream().map(item -> copyWithPrice(item, item.getPrice())).toList(),
+                pageable, items.size());
+    }
+
+    private ItemResponseDto loadItem(UUID id) {
+        loads.incrementAndGet();
+        return items.stream().filter(item -> item.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static ItemResponseDto copyWithPrice(ItemResponseDto item, BigDecimal price) {
+        ItemResponseDto copy = new ItemResponseDto();
+        copy.setId(item.getId());
+        copy.setTitle(item.getTitle());
+        copy.setAvailableQuantity(item.getAvailableQuantity());
+        copy.setPrice(price);
+        return copy;
+    }
+}
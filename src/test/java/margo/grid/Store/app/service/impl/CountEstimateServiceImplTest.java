@@ -0,0 +1,121 @@
+package margo.grid.store.app.service.impl;
+
+import margo.grid.store.app.config.PaginationSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountEstimateServiceImplTest {
+
+    private PaginationSettings settings;
+    private CountEstimateServiceImpl countEstimateService;
+    private AtomicLong rows;
+    private AtomicLong countQueries;
+
+    @BeforeEach
+    void setUp() {
+        settings = new PaginationSettings();
+        countEstimateService = new CountEstimateServiceImpl(settings);
+        rows = new AtomicLong(10);
+        countQueries = new AtomicLong();
+    }
+
+    @Test
+    void estimate_readRepeatedly_shouldCountOnlyOnce() {
+        // Act
+        for (int i = 0; i < 100; i++) {
+            countEstimateService.estimate("items", this::count);
+        }
+
+        // Assert
+        assertEquals(1, countQueries.get());
+    }
+
+    @Test
+    void refreshEstimates_forReadEstimate_shouldPickUpNewCount() {
+        // Arrange
+        countEstimateService.estimate("items", this::count);
+        rows.set(25);
+
+        // Act
+        long beforeRefresh = countEstimateService.estimate("items", this::count);
+        countEstimateService.refreshEstimates();
+        long afterRefresh = countEstimateService.estimate("items", this::count);
+
+        // Assert
+        assertEquals(10, beforeRefresh);
+        assertEquals(25, afterRefresh);
+        assertEquals(2, countQueries.get());
+    }
+
+    @Test
+    void refreshEstimates_withMoreReadEstimatesThanBatch_shouldCountLeastRecentlyCountedFirst() {
+        // Arrange
+        settings.setCountRefreshBatchSize(1);
+        countEstimateService.estimate("first", this::count);
+        countEstimateService.estimate("second", this::count);
+        countQueries.set(0);
+
+        // Act
+        countEstimateService.refreshEstimates();
+        long afterFirstRun = countQueries.get();
+        countEstimateService.refreshEstimates();
+
+        // Assert
+        assertEquals(1, afterFirstRun);
+        assertEquals(2, countQueries.get());
+    }
+
+    @Test
+    void refreshEstimates_forUnreadEstimate_shouldDropItWithoutCounting() {
+        // Arrange
+        countEstimateService.estimate("items", this::count);
+        countEstimateService.refreshEstimates();
+
+        // Act
+        countEstimateService.refreshEstimates();
+        countEstimateService.estimate("items", this::count);
+
+        // Assert
+        assertEquals(3, countQueries.get());
+    }
+
+    @Test
+    void invalidate_shouldRecountOnNextRead() {
+        // Arrange
+        countEstimateService.estimate("orders", this::count);
+        rows.set(11);
+
+        // Act
+        countEstimateService.invalidate("orders");
+
+        // Assert
+        assertEquals(11, countEstimateService.estimate("orders", this::count));
+    }
+
+    @Test
+    void estimate_beyondCacheSize_shouldKeepCacheBounded() {
+        // Arrange
+        settings.setCountCacheSize(2);
+
+        // Act
+        countEstimateService.estimate("a", this::count);
+        countEstimateService.estimate("b", this::count);
+        countEstimateService.estimate("c", this::count);
+        countEstimateService.estimate("c", this::count);
+
+        // Assert
+        assertEquals(3, countQueries.get());
+        countEstimateService.estimate("a", this::count);
+        countEstimateService.estimate("b", this::count);
+        assertTrue(countQueries.get() >= 4);
+    }
+
+    private long count() {
+        countQueries.incrementAndGet();
+        return rows.get();
+    }
+}
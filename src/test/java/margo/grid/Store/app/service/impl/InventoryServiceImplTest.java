@@ -0,0 +1,363 @@
+package margo.grid.store.app.service.impl;
+
+import jakarta.persistence.EntityNotFoundException;
+import margo.grid.store.app.config.InventorySettings;
+import margo.grid.store.app.dto.ItemQuantityDto;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.event.StockChangedEvent;
+import margo.grid.store.app.event.StockRejectedEvent;
+import margo.grid.store.app.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static margo.grid.store.app.testdata.ItemTestDataProvider.getTestItems;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceImplTest {
+
+    @Mock private ItemRepository itemRepository;
+    @Mock private InventorySettings inventorySettings;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    private InventoryServiceImpl inventoryService;
+
+    private final Map<UUID, Item> stored = new HashMap<>();
+    private Item item;
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        inventoryService = new InventoryServiceImpl(itemRepository, TransactionOperations.withoutTransaction(),
+                inventorySettings, eventPublisher);
+        lenient().when(inventorySettings.getIdleFlushesBeforeEviction()).thenReturn(3);
+
+        item = getTestItems().getFirst();
+        itemId = item.getId();
+        lenient().when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
+        stored.put(itemId, item);
+        lenient().when(itemRepository.findAvailableQuantities(any()))
+                .thenAnswer(invocation -> storedQuantities(invocation.getArgument(0)));
+    }
+
+    private List<ItemQuantityDto> storedQuantities(Collection<UUID> itemIds) {
+        return itemIds.stream()
+                .filter(stored::containsKey)
+                .map(id -> new ItemQuantityDto(id, (long) stored.get(id).getAvailableQuantity()))
+                .toList();
+    }
+
+    @Test
+    void reserve_withinStock_shouldNotWriteToDatabaseUntilFlush() {
+        // Act
+        inventoryService.reserve(itemId, 2);
+        inventoryService.reserve(itemId, 3);
+
+        // Assert
+        assertEquals(item.getAvailableQuantity() - 5, inventoryService.getAvailableQuantity(itemId));
+        verify(itemRepository).findById(itemId);
+        verify(itemRepository, never()).reserveStock(any(), anyInt());
+    }
+
+    @Test
+    void reserve_withInsufficientStock_shouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.reserve(itemId, item.getAvailableQuantity() + 1));
+        assertEquals(item.getAvailableQuantity(), inventoryService.getAvailableQuantity(itemId));
+    }
+
+    @Test
+    void reserve_withNonExistentItem_shouldThrowException() {
+        // Arrange
+        UUID unknownId = UUID.randomUUID();
+        when(itemRepository.findById(unknownId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(EntityNotFoundException.class, () -> inventoryService.reserve(unknownId, 1));
+    }
+
+    @Test
+    void flush_afterReservationsAndReleases_shouldWriteNetDeltaOnce() {
+        // Arrange
+        when(itemRepository.reserveStock(itemId, 3)).thenReturn(1);
+        inventoryService.reserve(itemId, 5);
+        inventoryService.release(itemId, 2);
+
+        // Act
+        inventoryService.flush();
+        inventoryService.flush();
+
+        // Assert
+        verify(itemRepository).reserveStock(itemId, 3);
+        verify(itemRepository, never()).releaseStock(any(), anyInt());
+    }
+
+    @Test
+    void flush_forGivenItems_shouldWriteOnlyTheirDeltas() {
+        // Arrange
+        Item otherItem = getTestItems().get(1);
+        when(itemRepository.findById(otherItem.getId())).thenReturn(Optional.of(otherItem));
+        when(itemRepository.reserveStock(itemId, 2)).thenReturn(1);
+        inventoryService.reserve(itemId, 2);
+        inventoryService.reserve(otherItem.getId(), 3);
+
+        // Act
+        inventoryService.flush(Set.of(itemId));
+
+        // Assert
+        verify(itemRepository).reserveStock(itemId, 2);
+        verify(itemRepository, never()).reserveStock(otherItem.getId(), 3);
+    }
+
+    @Test
+    void flush_withNetRelease_shouldReturnStockToDatabase() {
+        // Arrange
+        when(itemRepository.releaseStock(itemId, 4)).thenReturn(1);
+        inventoryService.release(itemId, 4);
+
+        // Act
+        inventoryService.flush();
+
+        // Assert
+        verify(itemRepository).releaseStock(itemId, 4);
+    }
+
+    @Test
+    void flush_withChanges_shouldPublishStockChangeOfFlushedItems() {
+        // Arrange
+        when(itemRepository.reserveStock(itemId, 1)).thenReturn(1);
+        inventoryService.reserve(itemId, 1);
+
+        // Act
+        inventoryService.flush();
+        inventoryService.flush();
+
+        // Assert
+        verify(eventPublisher).publishEvent(new StockChangedEvent(Set.of(itemId)));
+    }
+
+    @Test
+    void restock_withCachedCounter_shouldWriteInOneUpdateAndAddUnitsAfterCommit() {
+        // Arrange
+        inventoryService.reserve(itemId, 2);
+        int available = inventoryService.getAvailableQuantity(itemId);
+
+        // Act
+        int restored;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            restored = inventoryService.restock(Map.of(itemId, 5));
+            assertEquals(available, inventoryService.getAvailableQuantity(itemId));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertEquals(5, restored);
+        assertEquals(available + 5, inventoryService.getAvailableQuantity(itemId));
+        verify(itemRepository).addStock(Map.of(itemId, 5));
+        verify(itemRepository, never()).releaseStock(any(), anyInt());
+        verify(eventPublisher).publishEvent(new StockChangedEvent(Set.of(itemId)));
+    }
+
+    @Test
+    void restock_withoutCachedCounter_shouldLeaveItToTheNextLoad() {
+        // Act
+        int restored = inventoryService.restock(Map.of(itemId, 5));
+
+        // Assert
+        assertEquals(5, restored);
+        verify(itemRepository).addStock(Map.of(itemId, 5));
+        verify(itemRepository, never()).findById(any());
+    }
+
+    @Test
+    void flush_withoutChanges_shouldNotWriteToDatabase() {
+        // Arrange
+        inventoryService.getAvailableQuantity(itemId);
+
+        // Act
+        inventoryService.flush();
+
+        // Assert
+        verify(itemRepository, never()).reserveStock(any(), anyInt());
+        verify(itemRepository, never()).releaseStock(any(), anyInt());
+    }
+
+    @Test
+    void flush_whenDatabaseRejectsDelta_shouldReloadStockFromDatabase() {
+        // Arrange
+        inventoryService.reserve(itemId, 5);
+        when(itemRepository.reserveStock(itemId, 5)).thenReturn(0);
+        item.setAvailableQuantity(1);
+
+        // Act
+        inventoryService.flush();
+
+        // Assert
+        assertEquals(1, inventoryService.getAvailableQuantity(itemId));
+        verify(eventPublisher).publishEvent(new StockRejectedEvent(itemId, 5));
+    }
+
+    @Test
+    void flush_insideTransactionWhenDatabaseRejectsDelta_shouldReportItOnlyAfterCommit() {
+        // Arrange
+        inventoryService.reserve(itemId, 5);
+        when(itemRepository.reserveStock(itemId, 5)).thenReturn(0);
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inventoryService.flush();
+            verify(eventPublisher, never()).publishEvent(any(StockRejectedEvent.class));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        verify(eventPublisher).publishEvent(new StockRejectedEvent(itemId, 5));
+    }
+
+    @Test
+    void flush_whenDatabaseFails_shouldRetryDeltaOnNextFlush() {
+        // Arrange
+        int stock = item.getAvailableQuantity();
+        inventoryService.reserve(itemId, 5);
+        when(itemRepository.reserveStock(itemId, 5))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenAnswer(invocation -> {
+                    item.setAvailableQuantity(stock - 5);
+                    return 1;
+                });
+
+        // Act
+        inventoryService.flush();
+        inventoryService.flush();
+
+        // Assert
+        verify(itemRepository, times(2)).reserveStock(itemId, 5);
+        assertEquals(stock - 5, inventoryService.getAvailableQuantity(itemId));
+    }
+
+    @Test
+    void flush_shouldPickUpStockChangedByOtherNodes() {
+        // Arrange
+        when(itemRepository.reserveStock(itemId, 2)).thenAnswer(invocation -> {
+            item.setAvailableQuantity(item.getAvailableQuantity() - 2);
+            return 1;
+        });
+        int stock = item.getAvailableQuantity();
+        inventoryService.reserve(itemId, 2);
+        item.setAvailableQuantity(stock - 4);
+
+        // Act
+        inventoryService.flush();
+        inventoryService.reserve(itemId, 1);
+
+        // Assert
+        assertEquals(stock - 7, inventoryService.getAvailableQuantity(itemId));
+    }
+
+    @Test
+    void flush_withUnchangedCounter_shouldStillResyncIt() {
+        // Arrange
+        int stock = item.getAvailableQuantity();
+        inventoryService.getAvailableQuantity(itemId);
+        item.setAvailableQuantity(stock + 10);
+
+        // Act
+        inventoryService.flush();
+
+        // Assert
+        assertEquals(stock + 10, inventoryService.getAvailableQuantity(itemId));
+        verify(itemRepository, never()).reserveStock(any(), anyInt());
+    }
+
+    @Test
+    void flush_whenItemWasDeletedElsewhere_shouldDropItsCounter() {
+        // Arrange
+        inventoryService.getAvailableQuantity(itemId);
+        stored.remove(itemId);
+
+        // Act
+        inventoryService.flush();
+        inventoryService.getAvailableQuantity(itemId);
+
+        // Assert
+        verify(itemRepository, times(2)).findById(itemId);
+    }
+
+    @Test
+    void flush_whenItemIsIdle_shouldEvictItAndReloadOnNextAccess() {
+        // Arrange
+        inventoryService.getAvailableQuantity(itemId);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            inventoryService.flush();
+        }
+        inventoryService.getAvailableQuantity(itemId);
+
+        // Assert
+        verify(itemRepository, times(2)).findById(itemId);
+    }
+
+    @Test
+    void reserve_concurrently_shouldNeverOversell() throws Exception {
+        // Arrange
+        int stock = 1000;
+        int threads = 16;
+        item.setAvailableQuantity(stock);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        inventoryService.reserve(itemId, 1);
+                        reserved.incrementAndGet();
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(stock, reserved.get());
+        assertEquals(0, inventoryService.getAvailableQuantity(itemId));
+    }
+}
@@ -1,28 +1,37 @@
 package margo.grid.store.app.service.impl;
 
 import jakarta.persistence.EntityNotFoundException;
+import margo.grid.store.app.dto.CursorPage;
 import margo.grid.store.app.dto.ItemResponseDto;
 import margo.grid.store.app.entity.Item;
 import margo.grid.store.app.mapper.ItemMapper;
 import margo.grid.store.app.repository.ItemRepository;
+import margo.grid.store.app.service.CatalogCache;
+import margo.grid.store.app.service.CountEstimateService;
+import margo.grid.store.app.utils.Cursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import static margo.grid.store.app.testdata.ItemTestDataProvider.getItemResponseDtos;
 import static margo.grid.store.app.testdata.ItemTestDataProvider.getTestItems;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +43,12 @@ class ItemServiceImplTest {
     @Mock
     private ItemMapper itemMapper;
 
+    @Mock
+    private CountEstimateService countEstimateService;
+
+    @Mock
+    private CatalogCache catalogCache;
+
     @InjectMocks
     private ItemServiceImpl itemService;
 
@@ -51,6 +66,11 @@ class ItemServiceImplTest {
         itemResponseDto = itemResponseDtos.getFirst();
         itemId = item.getId();
 
+        lenient().when(catalogCache.getItem(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<UUID, ItemResponseDto>>getArgument(1).apply(invocation.getArgument(0)));
+        lenient().when(catalogCache.getPage(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Pageable, Page<ItemResponseDto>>>getArgument(1).apply(invocation.getArgument(0)));
+
     }
 
     @Test
@@ -124,6 +144,84 @@ class ItemServiceImplTest {
         verify(itemMapper, never()).toItemResponseDto(item);
     }
 
+    @Test
+    void getItemSlice_shouldReadPageWithoutCounting() {
+        // Arrange
+        PageRequest pageRequest = PageRequest.of(0, items.size());
+        when(itemRepository.findAllBy(pageRequest)).thenReturn(new SliceImpl<>(items, pageRequest, false));
+        stubMapperForEachItem();
+
+        // Act
+        Slice<ItemResponseDto> result = itemService.getItemSlice(pageRequest);
+
+        // Assert
+        assertEquals(itemResponseDtos, result.getContent());
+        assertFalse(result.hasNext());
+        verify(itemRepository, never()).findAll(any(Pageable.class));
+        verify(itemRepository, never()).count();
+    }
+
+    @Test
+    void estimateItemCount_shouldDelegateCountingToEstimate() {
+        // Arrange
+        when(countEstimateService.estimate(eq("items"), any())).thenReturn(1234L);
+
+        // Act
+        long result = itemService.estimateItemCount();
+
+        // Assert
+        assertEquals(1234L, result);
+        verify(itemRepository, never()).count();
+    }
+
+    @Test
+    void getItemsAfter_withEmptyCursor_shouldReadFirstPageAndReturnNextCursor() {
+        // Arrange
+        int size = items.size() - 1;
+        when(itemRepository.findFirstPage(Limit.of(size + 1))).thenReturn(items);
+        stubMapperForEachItem();
+
+        // Act
+        CursorPage<ItemResponseDto> page = itemService.getItemsAfter("", size);
+
+        // Assert
+        Item last = items.get(size - 1);
+        assertEquals(itemResponseDtos.subList(0, size), page.content());
+        assertTrue(page.hasNext());
+        assertEquals(new Cursor(last.getTitle(), last.getId()), Cursor.decode(page.nextCursor()));
+        verify(itemRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void getItemsAfter_withCursor_shouldSeekPastItAndStopOnLastPage() {
+        // Arrange
+        Cursor cursor = new Cursor(item.getTitle(), itemId);
+        List<Item> rest = items.subList(1, items.size());
+        when(itemRepository.findPageAfter(item.getTitle(), itemId, Limit.of(items.size() + 1))).thenReturn(rest);
+        stubMapperForEachItem();
+
+        // Act
+        CursorPage<ItemResponseDto> page = itemService.getItemsAfter(cursor.encode(), items.size());
+
+        // Assert
+        assertEquals(itemResponseDtos.subList(1, items.size()), page.content());
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getItemsAfter_withMalformedCursor_shouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> itemService.getItemsAfter("not-a-cursor", 10));
+        verifyNoInteractions(itemRepository);
+    }
+
+    private void stubMapperForEachItem() {
+        for (int i = 0; i < items.size(); i++) {
+            lenient().when(itemMapper.toItemResponseDto(items.get(i))).thenReturn(itemResponseDtos.get(i));
+        }
+    }
+
     private ItemResponseDto createItemResponseDto(Item item) {
         ItemResponseDto dto = new ItemResponseDto();
         dto.setId(item.getId());
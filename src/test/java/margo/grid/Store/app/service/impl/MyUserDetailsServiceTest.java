@@ -1,35 +1,49 @@
 package margo.grid.store.app.service.impl;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.PasswordHashingSettings;
+import margo.grid.store.app.config.UserCacheSettings;
 import margo.grid.store.app.entity.User;
 import margo.grid.store.app.repository.UserRepository;
 import margo.grid.store.app.utils.MyUserDetails;
+import margo.grid.store.app.utils.PasswordEncoderFactory;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class MyUserDetailsServiceTest {
     @Mock private UserRepository userRepository;
 
-    @InjectMocks
-    MyUserDetailsService myUserDetailsService;
+    private MyUserDetailsService myUserDetailsService;
+    private User user;
 
-    @Test
-    void loadUserByUsername_ifEmailIsFound_shouldLoadCorrectUserDetails() {
-        // Arrange
-        User user = User.builder()
+    @BeforeEach
+    void setUp() {
+        myUserDetailsService = new MyUserDetailsService(userRepository, new UserCacheSettings(),
+                new SimpleMeterRegistry());
+        user = User.builder()
                 .email("test@exampl.com")
                 .id(UUID.randomUUID())
                 .passwordHash("$2a$10$N9qo8uLOickgx2ZMRZoMye7VpkVfPxOWYC/JwQPO.DRk2CqyG1x4O")
                 .build();
+    }
 
+    @Test
+    void loadUserByUsername_ifEmailIsFound_shouldLoadCorrectUserDetails() {
+        // Arrange
         when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
 
         // Act
@@ -52,4 +66,70 @@ class MyUserDetailsServiceTest {
         assertThrows(UsernameNotFoundException.class, () ->
                 myUserDetailsService.loadUserByUsername(nonExistentEmail));
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadUserByUsername_calledAgain_shouldServeCachedUserDetails() {
+        // Arrange
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        // Act
+        MyUserDetails first = myUserDetailsService.loadUserByUsername(user.getEmail());
+        MyUserDetails second = myUserDetailsService.loadUserByUsername(user.getEmail().toUpperCase());
+
+        // Assert
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByEmail(any());
+    }
+
+    @Test
+    void loadUserByUsername_afterEvict_shouldLoadNewPasswordHash() {
+        // Arrange
+        User updated = User.builder().email(user.getEmail()).id(user.getId()).passwordHash("new hash").build();
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user), Optional.of(updated));
+        myUserDetailsService.loadUserByUsername(user.getEmail());
+
+        // Act
+        myUserDetailsService.evict(user.getEmail());
+        MyUserDetails reloaded = myUserDetailsService.loadUserByUsername(user.getEmail());
+
+        // Assert
+        assertEquals("new hash", reloaded.getPassword());
+    }
+
+    @Test
+    void updatePassword_shouldStoreNewHashAndEvictCachedUserDetails() {
+        // Arrange
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.save(user)).thenReturn(user);
+        MyUserDetails cached = myUserDetailsService.loadUserByUsername(user.getEmail());
+
+        // Act
+        MyUserDetails updated = myUserDetailsService.updatePassword(cached, "{argon2}new hash");
+
+        // Assert
+        assertEquals("{argon2}new hash", updated.getPassword());
+        assertNotSame(cached, myUserDetailsService.loadUserByUsername(user.getEmail()));
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void authenticate_withLegacyBcryptHash_shouldRehashWithArgon2() {
+        // Arrange
+        PasswordHashingSettings settings = new PasswordHashingSettings();
+        settings.setArgon2MemoryKib(1024);
+        settings.setTargetHashTime(Duration.ofMillis(1));
+        user.setPasswordHash(new BCryptPasswordEncoder(4).encode("Secret1!"));
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.save(user)).thenReturn(user);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(myUserDetailsService);
+        provider.setPasswordEncoder(PasswordEncoderFactory.create(settings));
+        provider.setUserDetailsPasswordService(myUserDetailsService);
+
+        // Act
+        provider.authenticate(new UsernamePasswordAuthenticationToken(user.getEmail(), "Secret1!"));
+
+        // Assert
+        verify(userRepository).save(user);
+        assertTrue(user.getPasswordHash().startsWith("{argon2}"));
+    }
+}
@@ -1,16 +1,31 @@
 package margo.grid.store.app.service.impl;
 
 import jakarta.persistence.EntityNotFoundException;
+import margo.grid.store.app.dto.CancellationResponseDto;
+import margo.grid.store.app.dto.CursorPage;
+import margo.grid.store.app.dto.ItemQuantityDto;
 import margo.grid.store.app.dto.OrderResponseDto;
+import margo.grid.store.app.dto.OrderSummaryDto;
 import margo.grid.store.app.entity.Item;
 import margo.grid.store.app.entity.Order;
+import margo.grid.store.app.entity.OrderLine;
 import margo.grid.store.app.entity.OrderStatus;
+import margo.grid.store.app.entity.OutboxEventType;
 import margo.grid.store.app.entity.User;
+import margo.grid.store.app.event.OrderPlacedEvent;
 import margo.grid.store.app.mapper.OrderMapper;
+import margo.grid.store.app.repository.CartStore.CartLine;
+import margo.grid.store.app.repository.ItemRepository;
 import margo.grid.store.app.repository.OrderRepository;
 import margo.grid.store.app.repository.UserRepository;
 import margo.grid.store.app.service.CartService;
+import margo.grid.store.app.service.CountEstimateService;
+import margo.grid.store.app.service.IdempotencyKeyStore;
+import margo.grid.store.app.service.InventoryService;
+import margo.grid.store.app.service.OutboxService;
+import margo.grid.store.app.utils.Cursor;
 import margo.grid.store.app.utils.MyUserDetails;
+import margo.grid.store.app.utils.RetryExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,12 +34,22 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.access.AccessDeniedException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import static margo.grid.store.app.testdata.AuthTestDataProvider.createOtherUser;
 import static margo.grid.store.app.testdata.AuthTestDataProvider.createTestUser;
@@ -32,6 +57,7 @@ import static margo.grid.store.app.testdata.ItemTestDataProvider.getTestItems;
 import static margo.grid.store.app.testdata.OrderTestDataProvider.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,8 +65,14 @@ class OrderServiceImplTest {
 
     @Mock private OrderRepository orderRepository;
     @Mock private UserRepository userRepository;
+    @Mock private ItemRepository itemRepository;
     @Mock private OrderMapper orderMapper;
     @Mock private CartService cartService;
+    @Mock private CountEstimateService countEstimateService;
+    @Mock private RetryExecutor retryExecutor;
+    @Mock private IdempotencyKeyStore idempotencyKeyStore;
+    @Mock private OutboxService outboxService;
+    @Mock private InventoryService inventoryService;
     @Mock private MyUserDetails userDetails;
 
     @InjectMocks
@@ -72,6 +104,12 @@ class OrderServiceImplTest {
 
         lenient().when(userDetails.getId()).thenReturn(user.getId());
         lenient().when(userDetails.getUsername()).thenReturn(user.getEmail());
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(retryExecutor).run(any());
+        lenient().doAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get())
+                .when(retryExecutor).execute(any());
     }
 
     @Test
@@ -122,114 +160,307 @@ class OrderServiceImplTest {
     @Test
     void createOrder_withValidUser_shouldCreateAndReturnOrder() {
         // Arrange
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(cartService.getAllItemsInCart()).thenReturn(items);
-        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        List<CartLine> cartLines = items.stream().map(item -> new CartLine(item.getId(), 2)).toList();
+        when(cartService.getCartLines(userDetails)).thenReturn(cartLines);
+        when(itemRepository.findAllById(any())).thenReturn(items);
+        when(orderRepository.saveAndFlush(any(Order.class))).thenReturn(order);
         when(orderMapper.toDto(order)).thenReturn(orderResponseDto);
 
         // Act
-        OrderResponseDto result = orderService.createOrder(userDetails);
+        OrderResponseDto result = orderService.createOrder(userDetails, null);
 
         // Assert
         assertNotNull(result);
         assertEquals(orderResponseDto.getId(), result.getId());
         assertEquals(orderResponseDto.getStatus(), result.getStatus());
 
-        verify(userRepository).findById(user.getId());
-        verify(cartService).getAllItemsInCart();
-        verify(orderRepository).save(orderArgumentCaptor.capture());
+        verify(userRepository).getReferenceById(user.getId());
+        verify(userRepository, never()).findById(any());
+        verify(cartService).getCartLines(userDetails);
+        verify(orderRepository).saveAndFlush(orderArgumentCaptor.capture());
         verify(orderMapper).toDto(order);
+        verify(cartService).checkout(userDetails, cartLines);
+        verify(outboxService).append(OutboxEventType.ORDER_PLACED, order.getId(),
+                new OrderPlacedEvent(order.getId(), user.getId(), order.getTotal()));
+        verify(countEstimateService).invalidate("orders:" + user.getId());
+        verifyNoInteractions(idempotencyKeyStore);
 
         Order savedOrder = orderArgumentCaptor.getValue();
         assertEquals(OrderStatus.CONFIRMED, savedOrder.getStatus());
         assertEquals(user, savedOrder.getUser());
-        assertEquals(items.size(), savedOrder.getItems().size());
+        assertNull(savedOrder.getIdempotencyKey());
+        assertEquals(items.size(), savedOrder.getLines().size());
+        BigDecimal expectedTotal = BigDecimal.ZERO;
+        for (Item item : items) {
+            expectedTotal = expectedTotal.add(item.getPrice().multiply(BigDecimal.valueOf(2)));
+        }
+        assertEquals(expectedTotal, savedOrder.getTotal());
+        OrderLine firstLine = savedOrder.getLines().getFirst();
+        assertEquals(2, firstLine.getQuantity());
+        assertEquals(items.getFirst().getPrice(), firstLine.getUnitPrice());
+    }
+
+    @Test
+    void createOrder_withIdempotencyKey_shouldStoreAndRememberKey() {
+        // Arrange
+        UUID requestKey = UUID.randomUUID();
+        when(idempotencyKeyStore.requestKey(user.getId(), "checkout-1")).thenReturn(requestKey);
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of(new CartLine(items.getFirst().getId(), 1)));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(items.getFirst()));
+        when(orderRepository.saveAndFlush(any(Order.class))).thenReturn(order);
+        when(orderMapper.toDto(order)).thenReturn(orderResponseDto);
+
+        // Act
+        orderService.createOrder(userDetails, "checkout-1");
+
+        // Assert
+        verify(orderRepository).saveAndFlush(orderArgumentCaptor.capture());
+        assertEquals(requestKey, orderArgumentCaptor.getValue().getIdempotencyKey());
+        verify(idempotencyKeyStore).remember(requestKey, order.getId());
+    }
+
+    @Test
+    void createOrder_withRememberedIdempotencyKey_shouldReturnPlacedOrderWithoutCheckout() {
+        // Arrange
+        UUID requestKey = UUID.randomUUID();
+        when(idempotencyKeyStore.requestKey(user.getId(), "checkout-1")).thenReturn(requestKey);
+        when(idempotencyKeyStore.findOrderId(requestKey)).thenReturn(order.getId());
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderMapper.toDto(order)).thenReturn(orderResponseDto);
+
+        // Act
+        OrderResponseDto result = orderService.createOrder(userDetails, "checkout-1");
+
+        // Assert
+        assertEquals(orderResponseDto.getId(), result.getId());
+        verify(cartService, never()).getCartLines(any());
+        verify(orderRepository, never()).saveAndFlush(any());
+        verify(cartService, never()).checkout(any(), any());
+    }
+
+    @Test
+    void createOrder_whenConcurrentRetryWithSameKeyCommittedFirst_shouldReturnItsOrder() {
+        // Arrange
+        UUID requestKey = UUID.randomUUID();
+        when(idempotencyKeyStore.requestKey(user.getId(), "checkout-1")).thenReturn(requestKey);
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of(new CartLine(items.getFirst().getId(), 1)));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(items.getFirst()));
+        when(orderRepository.saveAndFlush(any(Order.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(orderRepository.findByIdempotencyKey(requestKey)).thenReturn(Optional.of(order));
+        when(orderMapper.toDto(order)).thenReturn(orderResponseDto);
+
+        // Act
+        OrderResponseDto result = orderService.createOrder(userDetails, "checkout-1");
+
+        // Assert
+        assertEquals(orderResponseDto.getId(), result.getId());
+        verify(cartService, never()).checkout(any(), any());
+        verify(outboxService, never()).append(any(), any(), any());
+        verify(idempotencyKeyStore).remember(requestKey, order.getId());
+    }
+
+    @Test
+    void createOrder_withDuplicateKeyViolationAndNoKey_shouldRethrow() {
+        // Arrange
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of(new CartLine(items.getFirst().getId(), 1)));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(items.getFirst()));
+        when(orderRepository.saveAndFlush(any(Order.class)))
+                .thenThrow(new DataIntegrityViolationException("Foreign key violation"));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> orderService.createOrder(userDetails, null));
+
+        verify(cartService, never()).checkout(any(), any());
+    }
+
+    @Test
+    void createOrder_withEmptyCartAndCheckedOutKey_shouldReturnPlacedOrder() {
+        // Arrange
+        UUID requestKey = UUID.randomUUID();
+        when(idempotencyKeyStore.requestKey(user.getId(), "checkout-1")).thenReturn(requestKey);
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of());
+        when(orderRepository.findByIdempotencyKey(requestKey)).thenReturn(Optional.of(order));
+        when(orderMapper.toDto(order)).thenReturn(orderResponseDto);
+
+        // Act
+        OrderResponseDto result = orderService.createOrder(userDetails, "checkout-1");
+
+        // Assert
+        assertEquals(orderResponseDto.getId(), result.getId());
+        verify(orderRepository, never()).saveAndFlush(any());
+        verify(cartService, never()).checkout(any(), any());
+    }
+
+    @Test
+    void createOrder_withEmptyCart_shouldThrowException() {
+        // Arrange
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(userDetails, null));
+
+        verify(orderRepository, never()).saveAndFlush(any());
+        verify(cartService, never()).checkout(any(), any());
+    }
+
+    @Test
+    void createOrder_withLineOfDeletedItem_shouldRejectCheckout() {
+        // Arrange
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of(
+                new CartLine(items.getFirst().getId(), 1), new CartLine(UUID.randomUUID(), 2)));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(items.getFirst()));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(userDetails, null));
+
+        verify(orderRepository, never()).saveAndFlush(any());
+        verify(cartService, never()).checkout(any(), any());
     }
 
     @Test
     void createOrder_withNonExistentUser_shouldThrowException() {
         // Arrange
-        when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
+        when(cartService.getCartLines(userDetails)).thenReturn(List.of(new CartLine(items.getFirst().getId(), 1)));
+        when(userRepository.getReferenceById(user.getId())).thenThrow(new EntityNotFoundException());
 
         // Act & Assert
-        assertThrows(NoSuchElementException.class, () -> orderService.createOrder(userDetails));
+        assertThrows(EntityNotFoundException.class, () -> orderService.createOrder(userDetails, null));
 
-        verify(userRepository).findById(user.getId());
-        verify(cartService, never()).getAllItemsInCart();
-        verify(orderRepository, never()).save(any());
+        verify(orderRepository, never()).saveAndFlush(any());
+        verify(cartService, never()).checkout(any(), any());
     }
 
     @Test
-    void cancelOrder_withValidIdAndOwner_shouldCancelOrder() {
+    void cancelOrder_withValidIdAndOwner_shouldCancelOrderAndRestock() {
         // Arrange
-        order.setStatus(OrderStatus.CONFIRMED);
-        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
-        when(orderRepository.save(order)).thenReturn(order);
+        UUID itemId = items.getFirst().getId();
+        when(orderRepository.findIdsByUser(List.of(order.getId()), user.getId(), OrderStatus.CONFIRMED))
+                .thenReturn(List.of(order.getId()));
+        when(orderRepository.updateStatus(List.of(order.getId()), OrderStatus.CONFIRMED, OrderStatus.CANCELLED))
+                .thenReturn(1);
+        when(orderRepository.sumQuantitiesByItem(List.of(order.getId())))
+                .thenReturn(List.of(new ItemQuantityDto(itemId, 3L)));
+        when(inventoryService.restock(Map.of(itemId, 3))).thenReturn(3);
 
         // Act
         orderService.cancelOrder(order.getId(), userDetails);
 
         // Assert
-        verify(orderRepository).findById(order.getId());
-        verify(orderRepository).save(orderArgumentCaptor.capture());
-
-        Order cancelledOrder = orderArgumentCaptor.getValue();
-        assertEquals(OrderStatus.CANCELLED, cancelledOrder.getStatus());
+        verify(inventoryService).restock(Map.of(itemId, 3));
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any());
+        verify(countEstimateService).invalidate("orders:" + user.getId());
     }
 
     @Test
     void cancelOrder_withNonExistentId_shouldThrowException() {
         // Arrange
+        when(orderRepository.findIdsByUser(any(), eq(user.getId()), eq(OrderStatus.CONFIRMED))).thenReturn(List.of());
         when(orderRepository.findById(order.getId())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(EntityNotFoundException.class,
                 () -> orderService.cancelOrder(order.getId(), userDetails));
 
-        verify(orderRepository).findById(order.getId());
-        verify(orderRepository, never()).save(order);
+        verify(orderRepository, never()).updateStatus(any(), any(), any());
+        verify(inventoryService, never()).restock(any());
     }
 
     @Test
     void cancelOrder_withDifferentUser_shouldThrowAccessDeniedException() {
         // Arrange
         order.setUser(otherUser);
+        when(orderRepository.findIdsByUser(any(), eq(user.getId()), eq(OrderStatus.CONFIRMED))).thenReturn(List.of());
         when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
 
         // Act & Assert
         assertThrows(AccessDeniedException.class,
                 () -> orderService.cancelOrder(order.getId(), userDetails));
 
-        verify(orderRepository).findById(order.getId());
-        verify(orderRepository, never()).save(order);
+        verify(orderRepository, never()).updateStatus(any(), any(), any());
+        verify(inventoryService, never()).restock(any());
     }
 
     @Test
     void cancelOrder_withAlreadyCancelledOrder_shouldThrowException() {
         // Arrange
         order.setStatus(OrderStatus.CANCELLED);
+        when(orderRepository.findIdsByUser(any(), eq(user.getId()), eq(OrderStatus.CONFIRMED))).thenReturn(List.of());
         when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
 
         // Act & Assert
         assertThrows(IllegalStateException.class,
                 () -> orderService.cancelOrder(order.getId(), userDetails));
 
-        verify(orderRepository).findById(order.getId());
-        verify(orderRepository, never()).save(any());
+        verify(orderRepository, never()).updateStatus(any(), any(), any());
+        verify(inventoryService, never()).restock(any());
+    }
+
+    @Test
+    void cancelOrders_withSeveralOrders_shouldReportCancelledOrdersAndRestoredUnits() {
+        // Arrange
+        List<UUID> ids = orders.stream().map(Order::getId).toList();
+        List<UUID> cancellable = ids.subList(0, 2);
+        UUID firstItemId = items.get(0).getId();
+        UUID secondItemId = items.get(1).getId();
+        when(orderRepository.findIdsByUser(ids, user.getId(), OrderStatus.CONFIRMED)).thenReturn(cancellable);
+        when(orderRepository.updateStatus(cancellable, OrderStatus.CONFIRMED, OrderStatus.CANCELLED)).thenReturn(2);
+        when(orderRepository.sumQuantitiesByItem(cancellable)).thenReturn(List.of(
+                new ItemQuantityDto(firstItemId, 4L), new ItemQuantityDto(secondItemId, 1L)));
+        when(inventoryService.restock(Map.of(firstItemId, 4, secondItemId, 1))).thenReturn(5);
+
+        // Act
+        CancellationResponseDto result = orderService.cancelOrders(ids, userDetails);
+
+        // Assert
+        assertEquals(new CancellationResponseDto(2, 5), result);
+        verify(countEstimateService).invalidate("orders:" + user.getId());
+    }
+
+    @Test
+    void cancelOrders_whenAnotherRequestCancelledOneFirst_shouldFailForRetry() {
+        // Arrange
+        List<UUID> ids = List.of(order.getId());
+        when(orderRepository.findIdsByUser(ids, user.getId(), OrderStatus.CONFIRMED)).thenReturn(ids);
+        when(orderRepository.updateStatus(ids, OrderStatus.CONFIRMED, OrderStatus.CANCELLED)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(ConcurrencyFailureException.class, () -> orderService.cancelOrders(ids, userDetails));
+
+        verify(inventoryService, never()).restock(any());
+    }
+
+    @Test
+    void cancelOrders_withNothingToCancel_shouldReportZero() {
+        // Arrange
+        when(orderRepository.findIdsByUser(any(), eq(user.getId()), eq(OrderStatus.CONFIRMED))).thenReturn(List.of());
+
+        // Act
+        CancellationResponseDto result = orderService.cancelOrders(List.of(UUID.randomUUID()), userDetails);
+
+        // Assert
+        assertEquals(new CancellationResponseDto(0, 0), result);
+        verify(countEstimateService, never()).invalidate(any());
     }
 
     @Test
     void getAllUserOrders_withValidUser_shouldReturnUserOrders() {
         // Arrange
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Order> orderPage = new PageImpl<>(orders, pageable, orders.size());
+        List<OrderSummaryDto> summaries = orders.stream()
+                .map(order -> new OrderSummaryDto(order.getId(), order.getCreatedAt(), order.getStatus(),
+                        order.getTotal()))
+                .toList();
+        Page<OrderSummaryDto> orderPage = new PageImpl<>(summaries, pageable, summaries.size());
 
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(orderRepository.findOrdersByUser_IdAndStatus_(user.getId(), OrderStatus.CONFIRMED, pageable))
+        when(orderRepository.findOrderSummaries(user.getId(), OrderStatus.CONFIRMED, pageable))
                 .thenReturn(orderPage);
 
-        for (int i = 0; i < orders.size(); i++) {
-            when(orderMapper.toDto(orders.get(i))).thenReturn(orderResponseDtos.get(i));
+        for (int i = 0; i < summaries.size(); i++) {
+            when(orderMapper.toDto(summaries.get(i))).thenReturn(orderResponseDtos.get(i));
         }
 
         // Act
@@ -239,19 +470,38 @@ class OrderServiceImplTest {
         assertNotNull(result);
         assertEquals(orders.size(), result.getContent().size());
 
-        verify(userRepository).findById(user.getId());
-        verify(orderRepository).findOrdersByUser_IdAndStatus_(user.getId(), OrderStatus.CONFIRMED, pageable);
-        verify(orderMapper, times(orders.size())).toDto(any(Order.class));
+        verify(orderRepository).findOrderSummaries(user.getId(), OrderStatus.CONFIRMED, pageable);
+        verify(orderMapper, times(orders.size())).toDto(any(OrderSummaryDto.class));
+    }
+
+    @Test
+    void getAllUserOrders_withMoreOrdersThanFitOnPage_shouldKeepTotalFromCountQuery() {
+        // Arrange
+        Pageable pageable = PageRequest.of(1, 1);
+        Order order = orders.getFirst();
+        OrderSummaryDto summary = new OrderSummaryDto(order.getId(), order.getCreatedAt(), order.getStatus(),
+                order.getTotal());
+        when(orderRepository.findOrderSummaries(user.getId(), OrderStatus.CONFIRMED, pageable))
+                .thenReturn(new PageImpl<>(List.of(summary), pageable, 5));
+        when(orderMapper.toDto(summary)).thenReturn(orderResponseDtos.getFirst());
+
+        // Act
+        Page<OrderResponseDto> result = orderService.getAllUserOrders(userDetails, pageable);
+
+        // Assert
+        assertEquals(List.of(orderResponseDtos.getFirst()), result.getContent());
+        assertEquals(5, result.getTotalElements());
+        assertEquals(5, result.getTotalPages());
+        assertEquals(1, result.getNumber());
     }
 
     @Test
     void getAllUserOrders_withEmptyResult_shouldReturnEmptyPage() {
         // Arrange
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Order> emptyPage = new PageImpl<>(Collections.emptyList(), pageable, 0);
+        Page<OrderSummaryDto> emptyPage = new PageImpl<>(Collections.emptyList(), pageable, 0);
 
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(orderRepository.findOrdersByUser_IdAndStatus_(user.getId(), OrderStatus.CONFIRMED, pageable))
+        when(orderRepository.findOrderSummaries(user.getId(), OrderStatus.CONFIRMED, pageable))
                 .thenReturn(emptyPage);
 
         // Act
@@ -262,22 +512,86 @@ class OrderServiceImplTest {
         assertTrue(result.getContent().isEmpty());
         assertEquals(0, result.getTotalElements());
 
-        verify(userRepository).findById(user.getId());
-        verify(orderRepository).findOrdersByUser_IdAndStatus_(user.getId(), OrderStatus.CONFIRMED, pageable);
-        verify(orderMapper, never()).toDto(any(Order.class));
+        verify(orderRepository).findOrderSummaries(user.getId(), OrderStatus.CONFIRMED, pageable);
+        verify(orderMapper, never()).toDto(any(OrderSummaryDto.class));
     }
 
     @Test
-    void getAllUserOrders_withNonExistentUser_shouldThrowException() {
+    void getAllUserOrders_shouldUseAuthenticatedUserIdWithoutLoadingUser() {
         // Arrange
         Pageable pageable = PageRequest.of(0, 10);
-        when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
+        when(orderRepository.findOrderSummaries(user.getId(), OrderStatus.CONFIRMED, pageable))
+                .thenReturn(Page.empty(pageable));
 
-        // Act & Assert
-        assertThrows(NoSuchElementException.class,
-                () -> orderService.getAllUserOrders(userDetails, pageable));
+        // Act
+        orderService.getAllUserOrders(userDetails, pageable);
+
+        // Assert
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUserOrderSlice_shouldNotCountOrders() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 1);
+        OrderSummaryDto summary = new OrderSummaryDto(order.getId(), order.getCreatedAt(), order.getStatus(),
+                order.getTotal());
+        when(orderRepository.findOrderSummarySlice(user.getId(), OrderStatus.CONFIRMED, pageable))
+                .thenReturn(new SliceImpl<>(List.of(summary), pageable, true));
+        when(orderMapper.toDto(summary)).thenReturn(orderResponseDto);
+
+        // Act
+        Slice<OrderResponseDto> result = orderService.getUserOrderSlice(userDetails, pageable);
+
+        // Assert
+        assertEquals(List.of(orderResponseDto), result.getContent());
+        assertTrue(result.hasNext());
+        verify(orderRepository, never()).countByUser_IdAndStatus(any(), any());
+        verify(orderRepository, never()).findOrderSummaries(any(), any(), any());
+    }
+
+    @Test
+    void estimateUserOrderCount_shouldCountConfirmedOrdersOfUserThroughEstimate() {
+        // Arrange
+        when(countEstimateService.estimate(eq("orders:" + user.getId()), any()))
+                .thenAnswer(invocation -> invocation.<LongSupplier>getArgument(1).getAsLong());
+        when(orderRepository.countByUser_IdAndStatus(user.getId(), OrderStatus.CONFIRMED)).thenReturn(42L);
+
+        // Act
+        long result = orderService.estimateUserOrderCount(userDetails);
 
-        verify(userRepository).findById(user.getId());
-        verify(orderRepository, never()).findOrdersByUser_IdAndStatus_(user.getId(), OrderStatus.CONFIRMED, pageable);
+        // Assert
+        assertEquals(42L, result);
+    }
+
+    @Test
+    void getUserOrdersAfter_withCursor_shouldSeekFromItsTimestampAndId() {
+        // Arrange
+        Timestamp createdAt = Timestamp.from(Instant.parse("2025-03-01T10:15:30.123456Z"));
+        UUID lastId = UUID.randomUUID();
+        String after = new Cursor(createdAt.toInstant().toString(), lastId).encode();
+        OrderSummaryDto next = new OrderSummaryDto(order.getId(), createdAt, OrderStatus.CONFIRMED, order.getTotal());
+
+        when(orderRepository.findOrderSummariesAfter(user.getId(), OrderStatus.CONFIRMED, createdAt, lastId,
+                Limit.of(2))).thenReturn(List.of(next));
+        when(orderMapper.toDto(next)).thenReturn(orderResponseDto);
+
+        // Act
+        CursorPage<OrderResponseDto> result = orderService.getUserOrdersAfter(userDetails, after, 1);
+
+        // Assert
+        assertEquals(List.of(orderResponseDto), result.content());
+        assertFalse(result.hasNext());
+        verify(orderRepository, never()).findOrderSummaries(any(), any(), any());
+    }
+
+    @Test
+    void getUserOrdersAfter_withCursorOfOtherKind_shouldThrowException() {
+        // Arrange
+        String after = new Cursor("Notebook", UUID.randomUUID()).encode();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> orderService.getUserOrdersAfter(userDetails, after, 10));
+        verifyNoInteractions(orderRepository);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package margo.grid.store.app.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.OutboxSettings;
+import margo.grid.store.app.entity.OutboxEvent;
+import margo.grid.store.app.entity.OutboxEventType;
+import margo.grid.store.app.entity.OutboxStatus;
+import margo.grid.store.app.event.OrderPlacedEvent;
+import margo.grid.store.app.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionOperations;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceImplTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock private OutboxEventRepository outboxRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Captor private ArgumentCaptor<OutboxEvent> eventCaptor;
+
+    private Map<UUID, OutboxEvent> events;
+    private OutboxSettings settings;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        events = new LinkedHashMap<>();
+        settings = new OutboxSettings();
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(outboxRepository.findUnclaimedIds(eq(OutboxStatus.PENDING), any(), any())).thenAnswer(invocation ->
+                events.values().stream().filter(event -> isClaimable(event, invocation.getArgument(1)))
+                        .limit(invocation.<Limit>getArgument(2).max())
+                        .map(OutboxEvent::getId).toList());
+        lenient().when(outboxRepository.claim(any(), eq(OutboxStatus.PENDING), any(), any(), any())).thenAnswer(invocation -> {
+            int claimed = 0;
+            for (UUID id : invocation.<Collection<UUID>>getArgument(0)) {
+                OutboxEvent event = events.get(id);
+                if (!isClaimable(event, invocation.getArgument(2))) continue;
+                event.setClaimToken(invocation.getArgument(3));
+                event.setClaimedUntil(invocation.getArgument(4));
+                claimed++;
+            }
+            return claimed;
+        });
+        lenient().when(outboxRepository.findClaimedIds(any(), any())).thenAnswer(invocation ->
+                invocation.<Collection<UUID>>getArgument(0).stream()
+                        .filter(id -> invocation.getArgument(1).equals(events.get(id).getClaimToken()))
+                        .toList());
+        lenient().when(outboxRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<OutboxEvent> found = new ArrayList<>();
+            invocation.<Iterable<UUID>>getArgument(0).forEach(id -> found.add(events.get(id)));
+            return found;
+        });
+        lenient().when(outboxRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(events.get(invocation.<UUID>getArgument(0))));
+    }
+
+    @Test
+    void append_shouldStorePendingEventWithSerializedPayload() throws Exception {
+        // Arrange
+        OutboxServiceImpl outboxService = createService();
+        OrderPlacedEvent placed = orderPlaced();
+
+        // Act
+        outboxService.append(OutboxEventType.ORDER_PLACED, placed.orderId(), placed);
+
+        // Assert
+        verify(outboxRepository).save(eventCaptor.capture());
+        OutboxEvent stored = eventCaptor.getValue();
+        assertEquals(OutboxStatus.PENDING, stored.getStatus());
+        assertEquals(placed.orderId(), stored.getAggregateId());
+        assertEquals(placed, objectMapper.readValue(stored.getPayload(), OrderPlacedEvent.class));
+        outboxService.shutdown();
+    }
+
+    @Test
+    void dispatch_withPendingEvents_shouldPublishThemAndMarkProcessed() throws Exception {
+        // Arrange
+        OutboxServiceImpl outboxService = createService();
+        OrderPlacedEvent first = orderPlaced();
+        OrderPlacedEvent second = orderPlaced();
+        OutboxEvent firstRow = pending(first);
+        OutboxEvent secondRow = pending(second);
+
+        // Act
+        outboxService.dispatch();
+        outboxService.shutdown();
+
+        // Assert
+        verify(eventPublisher).publishEvent(first);
+        verify(eventPublisher).publishEvent(second);
+        assertEquals(OutboxStatus.PROCESSED, firstRow.getStatus());
+        assertEquals(OutboxStatus.PROCESSED, secondRow.getStatus());
+        assertNotNull(firstRow.getProcessedAt());
+        assertEquals(2, meterRegistry.get("outbox.events").tag("result", "processed").counter().count());
+    }
+
+    @Test
+    void dispatch_whenListenerKeepsFailing_shouldParkEventAndDeliverTheRest() throws Exception {
+        // Arrange
+        settings.setMaxAttempts(1);
+        OutboxServiceImpl outboxService = createService();
+        OrderPlacedEvent poison = orderPlaced();
+        OrderPlacedEvent healthy = orderPlaced();
+        OutboxEvent poisonRow = pending(poison);
+        OutboxEvent healthyRow = pending(healthy);
+        doThrow(new IllegalStateException("listener down")).when(eventPublisher).publishEvent(poison);
+
+        // Act
+        outboxService.dispatch();
+        outboxService.shutdown();
+
+        // Assert
+        assertEquals(OutboxStatus.FAILED, poisonRow.getStatus());
+        assertEquals(1, poisonRow.getAttempts());
+        assertEquals("listener down", poisonRow.getLastError());
+        assertEquals(OutboxStatus.PROCESSED, healthyRow.getStatus());
+    }
+
+    @Test
+    void dispatch_whenWorkersAreBusy_shouldLeaveTheRestInTheOutbox() throws Exception {
+        // Arrange
+        settings.setWorkers(1);
+        settings.setQueuedBatches(1);
+        settings.setBatchSize(1);
+        OutboxServiceImpl outboxService = createService();
+        for (int i = 0; i < 10; i++) {
+            pending(orderPlaced());
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(eventPublisher).publishEvent(any(Object.class));
+
+        // Act
+        outboxService.dispatch();
+        double claimed = meterRegistry.get("outbox.in-flight").gauge().value();
+        release.countDown();
+        outboxService.shutdown();
+
+        // Assert
+        assertTrue(claimed <= 2, "claimed " + claimed + " events");
+        assertTrue(events.values().stream().filter(event -> event.getStatus() == OutboxStatus.PENDING).count() >= 8);
+    }
+
+    @Test
+    void dispatch_onSeveralNodes_shouldDeliverEveryEventOnce() throws Exception {
+        // Arrange
+        OutboxServiceImpl first = createService();
+        OutboxServiceImpl second = createService();
+        List<OrderPlacedEvent> placed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            placed.add(orderPlaced());
+            pending(placed.getLast());
+        }
+
+        // Act
+        first.dispatch();
+        second.dispatch();
+        first.shutdown();
+        second.shutdown();
+
+        // Assert
+        placed.forEach(event -> verify(eventPublisher).publishEvent(event));
+        assertTrue(events.values().stream().allMatch(event -> event.getStatus() == OutboxStatus.PROCESSED));
+    }
+
+    @Test
+    void dispatch_withLapsedClaim_shouldClaimTheEventAgain() throws Exception {
+        // Arrange
+        OutboxServiceImpl outboxService = createService();
+        OrderPlacedEvent placed = orderPlaced();
+        OutboxEvent row = pending(placed);
+        row.setClaimToken(UUID.randomUUID());
+        row.setClaimedUntil(Timestamp.from(Instant.now().minusSeconds(1)));
+
+        // Act
+        outboxService.dispatch();
+        outboxService.shutdown();
+
+        // Assert
+        verify(eventPublisher).publishEvent(placed);
+        assertEquals(OutboxStatus.PROCESSED, row.getStatus());
+    }
+
+    private static boolean isClaimable(OutboxEvent event, Timestamp now) {
+        return event.getStatus() == OutboxStatus.PENDING
+                && (event.getClaimedUntil() == null || event.getClaimedUntil().before(now));
+    }
+
+    private OutboxServiceImpl createService() {
+        return new OutboxServiceImpl(outboxRepository, TransactionOperations.withoutTransaction(), eventPublisher,
+                objectMapper, settings, meterRegistry);
+    }
+
+    private OutboxEvent pending(OrderPlacedEvent placed) throws Exception {
+        OutboxEvent event = OutboxEvent.builder()
+                .id(UUID.randomUUID())
+                .type(OutboxEventType.ORDER_PLACED)
+                .aggregateId(placed.orderId())
+                .payload(objectMapper.writeValueAsString(placed))
+                .build();
+        events.put(event.getId(), event);
+        return event;
+    }
+
+    private static OrderPlacedEvent orderPlaced() {
+        return new OrderPlacedEvent(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("12.50"));
+    }
+}
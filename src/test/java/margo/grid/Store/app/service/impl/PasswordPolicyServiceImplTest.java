@@ -0,0 +1,133 @@
+package margo.grid.store.app.service.impl;
+
+import margo.grid.store.app.config.PasswordSettings;
+import margo.grid.store.app.utils.MappedPasswordFingerprintFile;
+import margo.grid.store.app.utils.PasswordFingerprintSet;
+import margo.grid.store.app.utils.PasswordPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordPolicyServiceImplTest {
+    private static final String LEAKED = "Leaked#Pass9";
+
+    @TempDir
+    private Path directory;
+
+    private PasswordSettings settings;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        settings = new PasswordSettings();
+        settings.setMaxLength(100);
+        settings.setMinUppercase(1);
+        settings.setMinLowercase(1);
+        settings.setMinDigits(1);
+        settings.setMinSpecial(1);
+        settings.setMaxRepeatChars(2);
+        settings.setMaxSequenceLength(3);
+        settings.setCommonPasswords(new String[]{"Welcome#Home7"});
+        file = directory.resolve("common.txt");
+        Files.writeString(file, "Spring#Time5\n");
+        settings.setCommonPasswordsFile(file.toString());
+    }
+
+    @Test
+    void getPolicy_shouldRejectConfiguredAndFilePasswords() {
+        // Act
+        PasswordPolicy policy = new PasswordPolicyServiceImpl(settings).getPolicy();
+
+        // Assert
+        assertEquals(2, policy.getCommonPasswordCount());
+        assertFalse(policy.validate("Welcome#Home7").isEmpty());
+        assertFalse(policy.validate("Spring#Time5").isEmpty());
+        assertTrue(policy.validate(LEAKED).isEmpty());
+    }
+
+    @Test
+    void getPolicy_withBreachedPasswordFile_shouldRejectItsPasswordsToo() throws Exception {
+        // Arrange
+        Path breached = directory.resolve("breached.pwfp");
+        MappedPasswordFingerprintFile.write(PasswordFingerprintSet.of(List.of(LEAKED, "Spring#Time5")), breached);
+        settings.setBreachedPasswordsFile(breached.toString());
+
+        // Act
+        PasswordPolicy policy = new PasswordPolicyServiceImpl(settings).getPolicy();
+
+        // Assert
+        assertEquals(4, policy.getCommonPasswordCount());
+        assertEquals(1, policy.validate(LEAKED).size());
+        assertEquals(1, policy.validate("Spring#Time5").size());
+        assertFalse(policy.validate("Welcome#Home7").isEmpty());
+    }
+
+    @Test
+    void reloadIfChanged_whenFileChanged_shouldSwapInNewPolicy() throws Exception {
+        // Arrange
+        PasswordPolicyServiceImpl service = new PasswordPolicyServiceImpl(settings);
+        PasswordPolicy before = service.getPolicy();
+        Files.writeString(file, "Spring#Time5\n" + LEAKED + "\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(5)));
+
+        // Act
+        service.reloadIfChanged();
+        PasswordPolicy after = awaitPolicyOtherThan(service, before);
+
+        // Assert
+        assertFalse(after.validate(LEAKED).isEmpty());
+        assertTrue(before.validate(LEAKED).isEmpty());
+    }
+
+    @Test
+    void reloadIfChanged_whenFileIsGone_shouldKeepCurrentPolicy() throws Exception {
+        // Arrange
+        PasswordPolicyServiceImpl service = new PasswordPolicyServiceImpl(settings);
+        PasswordPolicy before = service.getPolicy();
+        Files.delete(file);
+
+        // Act
+        service.reloadIfChanged();
+
+        // Assert
+        assertSame(before, service.getPolicy());
+    }
+
+    @Test
+    void reload_whenFileIsGone_shouldFailAndKeepCurrentPolicy() throws Exception {
+        // Arrange
+        PasswordPolicyServiceImpl service = new PasswordPolicyServiceImpl(settings);
+        PasswordPolicy before = service.getPolicy();
+        Files.delete(file);
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class, service::reload);
+        assertSame(before, service.getPolicy());
+    }
+
+    @Test
+    void constructor_withMissingFile_shouldFail() {
+        // Arrange
+        settings.setCommonPasswordsFile(directory.resolve("missing.txt").toString());
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class, () -> new PasswordPolicyServiceImpl(settings));
+    }
+
+    private static PasswordPolicy awaitPolicyOtherThan(PasswordPolicyServiceImpl service, PasswordPolicy old)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.getPolicy() == old && System.nanoTime() < deadline) Thread.sleep(10);
+        assertNotSame(old, service.getPolicy());
+        return service.getPolicy();
+    }
+}
@@ -0,0 +1,108 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.InventorySettings;
+import margo.grid.store.app.entity.CartReservation;
+import margo.grid.store.app.entity.Item;
+import margo.grid.store.app.repository.CartReservationRepository;
+import margo.grid.store.app.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flushes reservations and stock through the real repositories and checks what reached the database,
+ * which is all a restarted node has to go on.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservations;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=h2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationPersistenceTest {
+    private static final String CART_ID = "cart-1";
+    private static final int INITIAL_STOCK = 10;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    CartReservationRepository reservationRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        itemId = itemRepository.save(Item.builder()
+                .title("Reserved item")
+                .price(BigDecimal.TEN)
+                .availableQuantity(INITIAL_STOCK)
+                .build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll();
+        itemRepository.deleteById(itemId);
+    }
+
+    @Test
+    void flush_shouldWriteReservationsTogetherWithTheStockTheyHold() {
+        // Arrange
+        ReservationServiceImpl reservationService = createNode();
+        reservationService.hold(CART_ID, itemId, 3);
+
+        // Act
+        reservationService.flush();
+
+        // Assert
+        assertThat(itemRepository.findById(itemId).orElseThrow().getAvailableQuantity()).isEqualTo(7);
+        assertThat(reservationRepository.findAll()).singleElement()
+                .extracting(CartReservation::getCartId, CartReservation::getItemId, CartReservation::getQuantity)
+                .containsExactly(CART_ID, itemId, 3);
+    }
+
+    @Test
+    void loadPersistedReservations_afterRestart_shouldReturnHeldStockWhenCartLetsGo() {
+        // Arrange
+        ReservationServiceImpl crashed = createNode();
+        crashed.hold(CART_ID, itemId, 3);
+        crashed.flush();
+        ReservationServiceImpl restarted = createNode();
+        restarted.loadPersistedReservations();
+
+        // Act
+        restarted.hold(CART_ID, itemId, 0);
+        restarted.flush();
+
+        // Assert
+        assertThat(itemRepository.findById(itemId).orElseThrow().getAvailableQuantity()).isEqualTo(INITIAL_STOCK);
+        assertThat(reservationRepository.count()).isZero();
+    }
+
+    private ReservationServiceImpl createNode() {
+        InventorySettings settings = new InventorySettings();
+        InventoryServiceImpl inventoryService = new InventoryServiceImpl(itemRepository, transactionTemplate,
+                settings, event -> { });
+        return new ReservationServiceImpl(inventoryService, reservationRepository, transactionTemplate, settings,
+                new SimpleMeterRegistry());
+    }
+}
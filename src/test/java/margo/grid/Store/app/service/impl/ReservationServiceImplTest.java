@@ -0,0 +1,393 @@
+package margo.grid.store.app.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.InventorySettings;
+import margo.grid.store.app.entity.CartReservation;
+import margo.grid.store.app.event.StockRejectedEvent;
+import margo.grid.store.app.exception.OutOfStockException;
+import margo.grid.store.app.repository.CartReservationRepository;
+import margo.grid.store.app.repository.CartStore.CartLine;
+import margo.grid.store.app.service.InventoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceImplTest {
+    private static final String CART_ID = "cart-1";
+
+    @Mock private InventoryService inventoryService;
+    @Mock private CartReservationRepository reservationRepository;
+    @Mock private InventorySettings inventorySettings;
+    @Captor private ArgumentCaptor<List<CartReservation>> reservationsCaptor;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReservationServiceImpl reservationService;
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reservationService = new ReservationServiceImpl(inventoryService, reservationRepository,
+                TransactionOperations.withoutTransaction(), inventorySettings, meterRegistry);
+        lenient().when(inventorySettings.getReservationTtl()).thenReturn(Duration.ofMinutes(30));
+        itemId = UUID.randomUUID();
+    }
+
+    @Test
+    void hold_newReservation_shouldReserveStock() {
+        // Act
+        reservationService.hold(CART_ID, itemId, 3);
+
+        // Assert
+        verify(inventoryService).reserve(itemId, 3);
+        assertEquals(1, activeReservations());
+    }
+
+    @Test
+    void hold_withLowerQuantity_shouldReleaseDifference() {
+        // Arrange
+        reservationService.hold(CART_ID, itemId, 5);
+
+        // Act
+        reservationService.hold(CART_ID, itemId, 2);
+
+        // Assert
+        verify(inventoryService).release(itemId, 3);
+    }
+
+    @Test
+    void hold_withZeroQuantity_shouldReleaseEverythingAndDropReservation() {
+        // Arrange
+        reservationService.hold(CART_ID, itemId, 4);
+
+        // Act
+        reservationService.hold(CART_ID, itemId, 0);
+
+        // Assert
+        verify(inventoryService).release(itemId, 4);
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void hold_withInsufficientStock_shouldNotKeepReservation() {
+        // Arrange
+        doThrow(new IllegalArgumentException("The requested quantity exceeded available quantity!"))
+                .when(inventoryService).reserve(itemId, 10);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> reservationService.hold(CART_ID, itemId, 10));
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void hold_whenLineChangesWhileStockIsReserved_shouldGiveStockBackAndStartOver() {
+        // Arrange
+        doAnswer(invocation -> {
+            reservationService.hold(CART_ID, itemId, 1);
+            return null;
+        }).doNothing().when(inventoryService).reserve(itemId, 3);
+
+        // Act
+        reservationService.hold(CART_ID, itemId, 3);
+
+        // Assert
+        var inOrder = inOrder(inventoryService);
+        inOrder.verify(inventoryService).reserve(itemId, 1);
+        inOrder.verify(inventoryService).release(itemId, 3);
+        inOrder.verify(inventoryService).reserve(itemId, 2);
+        assertEquals(1, activeReservations());
+    }
+
+    @Test
+    void reapExpiredReservations_withExpiredReservation_shouldReturnStockAndRecordMetrics() {
+        // Arrange
+        when(inventorySettings.getReservationTtl()).thenReturn(Duration.ZERO);
+        reservationService.hold(CART_ID, itemId, 4);
+
+        // Act
+        reservationService.reapExpiredReservations();
+
+        // Assert
+        verify(inventoryService).release(itemId, 4);
+        assertEquals(4, meterRegistry.get("inventory.reservations.reclaimed").counter().count());
+        assertEquals(1, meterRegistry.get("inventory.reservations.expired").counter().count());
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void reapExpiredReservations_whenStockIsReturned_shouldNotHoldTheLine() {
+        // Arrange
+        when(inventorySettings.getReservationTtl()).thenReturn(Duration.ZERO);
+        reservationService.hold(CART_ID, itemId, 4);
+        doAnswer(invocation -> {
+            reservationService.hold(CART_ID, itemId, 0);
+            return null;
+        }).when(inventoryService).release(itemId, 4);
+
+        // Act
+        reservationService.reapExpiredReservations();
+
+        // Assert
+        verify(inventoryService).release(itemId, 4);
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void reapExpiredReservations_withLiveReservation_shouldKeepIt() {
+        // Arrange
+        reservationService.hold(CART_ID, itemId, 4);
+
+        // Act
+        reservationService.reapExpiredReservations();
+
+        // Assert
+        verify(inventoryService, never()).release(any(), anyInt());
+        assertEquals(1, activeReservations());
+    }
+
+    @Test
+    void hold_afterReservationExpired_shouldReserveFullQuantityAgain() {
+        // Arrange
+        when(inventorySettings.getReservationTtl()).thenReturn(Duration.ZERO);
+        reservationService.hold(CART_ID, itemId, 2);
+        reservationService.reapExpiredReservations();
+
+        // Act
+        reservationService.hold(CART_ID, itemId, 2);
+
+        // Assert
+        verify(inventoryService, times(2)).reserve(itemId, 2);
+    }
+
+    @Test
+    void consume_shouldDropReservationWithoutReturningStock() {
+        // Arrange
+        when(inventorySettings.getReservationTtl()).thenReturn(Duration.ZERO);
+        reservationService.hold(CART_ID, itemId, 2);
+
+        // Act
+        reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2)));
+        reservationService.reapExpiredReservations();
+
+        // Assert
+        verify(inventoryService, never()).release(any(), anyInt());
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void consume_afterReservationExpired_shouldReserveTheLineAgain() {
+        // Arrange
+        when(inventorySettings.getReservationTtl()).thenReturn(Duration.ZERO);
+        reservationService.hold(CART_ID, itemId, 2);
+        reservationService.reapExpiredReservations();
+
+        // Act
+        reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2)));
+
+        // Assert
+        verify(inventoryService, times(2)).reserve(itemId, 2);
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void consume_whenExpiredLineIsOutOfStock_shouldRejectCheckout() {
+        // Arrange
+        doThrow(new IllegalArgumentException("The requested quantity exceeded available quantity!"))
+                .when(inventoryService).reserve(itemId, 2);
+
+        // Act & Assert
+        assertThrows(OutOfStockException.class,
+                () -> reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2))));
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void consume_insideTransaction_shouldDeleteRowsAndFlushStockBeforeCommit() {
+        // Arrange
+        CartReservation persisted = CartReservation.builder()
+                .cartId(CART_ID).itemId(itemId).quantity(2).expiresAt(LocalDateTime.now()).build();
+        when(reservationRepository.findAllByCartIdIn(Set.of(CART_ID))).thenReturn(List.of(persisted));
+        reservationService.hold(CART_ID, itemId, 2);
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2)));
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        verify(reservationRepository).deleteAllInBatch(reservationsCaptor.capture());
+        assertEquals(1, reservationsCaptor.getValue().size());
+        verify(inventoryService).flush(Set.of(itemId));
+        verify(inventoryService, never()).flush();
+        assertEquals(0, activeReservations());
+    }
+
+    @Test
+    void consume_insideTransaction_shouldPersistOtherCartsChangesOfTheConsumedItemsOnly() {
+        // Arrange
+        UUID otherItemId = UUID.randomUUID();
+        reservationService.hold(CART_ID, itemId, 2);
+        reservationService.hold("cart-2", itemId, 1);
+        reservationService.hold("cart-2", otherItemId, 4);
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2)));
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        reservationService.flush();
+
+        // Assert
+        verify(reservationRepository, times(2)).saveAll(reservationsCaptor.capture());
+        List<List<CartReservation>> saved = reservationsCaptor.getAllValues();
+        assertEquals(List.of(itemId), saved.get(0).stream().map(CartReservation::getItemId).toList());
+        assertEquals(List.of(otherItemId), saved.get(1).stream().map(CartReservation::getItemId).toList());
+    }
+
+    @Test
+    void consume_whenRowWasInsertedConcurrently_shouldFailForRetryAndRestoreReservation() {
+        // Arrange
+        reservationService.hold(CART_ID, itemId, 2);
+        reservationService.hold("cart-2", itemId, 1);
+        doThrow(new DataIntegrityViolationException("duplicate")).when(reservationRepository).flush();
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(ConcurrencyFailureException.class,
+                    () -> reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2))));
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertEquals(2, activeReservations());
+        verify(inventoryService, never()).flush(any());
+    }
+
+    @Test
+    void consume_whenTransactionRollsBack_shouldRestoreReservation() {
+        // Arrange
+        reservationService.hold(CART_ID, itemId, 2);
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservationService.consume(CART_ID, List.of(new CartLine(itemId, 2)));
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertEquals(1, activeReservations());
+        verify(inventoryService, never()).release(any(), anyInt());
+    }
+
+    @Test
+    void flush_withChangedReservation_shouldPersistItOnceTogetherWithStock() {
+        // Arrange
+        reservationService.hold(CART_ID, itemId, 3);
+
+        // Act
+        reservationService.flush();
+        reservationService.flush();
+
+        // Assert
+        verify(reservationRepository).saveAll(reservationsCaptor.capture());
+        CartReservation saved = reservationsCaptor.getValue().getFirst();
+        assertEquals(CART_ID, saved.getCartId());
+        assertEquals(itemId, saved.getItemId());
+        assertEquals(3, saved.getQuantity());
+        verify(inventoryService, times(2)).flush();
+    }
+
+    @Test
+    void flush_afterReservationRemoved_shouldDeletePersistedRow() {
+        // Arrange
+        CartReservation persisted = CartReservation.builder()
+                .cartId(CART_ID).itemId(itemId).quantity(3).expiresAt(LocalDateTime.now()).build();
+        when(reservationRepository.findAllByCartIdIn(Set.of(CART_ID))).thenReturn(List.of(persisted));
+        reservationService.hold(CART_ID, itemId, 3);
+        reservationService.hold(CART_ID, itemId, 0);
+
+        // Act
+        reservationService.flush();
+
+        // Assert
+        verify(reservationRepository).deleteAllInBatch(List.of(persisted));
+    }
+
+    @Test
+    void loadPersistedReservations_withExpiredRow_shouldReclaimItOnNextReap() {
+        // Arrange
+        CartReservation persisted = CartReservation.builder()
+                .cartId(CART_ID).itemId(itemId).quantity(6).expiresAt(LocalDateTime.now().minusMinutes(1)).build();
+        when(reservationRepository.findAll()).thenReturn(List.of(persisted));
+
+        // Act
+        reservationService.loadPersistedReservations();
+        reservationService.reapExpiredReservations();
+
+        // Assert
+        verify(inventoryService).release(itemId, 6);
+    }
+
+    @Test
+    void onStockRejected_shouldRevokeNewestReservationsWithoutReturningStock() {
+        // Arrange
+        reservationService.hold("cart-old", itemId, 3);
+        when(inventorySettings.getReservationTtl()).thenReturn(Duration.ofMinutes(60));
+        reservationService.hold("cart-new", itemId, 2);
+
+        // Act
+        reservationService.onStockRejected(new StockRejectedEvent(itemId, 4));
+        reservationService.flush();
+
+        // Assert
+        verify(inventoryService, never()).release(any(), anyInt());
+        assertEquals(1, activeReservations());
+        assertEquals(4, meterRegistry.get("inventory.reservations.revoked").counter().count());
+        verify(reservationRepository).saveAll(reservationsCaptor.capture());
+        CartReservation kept = reservationsCaptor.getValue().getFirst();
+        assertEquals("cart-old", kept.getCartId());
+        assertEquals(1, kept.getQuantity());
+    }
+
+    private void completeTransaction(int status) {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private double activeReservations() {
+        return meterRegistry.get("inventory.reservations.active").gauge().value();
+    }
+}
@@ -19,7 +19,6 @@ public class OrderTestDataProvider {
                     .id(UUID.randomUUID())
                     .status(i % 4 == 0 ? OrderStatus.CANCELLED : OrderStatus.CONFIRMED)
                     .user(user)
-                    .items(new HashSet<>(items.size()))
                     .build();
             orders.add(order);
         }
@@ -57,14 +56,10 @@ public class OrderTestDataProvider {
     }
 
     public static OrderResponseDto createOrderResponseDto(Order order) {
-        BigDecimal total = order.getItems().stream()
-                .map(Item::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
         return createOrderResponseDto(
                 order.getId(),
                 order.getStatus(),
-                total,
+                order.getTotal(),
                 order.getCreatedAt() != null ? order.getCreatedAt().toLocalDateTime() : LocalDateTime.now()
         );
     }
@@ -79,11 +74,12 @@ public class OrderTestDataProvider {
     }
 
     public static Order createOrder(User user, List<Item> items) {
-        return Order.builder()
+        Order order = Order.builder()
                 .id(UUID.randomUUID())
                 .status(OrderStatus.CONFIRMED)
                 .user(user)
-                .items(new HashSet<>(items))
                 .build();
+        items.forEach(item -> order.addLine(item, 1));
+        return order;
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package margo.grid.store.app.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.PasswordHashingSettings;
+import margo.grid.store.app.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BoundedPasswordEncoderTest {
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingSettings settings;
+    private BoundedPasswordEncoder encoder;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        settings = new PasswordHashingSettings();
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) encoder.shutdown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void encodeAndMatches_shouldHashOnHashingThreadsAndRecordLatency() {
+        // Arrange
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), settings, meterRegistry);
+
+        // Act
+        String hash = encoder.encode("Secret1!");
+        boolean matches = encoder.matches("Secret1!", hash);
+        boolean mismatches = encoder.matches("Other1!", hash);
+
+        // Assert
+        assertTrue(matches);
+        assertFalse(mismatches);
+        assertEquals(1, meterRegistry.get("password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void matches_whenQueueIsFull_shouldRejectInsteadOfWaiting() throws Exception {
+        // Arrange
+        settings.setThreads(1);
+        settings.setQueueCapacity(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = mock(PasswordEncoder.class);
+        when(slow.matches(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        encoder = new BoundedPasswordEncoder(slow, settings, meterRegistry);
+        Future<Boolean> running = callers.submit(() -> encoder.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Boolean> queued = callers.submit(() -> encoder.matches("b", "hash"));
+        while (meterRegistry.get("password.hash.queued").gauge().value() < 1) Thread.onSpinWait();
+
+        // Act & Assert
+        assertThrows(ServiceOverloadedException.class, () -> encoder.matches("c", "hash"));
+        assertEquals(1, meterRegistry.get("password.hash.rejected").counter().count());
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void encode_whenDelegateThrows_shouldRethrowOnCallerThread() {
+        // Arrange
+        PasswordEncoder failing = mock(PasswordEncoder.class);
+        when(failing.encode(any())).thenThrow(new IllegalArgumentException("too long"));
+        encoder = new BoundedPasswordEncoder(failing, settings, meterRegistry);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> encoder.encode("x"));
+        assertEquals("too long", exception.getMessage());
+    }
+}
@@ -0,0 +1,52 @@
+package margo.grid.store.app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorTest {
+
+    @Test
+    void decode_ofEncodedCursor_shouldReturnSameKeyAndId() {
+        // Arrange
+        Cursor cursor = new Cursor("Ручка / pen, 0.5\tmm", UUID.randomUUID());
+
+        // Act
+        Cursor decoded = Cursor.decode(cursor.encode());
+
+        // Assert
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void encode_shouldBeUrlSafe() {
+        // Arrange
+        Cursor cursor = new Cursor("???>>>~~~", UUID.randomUUID());
+
+        // Act
+        String token = cursor.encode();
+
+        // Assert
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"%%%", "bm8tc2VwYXJhdG9y"})
+    void decode_withMalformedToken_shouldThrowException(String token) {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(token));
+    }
+
+    @Test
+    void decode_withInvalidId_shouldThrowException() {
+        // Arrange
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString("title\nnot-a-uuid".getBytes());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(token));
+    }
+}
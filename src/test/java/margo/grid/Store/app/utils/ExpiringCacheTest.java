@@ -0,0 +1,146 @@
+package margo.grid.store.app.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringCacheTest {
+    private static final Duration TTL = Duration.ofSeconds(10);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+    private AtomicInteger loads;
+    private List<String> loaded;
+    private ExpiringCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong();
+        loads = new AtomicInteger();
+        loaded = new ArrayList<>();
+        cache = new ExpiringCache<>("test", 2, TTL, meterRegistry, now::get,
+                (stale, fresh) -> loaded.add(stale + "->" + fresh));
+    }
+
+    @Test
+    void get_withinTtl_shouldLoadOnceAndCountHit() {
+        // Act
+        cache.get("a", this::load);
+        String second = cache.get("a", this::load);
+
+        // Assert
+        assertEquals("a1", second);
+        assertEquals(1, loads.get());
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void get_afterTtl_shouldReloadAndReportReplacedValue() {
+        // Arrange
+        cache.get("a", this::load);
+        now.addAndGet(TTL.toNanos());
+
+        // Act
+        String reloaded = cache.get("a", this::load);
+
+        // Assert
+        assertEquals("a2", reloaded);
+        assertEquals(List.of("null->a1", "a1->a2"), loaded);
+        assertEquals(1, evictions("expired"));
+    }
+
+    @Test
+    void get_beyondMaxSize_shouldEvictAndStayBounded() {
+        // Act
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("c", this::load);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, evictions("size"));
+    }
+
+    @Test
+    void get_beyondMaxSize_shouldPreferExpiredEntry() {
+        // Arrange
+        cache.get("a", this::load);
+        now.addAndGet(TTL.toNanos());
+        cache.get("b", this::load);
+
+        // Act
+        cache.get("c", this::load);
+        cache.get("b", this::load);
+
+        // Assert
+        assertEquals(3, loads.get());
+        assertEquals(0, evictions("size"));
+        assertEquals(1, evictions("expired"));
+    }
+
+    @Test
+    void invalidateIf_shouldDropMatchingEntriesOnly() {
+        // Arrange
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+
+        // Act
+        cache.invalidateIf(value -> value.startsWith("a"));
+
+        // Assert
+        assertEquals("b2", cache.get("b", this::load));
+        assertEquals("a3", cache.get("a", this::load));
+    }
+
+    @Test
+    void get_whenInvalidatedWhileLoading_shouldNotKeepLoadedValue() {
+        // Act
+        String loaded = cache.get("a", key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        // Assert
+        assertEquals("stale", loaded);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void getIfPresent_shouldReturnPutValueUntilItExpires() {
+        // Arrange
+        cache.put("a", "stored");
+
+        // Act
+        String present = cache.getIfPresent("a");
+        now.addAndGet(TTL.toNanos());
+        String expired = cache.getIfPresent("a");
+
+        // Assert
+        assertEquals("stored", present);
+        assertNull(expired);
+        assertEquals(0, loads.get());
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    private String load(String key) {
+        return key + loads.incrementAndGet();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "test").tag("result", result).counter().count();
+    }
+
+    private double evictions(String cause) {
+        return meterRegistry.get("cache.evictions").tag("cache", "test").tag("cause", cause).counter().count();
+    }
+}
@@ -0,0 +1,88 @@
+package margo.grid.store.app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPasswordFingerprintFileTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void search_withFileBuiltByTool_shouldFindEveryListedPasswordOnly() throws Exception {
+        // Arrange
+        Path plaintext = directory.resolve("breached.txt");
+        Path fingerprints = directory.resolve("breached.pwfp");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 20000; i++) lines.append("breached").append(i).append('\n');
+        Files.writeString(plaintext, lines.append("breached7\n"));
+
+        // Act
+        BreachedPasswordFileTool.main(new String[]{plaintext.toString(), fingerprints.toString()});
+        MappedPasswordFingerprintFile file = MappedPasswordFingerprintFile.open(fingerprints);
+
+        // Assert
+        assertEquals(20000, file.size());
+        assertEquals(8 + 20000 * 8, Files.size(fingerprints));
+        for (int i = 0; i < 20000; i++) assertTrue(file.search("breached" + i), "breached" + i);
+        for (int i = 20000; i < 40000; i++) assertFalse(file.search("breached" + i), "breached" + i);
+    }
+
+    @Test
+    void search_withEmptyFile_shouldFindNothing() throws Exception {
+        // Arrange
+        Path fingerprints = directory.resolve("empty.pwfp");
+        MappedPasswordFingerprintFile.write(PasswordFingerprintSet.EMPTY, fingerprints);
+
+        // Act
+        MappedPasswordFingerprintFile file = MappedPasswordFingerprintFile.open(fingerprints);
+
+        // Assert
+        assertEquals(0, file.size());
+        assertFalse(file.search("password"));
+    }
+
+    @Test
+    void open_withoutMagic_shouldFail() throws Exception {
+        // Arrange
+        Path fingerprints = directory.resolve("plain.pwfp");
+        Files.writeString(fingerprints, "password");
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> MappedPasswordFingerprintFile.open(fingerprints));
+    }
+
+    @Test
+    void open_withUnsortedEntries_shouldFail() throws Exception {
+        // Arrange
+        Path fingerprints = directory.resolve("unsorted.pwfp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(fingerprints))) {
+            out.write(MappedPasswordFingerprintFile.MAGIC);
+            out.writeLong(2);
+            out.writeLong(1);
+        }
+
+        // Act & Assert
+        IOException exception = assertThrows(IOException.class, () -> MappedPasswordFingerprintFile.open(fingerprints));
+        assertTrue(exception.getMessage().contains("not sorted"));
+    }
+
+    @Test
+    void open_withTruncatedEntry_shouldFail() throws Exception {
+        // Arrange
+        Path fingerprints = directory.resolve("truncated.pwfp");
+        MappedPasswordFingerprintFile.write(PasswordFingerprintSet.of(List.of("a", "b")), fingerprints);
+        byte[] bytes = Files.readAllBytes(fingerprints);
+        Files.write(fingerprints, Arrays.copyOf(bytes, bytes.length - 3));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> MappedPasswordFingerprintFile.open(fingerprints));
+    }
+}
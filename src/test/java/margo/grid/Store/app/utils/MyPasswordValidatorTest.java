@@ -2,6 +2,7 @@ package margo.grid.store.app.utils;
 
 import jakarta.validation.ConstraintValidatorContext;
 import margo.grid.store.app.config.PasswordSettings;
+import margo.grid.store.app.service.PasswordPolicyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +12,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -18,6 +20,7 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class MyPasswordValidatorTest {
     @Mock private PasswordSettings passwordSettings;
+    @Mock private PasswordPolicyService passwordPolicyService;
     @Mock private ConstraintValidatorContext context;
     @Mock private ConstraintValidatorContext.ConstraintViolationBuilder violationBuilder;
 
@@ -35,9 +38,10 @@ class MyPasswordValidatorTest {
         lenient().when(passwordSettings.getMinSpecial()).thenReturn(1);
         lenient().when(passwordSettings.getMaxRepeatChars()).thenReturn(2);
         lenient().when(passwordSettings.getMaxSequenceLength()).thenReturn(3);
-        lenient().when(passwordSettings.getCommonPasswords()).thenReturn(new String[]{
-                "123456", "123456789", "abc123", "password", "qwerty"
-        });
+        PasswordFingerprintSet commonPasswords = PasswordFingerprintSet.of(List.of(
+                "123456", "123456789", "abc123", "password", "qwerty"));
+        PasswordPolicy policy = PasswordPolicy.compile(passwordSettings, commonPasswords);
+        lenient().when(passwordPolicyService.getPolicy()).thenReturn(policy);
 
         lenient().when(context.buildConstraintViolationWithTemplate(anyString())).thenReturn(violationBuilder);
         lenient().when(violationBuilder.addConstraintViolation()).thenReturn(context);
@@ -104,4 +108,19 @@ class MyPasswordValidatorTest {
         assertFalse(result);
         verify(context).disableDefaultConstraintViolation();
     }
-}
\ No newline at end of file
+
+    @Test
+    void isValid_withCommonPassword_shouldReportDictionaryWord() {
+        // Arrange
+        PasswordFingerprintSet commonPasswords = PasswordFingerprintSet.of(List.of("Tr0ub4dor&3"));
+        PasswordPolicy policy = PasswordPolicy.compile(passwordSettings, commonPasswords);
+        when(passwordPolicyService.getPolicy()).thenReturn(policy);
+
+        // Act
+        boolean result = validator.isValid("Tr0ub4dor&3", context);
+
+        // Assert
+        assertFalse(result);
+        verify(context).buildConstraintViolationWithTemplate("Password contains the dictionary word 'Tr0ub4dor&3'.");
+    }
+}
@@ -0,0 +1,72 @@
+package margo.grid.store.app.utils;
+
+import margo.grid.store.app.config.PasswordHashingSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncoderFactoryTest {
+    private static final String PASSWORD = "Secret1!";
+
+    private PasswordHashingSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        settings = new PasswordHashingSettings();
+        settings.setArgon2MemoryKib(1024);
+        settings.setTargetHashTime(Duration.ofMillis(1));
+    }
+
+    @Test
+    void iterationsFor_shouldScaleToTargetWithinBounds() {
+        // Act & Assert
+        assertEquals(5, PasswordEncoderFactory.iterationsFor(Duration.ofMillis(50), 10_000_000, 2, 10));
+        assertEquals(2, PasswordEncoderFactory.iterationsFor(Duration.ofMillis(50), 40_000_000, 2, 10));
+        assertEquals(10, PasswordEncoderFactory.iterationsFor(Duration.ofMillis(50), 1_000, 2, 10));
+    }
+
+    @Test
+    void encode_shouldUseArgon2AndNotAskForUpgrade() {
+        // Arrange
+        PasswordEncoder encoder = PasswordEncoderFactory.create(settings);
+
+        // Act
+        String hash = encoder.encode(PASSWORD);
+
+        // Assert
+        assertTrue(hash.startsWith("{argon2}$argon2id$"));
+        assertTrue(encoder.matches(PASSWORD, hash));
+        assertFalse(encoder.matches("Other1!", hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    void matches_withLegacyBcryptHash_shouldMatchAndAskForUpgrade() {
+        // Arrange
+        PasswordEncoder encoder = PasswordEncoderFactory.create(settings);
+        String legacyHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+
+        // Act & Assert
+        assertTrue(encoder.matches(PASSWORD, legacyHash));
+        assertTrue(encoder.upgradeEncoding(legacyHash));
+    }
+
+    @Test
+    void upgradeEncoding_withFewerIterationsThanCalibrated_shouldAskForUpgrade() {
+        // Arrange
+        settings.setTargetHashTime(Duration.ofMinutes(1));
+        settings.setArgon2MinIterations(1);
+        settings.setArgon2MaxIterations(3);
+        PasswordEncoder encoder = PasswordEncoderFactory.create(settings);
+        String weakerHash = "{argon2}" + new Argon2PasswordEncoder(16, 32, 1, 1024, 1).encode(PASSWORD);
+
+        // Act & Assert
+        assertTrue(encoder.matches(PASSWORD, weakerHash));
+        assertTrue(encoder.upgradeEncoding(weakerHash));
+    }
+}
@@ -0,0 +1,46 @@
+package margo.grid.store.app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordFingerprintSetTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void of_shouldFindListedPasswordsOnlyAndDropDuplicates() {
+        // Act
+        PasswordFingerprintSet passwords = PasswordFingerprintSet.of(List.of("letmein", "qwerty", "letmein"));
+
+        // Assert
+        assertEquals(2, passwords.size());
+        assertTrue(passwords.search("letmein"));
+        assertTrue(passwords.search("qwerty"));
+        assertFalse(passwords.search("Letmein"));
+        assertFalse(passwords.search("hunter2"));
+    }
+
+    @Test
+    void load_shouldReadOneUtf8PasswordPerLineAndAddExtraPasswords() throws Exception {
+        // Arrange
+        Path file = directory.resolve("breached.txt");
+        StringBuilder lines = new StringBuilder("pässwort\n\n");
+        for (int i = 0; i < 5000; i++) lines.append("leaked").append(i).append('\n');
+        Files.writeString(file, lines);
+
+        // Act
+        PasswordFingerprintSet passwords = PasswordFingerprintSet.load(file, List.of("admin"));
+
+        // Assert
+        assertEquals(5002, passwords.size());
+        assertTrue(passwords.search("pässwort"));
+        assertTrue(passwords.search("leaked4999"));
+        assertTrue(passwords.search("admin"));
+        assertFalse(passwords.search(""));
+    }
+}
@@ -0,0 +1,112 @@
+package margo.grid.store.app.utils;
+
+import margo.grid.store.app.config.RateLimitSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitRoutesTest {
+    private Map<String, RateLimitSettings.Policy> policies;
+
+    @BeforeEach
+    void setUp() {
+        policies = new LinkedHashMap<>();
+    }
+
+    @Test
+    void match_withOverlappingRoutes_shouldPickMostSpecific() {
+        // Arrange
+        policies.put("catalog", policy(List.of(), "/items/**"));
+        policies.put("item", policy(List.of(), "/items/{id}"));
+        policies.put("featured", policy(List.of(), "/items/featured"));
+        RateLimitRoutes routes = RateLimitRoutes.compile(policies);
+
+        // Act & Assert
+        assertEquals("featured", match(routes, "GET", "/items/featured"));
+        assertEquals("item", match(routes, "GET", "/items/42"));
+        assertEquals("catalog", match(routes, "GET", "/items/42/reviews"));
+        assertEquals("catalog", match(routes, "GET", "/items"));
+    }
+
+    @Test
+    void match_withMethods_shouldOnlyLimitThoseMethods() {
+        // Arrange
+        policies.put("checkout", policy(List.of(HttpMethod.POST), "/orders"));
+        RateLimitRoutes routes = RateLimitRoutes.compile(policies);
+
+        // Act & Assert
+        assertEquals("checkout", match(routes, "POST", "/orders"));
+        assertNull(match(routes, "GET", "/orders"));
+    }
+
+    @Test
+    void match_withVariableFirstSegment_shouldApplyUnderEverySegment() {
+        // Arrange
+        policies.put("login", policy(List.of(), "/auth/login"));
+        policies.put("reports", policy(List.of(), "/{section}/report"));
+        RateLimitRoutes routes = RateLimitRoutes.compile(policies);
+
+        // Act & Assert
+        assertEquals("reports", match(routes, "GET", "/auth/report"));
+        assertEquals("reports", match(routes, "GET", "/orders/report"));
+        assertEquals("login", match(routes, "POST", "/auth/login"));
+    }
+
+    @Test
+    void match_withoutMatchingRoute_shouldReturnNull() {
+        // Arrange
+        policies.put("login", policy(List.of(), "/auth/login"));
+        RateLimitRoutes routes = RateLimitRoutes.compile(policies);
+
+        // Act & Assert
+        assertNull(match(routes, "POST", "/auth/register"));
+        assertNull(match(routes, "POST", "/"));
+        assertNull(match(routes, "POST", "/store/auth/login"));
+    }
+
+    @Test
+    void match_withRequestUri_shouldMatchWithinContextPathOnly() {
+        // Arrange
+        policies.put("login", policy(List.of(), "/auth/login"));
+        policies.put("catalog", policy(List.of(HttpMethod.GET), "/items/**"));
+        RateLimitRoutes routes = RateLimitRoutes.compile(policies);
+
+        // Act & Assert
+        assertEquals("login", routes.match("POST", "/store/auth/login", "/store"));
+        assertEquals("catalog", routes.match("GET", "/store/items/42", "/store"));
+        assertEquals("login", routes.match("POST", "/auth/login", ""));
+        assertNull(routes.match("POST", "/store/items", "/store"));
+        assertNull(routes.match("POST", "/store", "/store"));
+    }
+
+    @Test
+    void match_withEncodedSegment_shouldMatchDecodedPath() {
+        // Arrange
+        policies.put("login", policy(List.of(), "/auth/login"));
+        RateLimitRoutes routes = RateLimitRoutes.compile(policies);
+
+        // Act & Assert
+        assertEquals("login", routes.match("POST", "/store/%61uth/login", "/store"));
+        assertEquals("login", routes.match("POST", "/store/auth;v=1/login", "/store"));
+    }
+
+    private static String match(RateLimitRoutes routes, String method, String path) {
+        return routes.match(method, PathContainer.parsePath(path));
+    }
+
+    private static RateLimitSettings.Policy policy(List<HttpMethod> methods, String... paths) {
+        RateLimitSettings.Policy policy = new RateLimitSettings.Policy();
+        policy.setPaths(List.of(paths));
+        policy.setMethods(methods);
+        policy.setMaxRequests(1);
+        policy.setRefillPeriod(Duration.ofSeconds(1));
+        return policy;
+    }
+}
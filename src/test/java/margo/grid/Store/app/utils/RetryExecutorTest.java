@@ -0,0 +1,69 @@
+package margo.grid.store.app.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import margo.grid.store.app.config.RetrySettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetryExecutor retryExecutor;
+    private AtomicInteger attempts;
+
+    @BeforeEach
+    void setUp() {
+        RetrySettings settings = new RetrySettings();
+        settings.setMaxAttempts(3);
+        settings.setInitialBackoff(Duration.ofMillis(1));
+        settings.setMaxBackoff(Duration.ofMillis(2));
+        meterRegistry = new SimpleMeterRegistry();
+        retryExecutor = new RetryExecutor(TransactionOperations.withoutTransaction(), settings, meterRegistry);
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    void execute_afterLostOptimisticLock_shouldRunAgainAndReturnResult() {
+        // Act
+        String result = retryExecutor.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, "id");
+            }
+            return "done";
+        });
+
+        // Assert
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.counter("concurrency.retries").count());
+    }
+
+    @Test
+    void execute_whenEveryAttemptLoses_shouldGiveUpAfterMaxAttempts() {
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> retryExecutor.run(() -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("locked");
+        }));
+        assertEquals(3, attempts.get());
+        assertEquals(1, meterRegistry.counter("concurrency.retries.exhausted").count());
+    }
+
+    @Test
+    void execute_withOtherFailure_shouldNotRetry() {
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> retryExecutor.run(() -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate");
+        }));
+        assertEquals(1, attempts.get());
+    }
+}
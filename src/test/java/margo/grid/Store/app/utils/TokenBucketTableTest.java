@@ -0,0 +1,171 @@
+package margo.grid.store.app.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTableTest {
+    private static final Duration REFILL_PERIOD = Duration.ofSeconds(3);
+
+    private AtomicLong now;
+    private TokenBucketTable table;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(42);
+        table = new TokenBucketTable(64, 3, REFILL_PERIOD, now::get);
+    }
+
+    @Test
+    void tryConsume_beyondMaxTokens_shouldRejectUntilATokenIsRefilled() {
+        // Arrange
+        long client = key("10.0.0.1");
+        for (int i = 0; i < 3; i++) assertTrue(table.tryConsume(client));
+
+        // Act & Assert
+        assertFalse(table.tryConsume(client));
+        now.addAndGet(Duration.ofMillis(999).toNanos());
+        assertFalse(table.tryConsume(client));
+        now.addAndGet(Duration.ofMillis(1).toNanos());
+        assertTrue(table.tryConsume(client));
+        assertFalse(table.tryConsume(client));
+    }
+
+    @Test
+    void tryConsume_afterIdlePeriod_shouldNotRefillBeyondMaxTokens() {
+        // Arrange
+        long client = key("10.0.0.1");
+        table.tryConsume(client);
+        now.addAndGet(Duration.ofHours(1).toNanos());
+
+        // Act
+        int allowed = 0;
+        while (table.tryConsume(client)) allowed++;
+
+        // Assert
+        assertEquals(3, allowed);
+    }
+
+    @Test
+    void tryConsume_withPartialRefill_shouldKeepTheRemainderOfTheInterval() {
+        // Arrange
+        long client = key("10.0.0.1");
+        for (int i = 0; i < 3; i++) table.tryConsume(client);
+        now.addAndGet(Duration.ofMillis(1500).toNanos());
+        assertTrue(table.tryConsume(client));
+
+        // Act
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+
+        // Assert
+        assertTrue(table.tryConsume(client));
+        assertFalse(table.tryConsume(client));
+    }
+
+    @Test
+    void consume_shouldReportRemainingTokensAndTimeUntilRefill() {
+        // Arrange
+        long client = key("10.0.0.1");
+        table.consume(client);
+        now.addAndGet(Duration.ofMillis(400).toNanos());
+
+        // Act
+        RateLimitResult second = table.consume(client);
+        table.consume(client);
+        RateLimitResult rejected = table.consume(client);
+
+        // Assert
+        assertEquals(new RateLimitResult(true, 3, 1, 600, 1600), second);
+        assertEquals(new RateLimitResult(false, 3, 0, 600, 2600), rejected);
+    }
+
+    @Test
+    void tryConsume_withManyMoreClientsThanCapacity_shouldStayBoundedAndKeepRecentLimits() {
+        // Arrange
+        long victim = key("10.0.0.1");
+        for (int i = 0; i < 3; i++) table.tryConsume(victim);
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            now.addAndGet(1000);
+            table.tryConsume(key("spray-" + i));
+        }
+
+        // Assert
+        assertEquals(64, table.capacity());
+        assertTrue(table.size() <= 64);
+        long evictions = table.evictions();
+        assertTrue(evictions > 0);
+        for (int i = 99_990; i < 100_000; i++) table.tryConsume(key("spray-" + i));
+        assertEquals(evictions, table.evictions());
+        assertFalse(table.tryConsume(victim));
+    }
+
+    @Test
+    void tryConsume_whenEveryBucketIsDrained_shouldNotHandOutAFullBucket() {
+        // Arrange
+        TokenBucketTable small = new TokenBucketTable(16, 3, REFILL_PERIOD, now::get);
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 3; j++) small.tryConsume(key("throttled-" + i));
+        }
+
+        // Act
+        boolean newcomer = small.tryConsume(key("newcomer"));
+        boolean evictedAndBack = small.tryConsume(key("throttled-0")) || small.tryConsume(key("throttled-1"));
+
+        // Assert
+        assertFalse(newcomer);
+        assertFalse(evictedAndBack);
+        assertTrue(small.evictions() > 0);
+    }
+
+    @Test
+    void tryConsume_whenWindowIsFull_shouldEvictTheBucketWithMostTokens() {
+        // Arrange
+        TokenBucketTable small = new TokenBucketTable(16, 3, REFILL_PERIOD, now::get);
+        for (int i = 0; i < 15; i++) {
+            for (int j = 0; j < 3; j++) small.tryConsume(key("throttled-" + i));
+        }
+        small.tryConsume(key("light"));
+
+        // Act
+        RateLimitResult newcomer = small.consume(key("newcomer"));
+
+        // Assert
+        assertEquals(1, small.evictions());
+        assertEquals(new RateLimitResult(true, 3, 1, 1000, 2000), newcomer);
+        for (int i = 0; i < 15; i++) assertFalse(small.tryConsume(key("throttled-" + i)), "throttled-" + i);
+        assertEquals(1, small.evictions());
+    }
+
+    @Test
+    void tryConsume_withNewClients_shouldFreeRefilledBucketsAsTheClockHandPasses() {
+        // Arrange
+        TokenBucketTable small = new TokenBucketTable(16, 3, REFILL_PERIOD, now::get);
+        long busy = key("busy");
+        for (int i = 0; i < 10; i++) small.tryConsume(key("idle-" + i));
+        now.addAndGet(REFILL_PERIOD.toNanos());
+        for (int i = 0; i < 3; i++) small.tryConsume(busy);
+
+        // Act
+        for (int i = 0; i < 16 / TokenBucketTable.SWEEP_STEP; i++) small.tryConsume(key("new-" + i));
+
+        // Assert
+        assertEquals(1 + 16 / TokenBucketTable.SWEEP_STEP, small.size());
+        assertFalse(small.tryConsume(busy));
+    }
+
+    @Test
+    void hash_shouldDependOnTheRangeOnly() {
+        // Act & Assert
+        assertEquals(TokenBucketTable.hash("10.0.0.1", 0, 8), TokenBucketTable.hash(" 10.0.0.1,", 1, 9));
+        assertNotEquals(TokenBucketTable.hash("10.0.0.1", 0, 8), TokenBucketTable.hash("10.0.0.2", 0, 8));
+    }
+
+    private static long key(String client) {
+        return TokenBucketTable.hash(client, 0, client.length());
+    }
+}